@@ -0,0 +1,30 @@
+package com.project.spar.cache;
+
+import com.project.spar.dto.*;
+import lombok.Value;
+import lombok.With;
+
+import java.util.List;
+
+/**
+ * Immutable view of the latest known value of every metric type for one
+ * device. A {@code null} field means "not cached yet", not "no data".
+ * Updates produce a new instance, so a reader always sees one consistent set.
+ */
+@Value
+@With
+public class DeviceMetrics {
+    Long   userId;
+    String deviceId;
+
+    BatteryInfoDTO         batteryInfo;
+    CpuUsageDTO            cpuUsage;
+    RamUsageDTO            ramUsage;
+    DiskIODTO              diskIO;
+    List<DiskUsageDTO>     diskUsage;
+    List<ProcessStatusDTO> processStatuses;
+
+    public static DeviceMetrics empty(Long userId, String deviceId) {
+        return new DeviceMetrics(userId, deviceId, null, null, null, null, null, null);
+    }
+}
@@ -0,0 +1,77 @@
+package com.project.spar.cache;
+
+import com.project.spar.model.DeviceSpecification;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+/**
+ * Maps a device's public {@code deviceId} to its primary key and owning user,
+ * so the metrics endpoints can attach entities by reference instead of running
+ * the user and device lookups on every call.
+ * <p>
+ * Entries are only added once the device row is committed and are removed
+ * when the device is deleted (see {@link DeviceRegistryListener}); a miss
+ * simply means the caller has to query the database and register the result.
+ */
+@Component
+public class DeviceRegistry {
+
+    private record DeviceRef(Long deviceSpecId, Long userId) {}
+
+    private final ConcurrentHashMap<String, DeviceRef> devices = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the device primary key if the device is known and owned by the
+     * given user. An ownership mismatch is a miss, so the caller's own lookup
+     * produces the usual error.
+     */
+    public Optional<Long> find(Long userId, String deviceId) {
+        DeviceRef ref = devices.get(deviceId);
+        if (ref == null || !ref.userId().equals(userId)) {
+            return Optional.empty();
+        }
+        return Optional.of(ref.deviceSpecId());
+    }
+
+    /** Registers a loaded or saved device, deferred to commit inside a transaction. */
+    public void register(DeviceSpecification device) {
+        // getUser().getId() does not initialize the lazy user proxy
+        String deviceId = device.getDeviceId();
+        DeviceRef ref = new DeviceRef(device.getId(), device.getUser().getId());
+        if (ref.deviceSpecId() == null || ref.userId() == null) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    devices.put(deviceId, ref);
+                }
+            });
+        } else {
+            devices.put(deviceId, ref);
+        }
+    }
+
+    public void evict(String deviceId) {
+        devices.remove(deviceId);
+    }
+
+    /** Primary keys of the registered devices whose {@code deviceId} matches. */
+    public List<Long> deviceSpecIds(Predicate<String> deviceIdMatches) {
+        return devices.entrySet().stream()
+                .filter(e -> deviceIdMatches.test(e.getKey()))
+                .map(e -> e.getValue().deviceSpecId())
+                .toList();
+    }
+
+    public int size() {
+        return devices.size();
+    }
+}
@@ -0,0 +1,45 @@
+package com.project.spar.cache;
+
+import com.project.spar.model.DeviceSpecification;
+import com.project.spar.timeseries.SeriesStore;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * JPA listener on {@link DeviceSpecification} that drops a deleted device from
+ * the in-memory caches and bumps the owner's device-list version on any change. Hibernate obtains it from the Spring context, which is
+ * what makes the field injection work.
+ */
+@Component
+public class DeviceRegistryListener {
+
+    @Autowired
+    private DeviceRegistry deviceRegistry;
+
+    @Autowired
+    private LatestMetricsCache latestMetricsCache;
+
+    @Autowired
+    private SeriesStore seriesStore;
+
+    @Autowired
+    private ResourceVersions resourceVersions;
+
+    @PostPersist
+    @PostUpdate
+    public void onDeviceSaved(DeviceSpecification device) {
+        resourceVersions.touchDeviceList(device.getUser().getId());
+    }
+
+    @PostRemove
+    public void onDeviceRemoved(DeviceSpecification device) {
+        deviceRegistry.evict(device.getDeviceId());
+        latestMetricsCache.evict(device.getDeviceId());
+        seriesStore.evictDevice(device.getId());
+        resourceVersions.evictDevice(device.getDeviceId());
+        resourceVersions.touchDeviceList(device.getUser().getId());
+    }
+}
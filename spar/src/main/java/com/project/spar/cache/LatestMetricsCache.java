@@ -0,0 +1,274 @@
+package com.project.spar.cache;
+
+import com.project.spar.dto.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+/**
+ * Bounded, write-through cache of the latest metrics per device.
+ * <p>
+ * The ingest path writes into it after commit and the GET endpoints read from
+ * it, so the database is only queried on a miss. Entries are evicted least
+ * recently used first once their estimated size exceeds {@code cache.latest.maxBytes}.
+ * <p>
+ * Values read on a miss go in through {@link #fill}, which drops them if the
+ * device was written since the read began: the write may carry a type the
+ * entry did not hold yet, so the loaded copy could be older than the database.
+ */
+@Component
+public class LatestMetricsCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(LatestMetricsCache.class);
+
+    // rough per-object heap costs used for the memory budget
+    private static final long ENTRY_OVERHEAD = 256;
+    private static final long SCALAR_METRIC_BYTES = 96;
+    private static final long ROW_OVERHEAD = 112;
+
+    @Value("${cache.latest.enabled:true}") private boolean enabled;
+    @Value("${cache.latest.maxBytes:67108864}") private long maxBytes;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LinkedHashMap<String, Sized> entries = new LinkedHashMap<>(1024, 0.75f, true);
+    private long totalBytes;
+    // bumped by every write; an entry remembers the value it was last written at
+    private long writes;
+    // devices this node may cache: all of them unless cluster mode narrows it to the owned ones
+    private volatile Predicate<String> owns = deviceId -> true;
+
+    private record Sized(DeviceMetrics metrics, long bytes, long writtenAt) {}
+
+    /**
+     * Returns the cached metrics for the device if present and owned by the
+     * given user; an ownership mismatch is treated as a miss.
+     */
+    public Optional<DeviceMetrics> get(Long userId, String deviceId) {
+        if (!enabled || !owns.test(deviceId)) {
+            return Optional.empty();
+        }
+        Sized sized;
+        lock.lock();
+        try {
+            sized = entries.get(deviceId);
+        } finally {
+            lock.unlock();
+        }
+        if (sized == null || !sized.metrics().getUserId().equals(userId)) {
+            return Optional.empty();
+        }
+        return Optional.of(sized.metrics());
+    }
+
+    /**
+     * Applies {@code change} to the device's entry (starting from an empty one)
+     * and stores the result. Devices outside {@link #restrictTo} are not stored.
+     */
+    public void update(Long userId, String deviceId, UnaryOperator<DeviceMetrics> change) {
+        if (!enabled || !owns.test(deviceId)) {
+            return;
+        }
+        lock.lock();
+        try {
+            Sized current = entries.get(deviceId);
+            DeviceMetrics base = current != null && current.metrics().getUserId().equals(userId)
+                    ? current.metrics()
+                    : DeviceMetrics.empty(userId, deviceId);
+            store(deviceId, current, change.apply(base));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Marks the start of a database read whose result is passed to {@link #fill}. */
+    public long readStarted() {
+        lock.lock();
+        try {
+            return writes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stores the non-null fields of {@code loaded}, read from the database
+     * after {@code readStarted}, unless the device was written since or the
+     * entry already holds a newer value of a field.
+     */
+    public void fill(Long userId, String deviceId, long readStarted, DeviceMetrics loaded) {
+        if (!enabled || !owns.test(deviceId)) {
+            return;
+        }
+        lock.lock();
+        try {
+            Sized current = entries.get(deviceId);
+            if (current != null && current.writtenAt() > readStarted) {
+                logger.debug("Dropped stale load of deviceId={}, written since the read began", deviceId);
+                return;
+            }
+            DeviceMetrics m = current != null && current.metrics().getUserId().equals(userId)
+                    ? current.metrics()
+                    : DeviceMetrics.empty(userId, deviceId);
+            if (newer(loaded.getBatteryInfo(), m.getBatteryInfo(), BatteryInfoDTO::getTimestamp)) {
+                m = m.withBatteryInfo(loaded.getBatteryInfo());
+            }
+            if (newer(loaded.getCpuUsage(), m.getCpuUsage(), CpuUsageDTO::getTimestamp)) {
+                m = m.withCpuUsage(loaded.getCpuUsage());
+            }
+            if (newer(loaded.getRamUsage(), m.getRamUsage(), RamUsageDTO::getTimestamp)) {
+                m = m.withRamUsage(loaded.getRamUsage());
+            }
+            if (newer(loaded.getDiskIO(), m.getDiskIO(), DiskIODTO::getTimestamp)) {
+                m = m.withDiskIO(loaded.getDiskIO());
+            }
+            if (newer(loaded.getDiskUsage(), m.getDiskUsage(), LatestMetricsCache::timestampOf)) {
+                m = m.withDiskUsage(loaded.getDiskUsage());
+            }
+            if (newer(loaded.getProcessStatuses(), m.getProcessStatuses(), LatestMetricsCache::timestampOf)) {
+                m = m.withProcessStatuses(loaded.getProcessStatuses());
+            }
+            store(deviceId, current, m);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void evict(String deviceId) {
+        lock.lock();
+        try {
+            Sized removed = entries.remove(deviceId);
+            if (removed != null) {
+                totalBytes -= removed.bytes();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Only caches devices {@code owns} accepts from now on. Another node writes
+     * the rest, so a copy here could only go stale.
+     */
+    public void restrictTo(Predicate<String> owns) {
+        this.owns = owns;
+    }
+
+    /** Drops every device whose id matches; returns how many were dropped. */
+    public int evictWhere(Predicate<String> deviceIdMatches) {
+        lock.lock();
+        try {
+            int evicted = 0;
+            Iterator<Map.Entry<String, Sized>> it = entries.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<String, Sized> entry = it.next();
+                if (deviceIdMatches.test(entry.getKey())) {
+                    totalBytes -= entry.getValue().bytes();
+                    it.remove();
+                    evicted++;
+                }
+            }
+            return evicted;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long estimatedBytes() {
+        lock.lock();
+        try {
+            return totalBytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // caller holds the lock
+    private void store(String deviceId, Sized current, DeviceMetrics updated) {
+        long bytes = estimateBytes(updated);
+        if (current != null) {
+            totalBytes -= current.bytes();
+        }
+        entries.put(deviceId, new Sized(updated, bytes, ++writes));
+        totalBytes += bytes;
+        evictOverBudget();
+    }
+
+    // a loaded value replaces a cached one unless the cached one is known to be newer
+    private static <T> boolean newer(T loaded, T cached, Function<T, LocalDateTime> timestamp) {
+        if (loaded == null) {
+            return false;
+        }
+        if (cached == null) {
+            return true;
+        }
+        LocalDateTime loadedAt = timestamp.apply(loaded);
+        LocalDateTime cachedAt = timestamp.apply(cached);
+        return cachedAt == null || (loadedAt != null && !loadedAt.isBefore(cachedAt));
+    }
+
+    // rows of one list are written together, so the first carries the list's timestamp
+    private static LocalDateTime timestampOf(List<?> rows) {
+        if (rows.isEmpty()) {
+            return null;
+        }
+        Object first = rows.get(0);
+        return first instanceof DiskUsageDTO du ? du.getTimestamp() : ((ProcessStatusDTO) first).getTimestamp();
+    }
+
+    // caller holds the lock
+    private void evictOverBudget() {
+        Iterator<Map.Entry<String, Sized>> eldest = entries.entrySet().iterator();
+        int evicted = 0;
+        while (totalBytes > maxBytes && eldest.hasNext()) {
+            totalBytes -= eldest.next().getValue().bytes();
+            eldest.remove();
+            evicted++;
+        }
+        if (evicted > 0) {
+            logger.debug("Evicted {} devices from latest-metrics cache, now {} bytes", evicted, totalBytes);
+        }
+    }
+
+    private static long estimateBytes(DeviceMetrics m) {
+        long bytes = ENTRY_OVERHEAD + 2L * m.getDeviceId().length();
+        if (m.getBatteryInfo() != null) bytes += SCALAR_METRIC_BYTES;
+        if (m.getRamUsage() != null) bytes += SCALAR_METRIC_BYTES;
+        if (m.getDiskIO() != null) bytes += SCALAR_METRIC_BYTES;
+        if (m.getCpuUsage() != null) {
+            float[] perCore = m.getCpuUsage().getPerCoreUsage();
+            bytes += SCALAR_METRIC_BYTES + (perCore == null ? 0 : 4L * perCore.length);
+        }
+        if (m.getDiskUsage() != null) {
+            for (DiskUsageDTO du : m.getDiskUsage()) {
+                bytes += ROW_OVERHEAD + (du.getFilesystem() == null ? 0 : 2L * du.getFilesystem().length());
+            }
+        }
+        if (m.getProcessStatuses() != null) {
+            for (ProcessStatusDTO ps : m.getProcessStatuses()) {
+                bytes += ROW_OVERHEAD + (ps.getName() == null ? 0 : 2L * ps.getName().length());
+            }
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,89 @@
+package com.project.spar.cache;
+
+import com.project.spar.constants.AppConstants;
+import com.project.spar.dto.*;
+import com.project.spar.event.MetricsIngestedEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Writes committed batches through to the {@link LatestMetricsCache}.
+ * <p>
+ * Latest-value rows keep their id across upserts, so those metrics are only
+ * refreshed when already cached (the id is taken from the cached copy); an
+ * uncached type is loaded with its id on the next read. Disk and process rows
+ * carry the ids generated by their insert. Every batch still writes the entry,
+ * so a read that began before it cannot fill the cache with older values (see
+ * {@link LatestMetricsCache#fill}).
+ */
+@Component
+public class LatestMetricsCacheUpdater {
+
+    @Autowired
+    private LatestMetricsCache cache;
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onMetricsIngested(MetricsIngestedEvent event) {
+        Long userId = event.userId();
+        String deviceId = event.deviceId();
+        MetricsBatchDTO batch = event.batch();
+        LocalDateTime ts = event.timestamp();
+
+        cache.update(userId, deviceId, m -> {
+            DeviceMetrics next = m;
+
+            BatteryInfoDTO bi = batch.getBatteryInfo();
+            if (bi != null && m.getBatteryInfo() != null) {
+                next = next.withBatteryInfo(new BatteryInfoDTO(m.getBatteryInfo().getId(), bi.isHasBattery(),
+                        bi.getBatteryPercentage(), bi.isCharging(), bi.getPowerConsumption(), userId, deviceId, ts));
+            }
+            CpuUsageDTO cu = batch.getCpuUsage();
+            if (cu != null && m.getCpuUsage() != null) {
+                next = next.withCpuUsage(new CpuUsageDTO(m.getCpuUsage().getId(), cu.getTotalCpuLoad(),
+                        cu.getPerCoreUsage(), userId, deviceId, ts));
+            }
+            RamUsageDTO ru = batch.getRamUsage();
+            if (ru != null && m.getRamUsage() != null) {
+                next = next.withRamUsage(new RamUsageDTO(m.getRamUsage().getId(), ru.getTotalMemory(),
+                        ru.getUsedMemory(), ru.getAvailableMemory(), userId, deviceId, ts));
+            }
+            DiskIODTO dio = batch.getDiskIO();
+            if (dio != null && m.getDiskIO() != null) {
+                next = next.withDiskIO(new DiskIODTO(m.getDiskIO().getId(), dio.getReadSpeedMBps(),
+                        dio.getWriteSpeedMBps(), userId, deviceId, ts));
+            }
+
+            List<DiskUsageDTO> duList = batch.getDiskUsage();
+            if (duList != null) {
+                next = next.withDiskUsage(allIdsKnown(duList.stream().map(DiskUsageDTO::getId).toList())
+                        ? duList.stream()
+                                .map(du -> new DiskUsageDTO(du.getId(), du.getFilesystem(), du.getSizeGB(),
+                                        du.getUsedGB(), du.getAvailableGB(), userId, deviceId, ts))
+                                .toList()
+                        : null);
+            }
+            List<ProcessStatusDTO> psList = batch.getProcessStatuses();
+            if (psList != null) {
+                List<ProcessStatusDTO> snapshot = psList.stream().limit(AppConstants.MAX_PROCESSES).toList();
+                next = next.withProcessStatuses(allIdsKnown(snapshot.stream().map(ProcessStatusDTO::getId).toList())
+                        ? snapshot.stream()
+                                .map(ps -> new ProcessStatusDTO(ps.getId(), ps.getPid(), ps.getName(),
+                                        ps.getCpuUsage(), ps.getMemoryMB(), userId, deviceId, ts))
+                                .toList()
+                        : null);
+            }
+            return next;
+        });
+    }
+
+    // if the driver did not hand back generated keys, leave the list uncached
+    private static boolean allIdsKnown(List<Long> ids) {
+        return ids.stream().allMatch(Objects::nonNull);
+    }
+}
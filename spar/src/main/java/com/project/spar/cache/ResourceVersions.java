@@ -0,0 +1,92 @@
+package com.project.spar.cache;
+
+import com.project.spar.event.MetricsIngestedEvent;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory change counters behind the {@code ETag} validators of the read
+ * endpoints, so a conditional GET for unchanged data is answered without
+ * touching the database or Jackson.
+ * <p>
+ * Every write to a device's metrics stamps it with the next value of one
+ * process-wide sequence. Tags carry a random boot id, so validators handed out
+ * before a restart never match, and a generation that bulk deletes bump to
+ * invalidate everything at once. Stamps are taken after commit: a reader can
+ * pair an older tag with newer data, which only costs one extra full
+ * response, but never a newer tag with older data.
+ * <p>
+ * No {@code Last-Modified} is handed out: HTTP dates have whole seconds, so
+ * {@code If-Modified-Since} would call a device unchanged after a second write
+ * within the same second.
+ */
+@Component
+public class ResourceVersions {
+
+    private final String bootId = UUID.randomUUID().toString().substring(0, 8);
+
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicLong generation = new AtomicLong();
+
+    private final ConcurrentHashMap<String, Long> devices = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, Long> deviceLists = new ConcurrentHashMap<>();
+
+    /** Weak entity tag of the device's metrics. */
+    public String device(String deviceId) {
+        return etag("d", devices.get(deviceId));
+    }
+
+    /** Weak entity tag of the user's device list. */
+    public String deviceList(Long userId) {
+        return etag("u", deviceLists.get(userId));
+    }
+
+    /** Marks the device's metrics as changed, deferred to commit inside a transaction. */
+    public void touchDevice(String deviceId) {
+        afterCommit(() -> devices.put(deviceId, sequence.incrementAndGet()));
+    }
+
+    /** Marks the user's device list as changed, deferred to commit inside a transaction. */
+    public void touchDeviceList(Long userId) {
+        afterCommit(() -> deviceLists.put(userId, sequence.incrementAndGet()));
+    }
+
+    /** Invalidates every validator handed out so far, e.g. after a bulk delete. */
+    public void touchAll() {
+        generation.incrementAndGet();
+    }
+
+    public void evictDevice(String deviceId) {
+        devices.remove(deviceId);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onMetricsIngested(MetricsIngestedEvent event) {
+        devices.put(event.deviceId(), sequence.incrementAndGet());
+    }
+
+    // an unstamped resource has not changed since boot (or the last generation)
+    private String etag(String kind, Long version) {
+        return "W/\"" + bootId + "-" + generation.get() + "-" + kind + (version == null ? 0 : version) + "\"";
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.project.spar.cluster;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The node-to-node protocol: plain HTTP/1.1 between SPAR instances.
+ * <ul>
+ *   <li>{@code GET /internal/cluster/ping}: heartbeat; the caller names itself
+ *       in {@value #NODE_HEADER} and gets back the members the peer sees live.</li>
+ *   <li>{@code POST /internal/cluster/leave}: sent on shutdown so peers drop the
+ *       node right away instead of waiting for its heartbeats to time out.</li>
+ *   <li>Forwarded API requests: replayed verbatim against the device's owner
+ *       with {@value #FORWARDED_HEADER} set, which the owner serves locally.</li>
+ * </ul>
+ * Every call carries {@code cluster.secret}, which cluster mode requires.
+ */
+@Component
+public class ClusterClient {
+
+    public static final String NODE_HEADER = "X-Spar-Node";
+    public static final String SECRET_HEADER = "X-Spar-Cluster-Secret";
+    public static final String FORWARDED_HEADER = "X-Spar-Forwarded-By";
+
+    static final String PING_PATH = "/internal/cluster/ping";
+    static final String LEAVE_PATH = "/internal/cluster/leave";
+
+    // set by HttpClient itself, or only meaningful for one hop
+    private static final Set<String> HOP_BY_HOP = Set.of("connection", "content-length", "expect", "host",
+            "upgrade", "keep-alive", "transfer-encoding", "te", "trailer", "proxy-authorization",
+            "proxy-connection", NODE_HEADER.toLowerCase(Locale.ROOT), SECRET_HEADER.toLowerCase(Locale.ROOT),
+            FORWARDED_HEADER.toLowerCase(Locale.ROOT));
+
+    @Value("${cluster.secret:}") private String secret;
+    @Value("${cluster.connectTimeoutMs:500}") private long connectTimeoutMs;
+    @Value("${cluster.pingTimeoutMs:1000}") private long pingTimeoutMs;
+    @Value("${cluster.forwardTimeoutMs:10000}") private long forwardTimeoutMs;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private HttpClient http;
+
+    @PostConstruct
+    void init() {
+        http = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .build();
+    }
+
+    public boolean hasSecret() {
+        return !secret.isBlank();
+    }
+
+    /** Whether a header sent by a peer carries the configured secret; never true without one. */
+    public boolean acceptsSecret(String presented) {
+        return hasSecret() && presented != null && MessageDigest.isEqual(
+                secret.getBytes(StandardCharsets.UTF_8), presented.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static boolean isHopByHop(String header) {
+        return HOP_BY_HOP.contains(header.toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Heartbeats {@code peer} on behalf of {@code self}.
+     *
+     * @return the members {@code peer} currently has in its ring
+     * @throws IOException if the peer is unreachable or refuses the call
+     */
+    public List<String> ping(String peer, String self) throws IOException, InterruptedException {
+        HttpResponse<byte[]> response = http.send(internal(peer + PING_PATH, self).GET().build(),
+                HttpResponse.BodyHandlers.ofByteArray());
+        if (response.statusCode() != 200) {
+            throw new IOException("ping to " + peer + " answered " + response.statusCode());
+        }
+        return objectMapper.readValue(response.body(), new TypeReference<List<String>>() {});
+    }
+
+    /** Tells {@code peer} that {@code self} is leaving; best effort. */
+    public void leave(String peer, String self) throws IOException, InterruptedException {
+        http.send(internal(peer + LEAVE_PATH, self).POST(HttpRequest.BodyPublishers.noBody()).build(),
+                HttpResponse.BodyHandlers.discarding());
+    }
+
+    /**
+     * Replays a request against {@code owner}. {@code pathAndQuery} starts with
+     * a slash; hop-by-hop and cluster headers of the original are not copied.
+     */
+    public HttpResponse<byte[]> forward(String owner, String self, String method, String pathAndQuery,
+                                        Map<String, List<String>> headers, byte[] body)
+            throws IOException, InterruptedException {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(owner + pathAndQuery))
+                .timeout(Duration.ofMillis(forwardTimeoutMs))
+                .header(FORWARDED_HEADER, self)
+                .method(method, body == null
+                        ? HttpRequest.BodyPublishers.noBody()
+                        : HttpRequest.BodyPublishers.ofByteArray(body));
+        request.header(SECRET_HEADER, secret);
+        headers.forEach((name, values) -> {
+            if (!isHopByHop(name)) {
+                values.forEach(value -> request.header(name, value));
+            }
+        });
+        return http.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+    }
+
+    private HttpRequest.Builder internal(String url, String self) {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(url))
+                .timeout(Duration.ofMillis(pingTimeoutMs))
+                .header(NODE_HEADER, self)
+                .header(SECRET_HEADER, secret);
+        return request;
+    }
+}
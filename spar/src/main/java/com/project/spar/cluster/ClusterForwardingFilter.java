@@ -0,0 +1,222 @@
+package com.project.spar.cluster;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.project.spar.constants.AppConstants;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.UriUtils;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.http.HttpResponse;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Sends device traffic that reached the wrong node to the device's owner, so
+ * the owner's latest-metrics cache, series store and streams see every write
+ * and serve every read of its devices.
+ * <p>
+ * Runs after Spring Security, so requests are authenticated before they are
+ * forwarded (the owner checks the token again). Writes and reads are proxied
+ * and the owner's answer is relayed as-is; a stream request is redirected
+ * instead, so the long-lived connection goes straight to the owner. Requests
+ * already forwarded by a peer are always served locally, which rules out
+ * loops while two nodes briefly disagree about the ring.
+ */
+@Component
+public class ClusterForwardingFilter extends OncePerRequestFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClusterForwardingFilter.class);
+
+    private static final String METRICS_PATH = "/api/metrics/";
+    private static final String STREAM_PATH = METRICS_PATH + "stream/";
+
+    @Autowired
+    private ClusterMembership membership;
+
+    @Autowired
+    private ClusterClient client;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        if (!membership.isActive() || !pathOf(request).startsWith(METRICS_PATH)) {
+            return true;
+        }
+        return request.getHeader(ClusterClient.FORWARDED_HEADER) != null
+                && client.acceptsSecret(request.getHeader(ClusterClient.SECRET_HEADER));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String path = pathOf(request);
+        byte[] body = null;
+        String deviceId = null;
+        if ("GET".equals(request.getMethod())) {
+            deviceId = deviceIdInPath(path);
+        } else if ("POST".equals(request.getMethod())) {
+            body = request.getInputStream().readAllBytes();
+            deviceId = deviceIdInBody(path, body);
+            request = new CachedBodyRequest(request, body);
+        }
+        if (deviceId == null || membership.isLocal(deviceId)) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        String owner = membership.ownerOf(deviceId);
+        String target = path + (request.getQueryString() != null ? "?" + request.getQueryString() : "");
+        if (path.startsWith(STREAM_PATH)) {
+            logger.debug("Redirecting stream of deviceId={} to {}", deviceId, owner);
+            response.setStatus(HttpStatus.TEMPORARY_REDIRECT.value());
+            response.setHeader(HttpHeaders.LOCATION, owner + request.getContextPath() + target);
+            return;
+        }
+
+        logger.debug("Forwarding {} {} for deviceId={} to {}", request.getMethod(), path, deviceId, owner);
+        HttpResponse<byte[]> forwarded;
+        try {
+            forwarded = client.forward(owner, membership.self(), request.getMethod(),
+                    request.getContextPath() + target, headersOf(request), body);
+        } catch (IOException e) {
+            logger.warn("Owner {} of deviceId={} unreachable: {}", owner, deviceId, e.getMessage());
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+            response.getWriter().write(AppConstants.DEVICE_OWNER_UNAVAILABLE);
+            return;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            return;
+        }
+        response.setStatus(forwarded.statusCode());
+        // the owner's headers replace any this node's filters already set, e.g. the security headers
+        forwarded.headers().map().forEach((name, values) -> {
+            if (!ClusterClient.isHopByHop(name) && !name.startsWith(":") && !values.isEmpty()) {
+                response.setHeader(name, values.get(0));
+                values.subList(1, values.size()).forEach(value -> response.addHeader(name, value));
+            }
+        });
+        response.getOutputStream().write(forwarded.body());
+    }
+
+    private static String pathOf(HttpServletRequest request) {
+        return request.getRequestURI().substring(request.getContextPath().length());
+    }
+
+    // GET /api/metrics/{type}/{userId}/{deviceId}[/range]
+    private static String deviceIdInPath(String path) {
+        String[] segments = path.substring(METRICS_PATH.length()).split("/");
+        return segments.length >= 3 ? UriUtils.decode(segments[2], StandardCharsets.UTF_8) : null;
+    }
+
+    // the batch names the device at the top level, single-type writes in "device", process lists in each entry
+    private String deviceIdInBody(String path, byte[] body) {
+        String endpoint = path.substring(METRICS_PATH.length());
+        if (endpoint.equals("device-specifications")) {
+            return null;
+        }
+        try {
+            JsonNode json = objectMapper.readTree(body);
+            if (json == null) {
+                return null;
+            }
+            JsonNode deviceId = switch (endpoint) {
+                case "batch" -> json.path("deviceId");
+                case "process-status" -> json.path(0).path("device").path("deviceId");
+                default -> json.path("device").path("deviceId");
+            };
+            return deviceId.isTextual() ? deviceId.asText() : null;
+        } catch (IOException e) {
+            return null; // let the endpoint reject the body
+        }
+    }
+
+    private static Map<String, List<String>> headersOf(HttpServletRequest request) {
+        Map<String, List<String>> headers = new LinkedHashMap<>();
+        for (String name : Collections.list(request.getHeaderNames())) {
+            headers.put(name, Collections.list(request.getHeaders(name)));
+        }
+        return headers;
+    }
+
+    /** Serves a body that was already read, so the local endpoint can read it again. */
+    private static final class CachedBodyRequest extends HttpServletRequestWrapper {
+
+        private final byte[] body;
+
+        CachedBodyRequest(HttpServletRequest request, byte[] body) {
+            super(request);
+            this.body = body;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream in = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+                @Override
+                public int read() {
+                    return in.read();
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) {
+                    return in.read(b, off, len);
+                }
+
+                @Override
+                public boolean isFinished() {
+                    return in.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                // the whole body is in memory, so it is readable at once and to the end
+                @Override
+                public void setReadListener(ReadListener listener) {
+                    try {
+                        if (!isFinished()) {
+                            listener.onDataAvailable();
+                        }
+                        listener.onAllDataRead();
+                    } catch (IOException e) {
+                        listener.onError(e);
+                    }
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            String encoding = getCharacterEncoding();
+            return new BufferedReader(new InputStreamReader(getInputStream(),
+                    encoding != null ? Charset.forName(encoding) : StandardCharsets.UTF_8));
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package com.project.spar.cluster;
+
+import com.project.spar.event.ClusterTopologyChangedEvent;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.context.WebServerInitializedEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * This node's view of the cluster ({@code cluster.enabled}) and the
+ * consistent-hash ring of device ownership derived from it.
+ * <p>
+ * A node starts from the seed URLs in {@code cluster.nodes} and heartbeats
+ * every peer it knows. A peer is live while its last answered heartbeat is
+ * within {@code cluster.failureTimeoutMs}. Nodes are learned from the member
+ * lists peers return and from incoming heartbeats, so a new instance only
+ * needs one seed to join. Liveness only ever comes from direct contact,
+ * which lets every node settle on the same member list and so the same ring.
+ * <p>
+ * The ring is rebuilt when the live set changes, and a
+ * {@link ClusterTopologyChangedEvent} tells the in-memory stores to let go
+ * of devices that moved. Until the web server is up, and always when
+ * clustering is off, the node owns every device.
+ */
+@Component
+public class ClusterMembership {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClusterMembership.class);
+
+    /** {@code since}: when the peer was first learned; {@code lastSeen}: last answered heartbeat, 0 if none. */
+    private record Peer(boolean seed, long since, long lastSeen) {}
+
+    @Value("${cluster.enabled:false}") private boolean enabled;
+    @Value("${cluster.nodes:}") private String nodes;
+    @Value("${cluster.self:}") private String configuredSelf;
+    @Value("${cluster.advertiseHost:localhost}") private String advertiseHost;
+    @Value("${cluster.virtualNodes:128}") private int virtualNodes;
+    @Value("${cluster.failureTimeoutMs:5000}") private long failureTimeoutMs;
+
+    @Autowired
+    private ClusterClient client;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    private final ConcurrentHashMap<String, Peer> peers = new ConcurrentHashMap<>();
+    private final ReentrantLock ringLock = new ReentrantLock();
+    private volatile String self;
+    private volatile ConsistentHashRing ring;
+
+    @PostConstruct
+    void checkConfig() {
+        // the internal endpoints are open to Spring Security; the secret is all that keeps strangers off the ring
+        if (enabled && !client.hasSecret()) {
+            throw new IllegalStateException("cluster.enabled requires a non-blank cluster.secret");
+        }
+    }
+
+    @EventListener
+    public void onWebServerInitialized(WebServerInitializedEvent event) {
+        if (!enabled || self != null) {
+            return;
+        }
+        self = configuredSelf.isBlank()
+                ? "http://" + advertiseHost + ":" + event.getWebServer().getPort()
+                : normalize(configuredSelf);
+        long now = System.currentTimeMillis();
+        Arrays.stream(nodes.split(","))
+                .map(ClusterMembership::normalize)
+                .filter(node -> !node.isEmpty() && !node.equals(self))
+                .forEach(node -> peers.put(node, new Peer(true, now, 0)));
+        logger.info("Cluster node {} starting with seeds {}", self, peers.keySet());
+        rebuild();
+    }
+
+    /** Whether this node takes part in a cluster, i.e. clustering is on and the web server is up. */
+    public boolean isActive() {
+        return self != null;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public String self() {
+        return self;
+    }
+
+    public List<String> members() {
+        ConsistentHashRing current = ring;
+        return current == null ? List.of() : current.members();
+    }
+
+    /** URL of the node owning {@code deviceId}; this node's own while not clustered. */
+    public String ownerOf(String deviceId) {
+        ConsistentHashRing current = ring;
+        return current == null ? self : current.ownerOf(deviceId);
+    }
+
+    public boolean isLocal(String deviceId) {
+        ConsistentHashRing current = ring;
+        return current == null || current.ownerOf(deviceId).equals(self);
+    }
+
+    @Scheduled(fixedDelayString = "${cluster.heartbeatMs:1000}")
+    public void heartbeat() {
+        if (self == null) {
+            return;
+        }
+        for (String peer : List.copyOf(peers.keySet())) {
+            try {
+                List<String> seen = client.ping(peer, self);
+                peers.computeIfPresent(peer, (k, p) -> new Peer(p.seed(), p.since(), System.currentTimeMillis()));
+                seen.forEach(this::learn);
+            } catch (IOException e) {
+                logger.debug("Heartbeat to {} failed: {}", peer, e.getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        rebuild();
+    }
+
+    /** An incoming heartbeat: the caller is live as of now. Returns the members this node sees. */
+    public List<String> onPing(String node) {
+        if (self != null && node != null && !normalize(node).equals(self)) {
+            long now = System.currentTimeMillis();
+            peers.merge(normalize(node), new Peer(false, now, now),
+                    (known, fresh) -> new Peer(known.seed(), known.since(), now));
+            rebuild();
+        }
+        return members();
+    }
+
+    /** A peer announced it is shutting down; seeds stay known and are retried. */
+    public void onLeave(String node) {
+        if (self == null || node == null) {
+            return;
+        }
+        peers.computeIfPresent(normalize(node), (k, p) -> p.seed() ? new Peer(true, p.since(), 0) : null);
+        logger.info("Cluster node {} left", node);
+        rebuild();
+    }
+
+    @PreDestroy
+    void leave() {
+        String me = self;
+        if (me == null) {
+            return;
+        }
+        self = null;
+        for (String peer : members()) {
+            if (peer.equals(me)) {
+                continue;
+            }
+            try {
+                client.leave(peer, me);
+            } catch (IOException e) {
+                logger.debug("Could not tell {} about leaving: {}", peer, e.getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void learn(String node) {
+        String url = normalize(node);
+        if (!url.isEmpty() && !url.equals(self)) {
+            peers.putIfAbsent(url, new Peer(false, System.currentTimeMillis(), 0));
+        }
+    }
+
+    private void rebuild() {
+        long now = System.currentTimeMillis();
+        // a learned node that has not answered for a while is forgotten; seeds are kept
+        peers.entrySet().removeIf(e -> !e.getValue().seed()
+                && now - Math.max(e.getValue().since(), e.getValue().lastSeen()) > 10 * failureTimeoutMs);
+
+        String me = self;
+        if (me == null) {
+            return;
+        }
+        List<String> live = new ArrayList<>();
+        live.add(me);
+        peers.forEach((node, p) -> {
+            if (p.lastSeen() > 0 && now - p.lastSeen() <= failureTimeoutMs) {
+                live.add(node);
+            }
+        });
+
+        ConsistentHashRing changed;
+        ringLock.lock();
+        try {
+            if (ring != null && ring.members().equals(live.stream().sorted().toList())) {
+                return;
+            }
+            changed = new ConsistentHashRing(live, virtualNodes);
+            ring = changed;
+        } finally {
+            ringLock.unlock();
+        }
+        logger.info("Cluster ring of {} is now {}", me, changed.members());
+        eventPublisher.publishEvent(new ClusterTopologyChangedEvent(changed.members()));
+    }
+
+    private static String normalize(String url) {
+        String trimmed = url.trim();
+        return trimmed.endsWith("/") ? trimmed.substring(0, trimmed.length() - 1) : trimmed;
+    }
+}
@@ -0,0 +1,67 @@
+package com.project.spar.cluster;
+
+import com.project.spar.cache.DeviceRegistry;
+import com.project.spar.cache.LatestMetricsCache;
+import com.project.spar.cache.ResourceVersions;
+import com.project.spar.event.ClusterTopologyChangedEvent;
+import com.project.spar.stream.MetricsStreamHub;
+import com.project.spar.timeseries.SeriesStore;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.function.Predicate;
+
+/**
+ * Lets go of in-memory state for devices that moved to another node. The
+ * database stays the source of truth, so nothing is handed over: a device
+ * gained by this node is loaded on its first read or write, and a device
+ * lost and later regained starts from the database again rather than from
+ * a copy that missed the writes made elsewhere meanwhile.
+ */
+@Component
+public class ClusterRebalancer {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClusterRebalancer.class);
+
+    @Autowired
+    private ClusterMembership membership;
+
+    @Autowired
+    private LatestMetricsCache latestMetricsCache;
+
+    @Autowired
+    private DeviceRegistry deviceRegistry;
+
+    @Autowired
+    private SeriesStore seriesStore;
+
+    @Autowired
+    private MetricsStreamHub metricsStreamHub;
+
+    @Autowired
+    private ResourceVersions resourceVersions;
+
+    @PostConstruct
+    void init() {
+        if (membership.isEnabled()) {
+            // reads of devices owned elsewhere (user-level snapshots) must not fill the cache
+            latestMetricsCache.restrictTo(membership::isLocal);
+        }
+    }
+
+    @EventListener
+    public void onTopologyChanged(ClusterTopologyChangedEvent event) {
+        Predicate<String> moved = deviceId -> !membership.isLocal(deviceId);
+        int cached = latestMetricsCache.evictWhere(moved);
+        deviceRegistry.deviceSpecIds(moved).forEach(seriesStore::evictDevice);
+        int streams = metricsStreamHub.closeWhere(moved);
+        // versions of moved devices may have advanced on another node
+        resourceVersions.touchAll();
+        logger.info("Rebalanced for ring {}: dropped {} cached devices, closed {} streams",
+                event.members(), cached, streams);
+    }
+}
@@ -0,0 +1,54 @@
+package com.project.spar.cluster;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Immutable consistent-hash ring of node URLs. Every node is placed at
+ * {@code virtualNodes} points and a device belongs to the first point at or
+ * after its own hash, so a node joining or leaving only moves the devices
+ * next to its points (about {@code 1/n} of them) and every node computes the
+ * same owner from the same member list.
+ */
+public final class ConsistentHashRing {
+
+    private final List<String> members;
+    private final TreeMap<Long, String> points = new TreeMap<>();
+
+    public ConsistentHashRing(List<String> members, int virtualNodes) {
+        if (members.isEmpty()) {
+            throw new IllegalArgumentException("a ring needs at least one member");
+        }
+        this.members = members.stream().sorted().toList();
+        for (String member : this.members) {
+            for (int i = 0; i < virtualNodes; i++) {
+                points.put(hash(member + '#' + i), member);
+            }
+        }
+    }
+
+    public List<String> members() {
+        return members;
+    }
+
+    public String ownerOf(String deviceId) {
+        Map.Entry<Long, String> point = points.ceilingEntry(hash(deviceId));
+        return point != null ? point.getValue() : points.firstEntry().getValue();
+    }
+
+    // 64-bit FNV-1a with a final avalanche step, so similar keys spread over the ring
+    static long hash(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b;
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        return h ^ (h >>> 33);
+    }
+}
@@ -0,0 +1,68 @@
+package com.project.spar.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates SPAR's own background threads, following the same switch Spring Boot
+ * uses for Tomcat and the task executors: with {@code spring.threads.virtual.enabled}
+ * on a Java 21+ runtime they are virtual, otherwise named daemon platform threads.
+ * Compiled against Java 17, so the virtual side only goes through Spring's
+ * {@link VirtualThreadTaskExecutor}.
+ */
+@Component
+public class SparThreads {
+
+    private static final Logger logger = LoggerFactory.getLogger(SparThreads.class);
+
+    private final boolean virtual;
+
+    public SparThreads(Environment environment) {
+        this.virtual = Threading.VIRTUAL.isActive(environment);
+        logger.info("Background threads are {}", virtual ? "virtual" : "platform");
+    }
+
+    public boolean isVirtual() {
+        return virtual;
+    }
+
+    /** Factory for threads named {@code prefix0}, {@code prefix1}, ... */
+    public ThreadFactory threadFactory(String prefix) {
+        if (virtual) {
+            return new VirtualThreadTaskExecutor(prefix).getVirtualThreadFactory();
+        }
+        AtomicInteger threadNo = new AtomicInteger();
+        return r -> {
+            Thread thread = new Thread(r, prefix + threadNo.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Executor for short tasks: a new virtual thread per task, or a fixed pool of
+     * {@code platformThreads} otherwise. Callers stop it with {@link #shutdown}.
+     */
+    public Executor executor(String prefix, int platformThreads) {
+        if (virtual) {
+            return new VirtualThreadTaskExecutor(prefix);
+        }
+        return Executors.newFixedThreadPool(platformThreads, threadFactory(prefix));
+    }
+
+    public static void shutdown(Executor executor) {
+        if (executor instanceof ExecutorService pool) {
+            pool.shutdownNow();
+        }
+    }
+}
@@ -11,8 +11,18 @@ public final class AppConstants {
     public static final int MAX_RETRIES = 3;
 
     public static final int MAX_PROCESSES = 300;
+    public static final int MAX_CORES = 512;
+    public static final float HOT_CORE_THRESHOLD = 90f;
+    public static final String TOO_MANY_CORES = "Too many CPU cores: ";
+    public static final String INVALID_PER_CORE_USAGE = "perCoreUsageJson must be a JSON array";
     public static final String METRIC_SUCCESS = "Metrics saved successfully";
     public static final String METRIC_FAILURE = "Metrics save failed";
+    public static final String METRIC_ACCEPTED = "Metrics accepted";
+    public static final String INGEST_QUEUE_FULL = "Ingest queue full, retry later";
+    public static final int MAX_TEXT_LENGTH = 255;
+    public static final String MISSING_BATCH_DEVICE = "Batch must name a userId and a deviceId";
+    public static final String NULL_BATCH_ENTRY = "Batch lists must not contain null entries";
+    public static final String TEXT_TOO_LONG = "Text longer than " + MAX_TEXT_LENGTH + " characters: ";
     public static final String USER_NOT_FOUND = "User not found";
     public static final String UNKNOWN_USER_ID = "Unknown userId";
     public static final String NOT_REGISTERED_FOR_USER = "not registered for user";
@@ -20,6 +30,16 @@ public final class AppConstants {
     public static final String USER_REGISTERED_SUCCESSFULLY= "User registered successfully!";
     public static final String DEVICE = "Device";
     public static final String DEVICE_NOT_REGISTERED = "Device not registered";
+    public static final String UNKNOWN_SNAPSHOT_FIELD = "Unknown snapshot field: ";
+    public static final String SINGLE_DEVICE_SNAPSHOT_REQUIRED = "Process list must belong to a single device";
+    public static final String PROCESS_SNAPSHOT_REQUIRED = "Process list must not be empty and must name its user and device";
+    public static final String UNKNOWN_RANGE_TYPE = "Unknown metric type: ";
+    public static final String INVALID_RANGE = "Range must have from < to";
+    public static final String RANGE_UNAVAILABLE = "Metric ranges need history.enabled or series.enabled";
+    public static final int DEFAULT_RANGE_POINTS = 500;
+    public static final int MAX_RANGE_POINTS = 5000;
+    public static final String TOO_MANY_STREAMS = "Too many open metric streams, retry later";
+    public static final String DEVICE_OWNER_UNAVAILABLE = "Node owning this device is unavailable, retry later";
     public static final String ERROR_UNAUTHORIZED= "Error: Unauthorized";
     public static final String ERROR_USERNAME_ALREADY_TAKEN = "Error: Username is already taken!";
     public static final String ERROR_EMAIL_ALREADY_USED = "Error: Email is already in use!";
@@ -20,6 +20,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.*;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.bind.annotation.*;
 import com.project.spar.service.TokenService;
@@ -82,7 +83,10 @@ public class AuthController {
             );
 
             UserDetailsImpl userDetails = (UserDetailsImpl) auth.getPrincipal();
-            String token = tokenService.createTokenForUser(userDetails.getUsername());
+            String token = tokenService.createTokenForUser(
+                    userDetails.getId(),
+                    userDetails.getUsername(),
+                    userDetails.getAuthorities().stream().map(GrantedAuthority::getAuthority).toList());
 
             logger.info("User '{}' signed in successfully", req.getUsername());
             return ResponseEntity.ok(new JwtResponse(token, userDetails.getId()));
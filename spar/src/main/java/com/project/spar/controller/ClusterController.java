@@ -0,0 +1,55 @@
+package com.project.spar.controller;
+
+import com.project.spar.cluster.ClusterClient;
+import com.project.spar.cluster.ClusterMembership;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+
+/**
+ * Node-to-node endpoints of cluster mode; see {@link ClusterClient}. They are
+ * open to Spring Security and guarded by {@code cluster.secret} instead, and
+ * answer 404 on a node that is not clustered.
+ */
+@RestController
+@RequestMapping("/internal/cluster")
+public class ClusterController {
+
+    @Autowired
+    private ClusterMembership membership;
+
+    @Autowired
+    private ClusterClient client;
+
+    @GetMapping("/ping")
+    public ResponseEntity<List<String>> ping(
+            @RequestHeader(value = ClusterClient.NODE_HEADER, required = false) String node,
+            @RequestHeader(value = ClusterClient.SECRET_HEADER, required = false) String secret
+    ) {
+        checkCaller(secret);
+        return ResponseEntity.ok(membership.onPing(node));
+    }
+
+    @PostMapping("/leave")
+    public ResponseEntity<Void> leave(
+            @RequestHeader(value = ClusterClient.NODE_HEADER, required = false) String node,
+            @RequestHeader(value = ClusterClient.SECRET_HEADER, required = false) String secret
+    ) {
+        checkCaller(secret);
+        membership.onLeave(node);
+        return ResponseEntity.noContent().build();
+    }
+
+    private void checkCaller(String secret) {
+        if (!membership.isActive()) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND);
+        }
+        if (!client.acceptsSecret(secret)) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN);
+        }
+    }
+}
@@ -2,8 +2,10 @@ package com.project.spar.controller;
 
 import com.project.spar.dto.MetricsBatchDTO;
 import com.project.spar.service.MetricsBatchService;
+import com.project.spar.service.MetricsIngestPipeline;
 import com.project.spar.constants.AppConstants;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -20,13 +22,29 @@ public class MetricsBatchController {
     @Autowired
     private MetricsBatchService metricsBatchService;
 
+    @Autowired
+    private MetricsIngestPipeline ingestPipeline;
+
     @PostMapping("/batch")
     public ResponseEntity<String> publishBatch(@RequestBody MetricsBatchDTO batch) {
         logger.info("publishBatch requested");
         try {
+            if (ingestPipeline.isAsync()) {
+                if (!ingestPipeline.submit(batch)) {
+                    return ResponseEntity
+                            .status(HttpStatus.SERVICE_UNAVAILABLE)
+                            .header(HttpHeaders.RETRY_AFTER, "1")
+                            .body(AppConstants.INGEST_QUEUE_FULL);
+                }
+                logger.info("publishBatch queued");
+                return ResponseEntity.accepted().body(AppConstants.METRIC_ACCEPTED);  // HTTP 202
+            }
             String output = metricsBatchService.addMetrics(batch);
             logger.info("publishBatch successful");
             return ResponseEntity.accepted().body(output);  // HTTP 202
+        } catch (IllegalArgumentException e) {
+            logger.warn("publishBatch rejected: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(e.getMessage());
         } catch (Exception e) {
             logger.error("Error during publishBatch", e);
             return ResponseEntity
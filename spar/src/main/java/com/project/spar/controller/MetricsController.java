@@ -1,20 +1,33 @@
 package com.project.spar.controller;
 
+import com.project.spar.cache.DeviceMetrics;
+import com.project.spar.cache.DeviceRegistry;
+import com.project.spar.cache.LatestMetricsCache;
+import com.project.spar.cache.ResourceVersions;
 import com.project.spar.constants.AppConstants;
 import com.project.spar.dto.*;
 import com.project.spar.model.*;
 import com.project.spar.repository.DeviceSpecificationRepository;
 import com.project.spar.repository.UserRepository;
+import com.project.spar.service.DeviceSnapshotService;
+import com.project.spar.service.DeviceWriteLocks;
+import com.project.spar.service.MetricRangeService;
 import com.project.spar.service.MetricsService;
+import com.project.spar.shard.ShardRouter;
+import com.project.spar.stream.MetricsStreamService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.List;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @RestController
@@ -30,6 +43,22 @@ public class MetricsController {
     private UserRepository userRepo;
     @Autowired
     private DeviceSpecificationRepository deviceRepo;
+    @Autowired
+    private LatestMetricsCache latestMetricsCache;
+    @Autowired
+    private DeviceSnapshotService deviceSnapshotService;
+    @Autowired
+    private DeviceRegistry deviceRegistry;
+    @Autowired
+    private MetricRangeService metricRangeService;
+    @Autowired
+    private MetricsStreamService metricsStreamService;
+    @Autowired
+    private ResourceVersions resourceVersions;
+    @Autowired
+    private DeviceWriteLocks deviceWriteLocks;
+    @Autowired
+    private ShardRouter shardRouter;
 
     /**
      * Register a new device for a user.
@@ -57,31 +86,57 @@ public class MetricsController {
 
     /**
      * Helper to attach User and DeviceSpecification entities based on IDs in the payload.
+     * Registered devices come back as an uninitialized reference without a query.
      */
     private DeviceSpecification lookupDevice(Long userId, String deviceId) {
         logger.debug("lookupDevice called for userId={} deviceId={}", userId, deviceId);
+        var known = deviceRegistry.find(userId, deviceId);
+        if (known.isPresent()) {
+            return deviceRepo.getReferenceById(known.get());
+        }
         var user = userRepo.findById(userId)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, AppConstants.USER_NOT_FOUND));
-        return deviceRepo.findByUserAndDeviceId(user, deviceId)
+        var device = deviceRepo.findByUserAndDeviceId(user, deviceId)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.BAD_REQUEST, AppConstants.DEVICE_NOT_REGISTERED));
+        deviceRegistry.register(device);
+        return device;
+    }
+
+    /**
+     * Answers a conditional GET from the in-memory version of the device and
+     * sets {@code ETag} on the response. The validator is
+     * read before any data, so a concurrent write can only make it older than
+     * the body it goes out with. Ownership comes from the device registry; on
+     * a miss the device is looked up (and registered) first.
+     */
+    private boolean notModified(WebRequest request, Long userId, String deviceId) {
+        String etag = resourceVersions.device(deviceId);
+        if (deviceRegistry.find(userId, deviceId).isEmpty()) {
+            lookupDevice(userId, deviceId);
+        }
+        return request.checkNotModified(etag);
     }
 
     @PostMapping("/cpu-usage")
     public ResponseEntity<?> addCpuUsage(@RequestBody CpuUsage cu) {
         logger.info("addCpuUsage called for userId={}", cu.getUser() != null ? cu.getUser().getId() : null);
         try {
-            cu.setUser(userRepo.getReferenceById(cu.getUser().getId()));
-            cu.setDevice(lookupDevice(cu.getUser().getId(), cu.getDevice().getDeviceId()));
-            var saved = metricsService.saveCpuUsage(cu);
-            logger.info("addCpuUsage successful for id={}", saved.getId());
+            String deviceId = cu.getDevice().getDeviceId();
+            Long userId = cu.getUser().getId();
+            cu.setDevice(lookupDevice(userId, deviceId));
+            var saved = deviceWriteLocks.withLock(cu.getDevice().getId(),
+                    () -> shardRouter.onShard(deviceId, () -> metricsService.saveCpuUsage(cu)));
+            logger.info("addCpuUsage successful for deviceId={}", deviceId);
             var dto = new CpuUsageDTO(
                     saved.getId(),
                     saved.getTotalCpuLoad(),
-                    saved.getPerCoreUsageJson(),
-                    saved.getUser().getId(),
-                    saved.getDevice().getDeviceId(),
+                    saved.getPerCoreUsage(),
+                    userId,
+                    deviceId,
                     saved.getTimestamp()
             );
+            latestMetricsCache.update(dto.getUserId(), dto.getDeviceId(), m -> m.withCpuUsage(dto));
+            resourceVersions.touchDevice(deviceId);
             return ResponseEntity.ok(dto);
         } catch (ResponseStatusException e) {
             throw e;
@@ -95,19 +150,23 @@ public class MetricsController {
     public ResponseEntity<?> addRamUsage(@RequestBody RamUsage ru) {
         logger.info("addRamUsage called for userId={}", ru.getUser() != null ? ru.getUser().getId() : null);
         try {
-            ru.setUser(userRepo.getReferenceById(ru.getUser().getId()));
-            ru.setDevice(lookupDevice(ru.getUser().getId(), ru.getDevice().getDeviceId()));
-            var saved = metricsService.saveRamUsage(ru);
-            logger.info("addRamUsage successful for id={}", saved.getId());
+            String deviceId = ru.getDevice().getDeviceId();
+            Long userId = ru.getUser().getId();
+            ru.setDevice(lookupDevice(userId, deviceId));
+            var saved = deviceWriteLocks.withLock(ru.getDevice().getId(),
+                    () -> shardRouter.onShard(deviceId, () -> metricsService.saveRamUsage(ru)));
+            logger.info("addRamUsage successful for deviceId={}", deviceId);
             var dto = new RamUsageDTO(
                     saved.getId(),
                     saved.getTotalMemory(),
                     saved.getUsedMemory(),
                     saved.getAvailableMemory(),
-                    saved.getUser().getId(),
-                    saved.getDevice().getDeviceId(),
+                    userId,
+                    deviceId,
                     saved.getTimestamp()
             );
+            latestMetricsCache.update(dto.getUserId(), dto.getDeviceId(), m -> m.withRamUsage(dto));
+            resourceVersions.touchDevice(deviceId);
             return ResponseEntity.ok(dto);
         } catch (ResponseStatusException e) {
             throw e;
@@ -121,18 +180,22 @@ public class MetricsController {
     public ResponseEntity<?> addDiskIO(@RequestBody DiskIO dio) {
         logger.info("addDiskIO called for userId={}", dio.getUser() != null ? dio.getUser().getId() : null);
         try {
-            dio.setUser(userRepo.getReferenceById(dio.getUser().getId()));
-            dio.setDevice(lookupDevice(dio.getUser().getId(), dio.getDevice().getDeviceId()));
-            var saved = metricsService.saveDiskIO(dio);
-            logger.info("addDiskIO successful for id={}", saved.getId());
+            String deviceId = dio.getDevice().getDeviceId();
+            Long userId = dio.getUser().getId();
+            dio.setDevice(lookupDevice(userId, deviceId));
+            var saved = deviceWriteLocks.withLock(dio.getDevice().getId(),
+                    () -> shardRouter.onShard(deviceId, () -> metricsService.saveDiskIO(dio)));
+            logger.info("addDiskIO successful for deviceId={}", deviceId);
             var dto = new DiskIODTO(
                     saved.getId(),
                     saved.getReadSpeedMBps(),
                     saved.getWriteSpeedMBps(),
-                    saved.getUser().getId(),
-                    saved.getDevice().getDeviceId(),
+                    userId,
+                    deviceId,
                     saved.getTimestamp()
             );
+            latestMetricsCache.update(dto.getUserId(), dto.getDeviceId(), m -> m.withDiskIO(dto));
+            resourceVersions.touchDevice(deviceId);
             return ResponseEntity.ok(dto);
         } catch (ResponseStatusException e) {
             throw e;
@@ -146,18 +209,23 @@ public class MetricsController {
     public ResponseEntity<?> addDiskUsage(@RequestBody DiskUsage du) {
         logger.info("addDiskUsage called for userId={}", du.getUser() != null ? du.getUser().getId() : null);
         try {
-            du.setUser(userRepo.getReferenceById(du.getUser().getId()));
-            du.setDevice(lookupDevice(du.getUser().getId(), du.getDevice().getDeviceId()));
-            var saved = metricsService.saveDiskUsage(du);
+            String deviceId = du.getDevice().getDeviceId();
+            Long userId = du.getUser().getId();
+            du.setDevice(lookupDevice(userId, deviceId));
+            var saved = deviceWriteLocks.withLock(du.getDevice().getId(),
+                    () -> shardRouter.onShard(deviceId, () -> metricsService.saveDiskUsage(du)));
             logger.info("addDiskUsage successful for id={}", saved.getId());
+            latestMetricsCache.update(userId, deviceId,
+                    m -> m.withDiskUsage(null));
+            resourceVersions.touchDevice(deviceId);
             var dto = new DiskUsageDTO(
                     saved.getId(),
                     saved.getFilesystem(),
                     saved.getSizeGB(),
                     saved.getUsedGB(),
                     saved.getAvailableGB(),
-                    saved.getUser().getId(),
-                    saved.getDevice().getDeviceId(),
+                    userId,
+                    deviceId,
                     saved.getTimestamp()
             );
             return ResponseEntity.ok(dto);
@@ -174,26 +242,47 @@ public class MetricsController {
     @PostMapping("/process-status")
     public ResponseEntity<?> addProcessStatus(
             @RequestBody List<ProcessStatus> psList) {
-        logger.info("addProcessStatus called for userId={} count={}",
-                psList.isEmpty() ? null : psList.get(0).getUser().getId(), psList.size());
+        logger.info("addProcessStatus called for count={}", psList.size());
+        // the owner is read from the first entry, so it has to be there in full
+        boolean owned = !psList.isEmpty() && psList.stream().allMatch(ps ->
+                ps != null && ps.getUser() != null && ps.getUser().getId() != null
+                        && ps.getDevice() != null && ps.getDevice().getDeviceId() != null);
+        if (!owned) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, AppConstants.PROCESS_SNAPSHOT_REQUIRED);
+        }
         try {
-            var dtos = psList.stream()
-                    .map(ps -> {
-                        ps.setUser(userRepo.getReferenceById(ps.getUser().getId()));
-                        ps.setDevice(lookupDevice(ps.getUser().getId(), ps.getDevice().getDeviceId()));
-                        var saved = metricsService.saveProcessStatus(ps);
-                        return new ProcessStatusDTO(
-                                saved.getId(),
-                                saved.getPid(),
-                                saved.getName(),
-                                saved.getCpuUsage(),
-                                saved.getMemoryMB(),
-                                saved.getUser().getId(),
-                                saved.getDevice().getDeviceId(),
-                                saved.getTimestamp()
-                        );
-                    })
+            // the list is one snapshot of one device: resolve it once
+            Long userId = psList.get(0).getUser().getId();
+            String deviceId = psList.get(0).getDevice().getDeviceId();
+            logger.info("addProcessStatus for userId={} deviceId={}", userId, deviceId);
+            boolean singleDevice = psList.stream().allMatch(ps ->
+                    userId.equals(ps.getUser().getId()) && deviceId.equals(ps.getDevice().getDeviceId()));
+            if (!singleDevice) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, AppConstants.SINGLE_DEVICE_SNAPSHOT_REQUIRED);
+            }
+            var device = lookupDevice(userId, deviceId);
+
+            var snapshot = psList.stream()
+                    .map(ps -> new ProcessStatusDTO(null, ps.getPid(), ps.getName(), ps.getCpuUsage(),
+                            ps.getMemoryMB(), userId, deviceId, null))
                     .collect(Collectors.toList());
+            deviceWriteLocks.withLock(device.getId(), () -> shardRouter.onShard(deviceId,
+                    () -> metricsService.replaceProcessSnapshot(userId, device.getId(), snapshot)));
+
+            var dtos = shardRouter.onShard(deviceId, () -> metricsService.getProcessStatuses(device)).stream()
+                    .map(saved -> new ProcessStatusDTO(
+                            saved.getId(),
+                            saved.getPid(),
+                            saved.getName(),
+                            saved.getCpuUsage(),
+                            saved.getMemoryMB(),
+                            userId,
+                            deviceId,
+                            saved.getTimestamp()
+                    ))
+                    .collect(Collectors.toList());
+            latestMetricsCache.update(userId, deviceId, m -> m.withProcessStatuses(dtos));
+            resourceVersions.touchDevice(deviceId);
             logger.info("addProcessStatus successful for count={}", dtos.size());
             return ResponseEntity.ok(dtos);
         } catch (ResponseStatusException e) {
@@ -208,20 +297,24 @@ public class MetricsController {
     public ResponseEntity<?> addBatteryInfo(@RequestBody BatteryInfo bi) {
         logger.info("addBatteryInfo called for userId={}", bi.getUser() != null ? bi.getUser().getId() : null);
         try {
-            bi.setUser(userRepo.getReferenceById(bi.getUser().getId()));
-            bi.setDevice(lookupDevice(bi.getUser().getId(), bi.getDevice().getDeviceId()));
-            var saved = metricsService.saveBatteryInfo(bi);
-            logger.info("addBatteryInfo successful for id={}", saved.getId());
+            String deviceId = bi.getDevice().getDeviceId();
+            Long userId = bi.getUser().getId();
+            bi.setDevice(lookupDevice(userId, deviceId));
+            var saved = deviceWriteLocks.withLock(bi.getDevice().getId(),
+                    () -> shardRouter.onShard(deviceId, () -> metricsService.saveBatteryInfo(bi)));
+            logger.info("addBatteryInfo successful for deviceId={}", deviceId);
             var dto = new BatteryInfoDTO(
                     saved.getId(),
                     saved.isHasBattery(),
                     saved.getBatteryPercentage(),
                     saved.isCharging(),
                     saved.getPowerConsumption(),
-                    saved.getUser().getId(),
-                    saved.getDevice().getDeviceId(),
+                    userId,
+                    deviceId,
                     saved.getTimestamp()
             );
+            latestMetricsCache.update(dto.getUserId(), dto.getDeviceId(), m -> m.withBatteryInfo(dto));
+            resourceVersions.touchDevice(deviceId);
             return ResponseEntity.ok(dto);
         } catch (ResponseStatusException e) {
             throw e;
@@ -232,16 +325,26 @@ public class MetricsController {
     }
 
     // ───── GET ENDPOINTS ───────────────────────────
+    // Served from the latest-metrics cache; the database (the device's shard) is only read on a miss.
+    // Conditional requests for unchanged data get a 304 before either is consulted.
 
     @GetMapping("/battery-info/{userId}/{deviceId}")
     public ResponseEntity<BatteryInfoDTO> getLatestBatteryInfo(@PathVariable Long userId,
-                                                               @PathVariable String deviceId) {
+                                                               @PathVariable String deviceId,
+                                                               WebRequest request) {
         logger.info("getLatestBatteryInfo called for userId={} deviceId={}", userId, deviceId);
-        var user = userRepo.getReferenceById(userId);
+        if (notModified(request, userId, deviceId)) {
+            return null;
+        }
+        var cached = latestMetricsCache.get(userId, deviceId).map(DeviceMetrics::getBatteryInfo);
+        if (cached.isPresent()) {
+            return ResponseEntity.ok(cached.get());
+        }
         var device = lookupDevice(userId, deviceId);
-        var bi = metricsService.getLatestBatteryInfo(user, device)
+        long readStarted = latestMetricsCache.readStarted();
+        var bi = shardRouter.onShard(deviceId, () -> metricsService.getLatestBatteryInfo(device))
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, AppConstants.ERROR_NOT_FOUND));
-        return ResponseEntity.ok(new BatteryInfoDTO(
+        var dto = new BatteryInfoDTO(
                 bi.getId(),
                 bi.isHasBattery(),
                 bi.getBatteryPercentage(),
@@ -250,36 +353,58 @@ public class MetricsController {
                 userId,
                 deviceId,
                 bi.getTimestamp()
-        ));
+        );
+        latestMetricsCache.fill(userId, deviceId, readStarted,
+                DeviceMetrics.empty(userId, deviceId).withBatteryInfo(dto));
+        return ResponseEntity.ok(dto);
     }
 
     @GetMapping("/cpu-usage/{userId}/{deviceId}")
     public ResponseEntity<CpuUsageDTO> getLatestCpuUsage(@PathVariable Long userId,
-                                                         @PathVariable String deviceId) {
+                                                         @PathVariable String deviceId,
+                                                         WebRequest request) {
         logger.info("getLatestCpuUsage called for userId={} deviceId={}", userId, deviceId);
-        var user = userRepo.getReferenceById(userId);
+        if (notModified(request, userId, deviceId)) {
+            return null;
+        }
+        var cached = latestMetricsCache.get(userId, deviceId).map(DeviceMetrics::getCpuUsage);
+        if (cached.isPresent()) {
+            return ResponseEntity.ok(cached.get());
+        }
         var device = lookupDevice(userId, deviceId);
-        var cu = metricsService.getLatestCpuUsage(user, device)
+        long readStarted = latestMetricsCache.readStarted();
+        var cu = shardRouter.onShard(deviceId, () -> metricsService.getLatestCpuUsage(device))
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, AppConstants.ERROR_NOT_FOUND));
-        return ResponseEntity.ok(new CpuUsageDTO(
+        var dto = new CpuUsageDTO(
                 cu.getId(),
                 cu.getTotalCpuLoad(),
-                cu.getPerCoreUsageJson(),
+                cu.getPerCoreUsage(),
                 userId,
                 deviceId,
                 cu.getTimestamp()
-        ));
+        );
+        latestMetricsCache.fill(userId, deviceId, readStarted,
+                DeviceMetrics.empty(userId, deviceId).withCpuUsage(dto));
+        return ResponseEntity.ok(dto);
     }
 
     @GetMapping("/ram-usage/{userId}/{deviceId}")
     public ResponseEntity<RamUsageDTO> getLatestRamUsage(@PathVariable Long userId,
-                                                         @PathVariable String deviceId) {
+                                                         @PathVariable String deviceId,
+                                                         WebRequest request) {
         logger.info("getLatestRamUsage called for userId={} deviceId={}", userId, deviceId);
-        var user = userRepo.getReferenceById(userId);
+        if (notModified(request, userId, deviceId)) {
+            return null;
+        }
+        var cached = latestMetricsCache.get(userId, deviceId).map(DeviceMetrics::getRamUsage);
+        if (cached.isPresent()) {
+            return ResponseEntity.ok(cached.get());
+        }
         var device = lookupDevice(userId, deviceId);
-        var ru = metricsService.getLatestRamUsage(user, device)
+        long readStarted = latestMetricsCache.readStarted();
+        var ru = shardRouter.onShard(deviceId, () -> metricsService.getLatestRamUsage(device))
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, AppConstants.ERROR_NOT_FOUND));
-        return ResponseEntity.ok(new RamUsageDTO(
+        var dto = new RamUsageDTO(
                 ru.getId(),
                 ru.getTotalMemory(),
                 ru.getUsedMemory(),
@@ -287,34 +412,56 @@ public class MetricsController {
                 userId,
                 deviceId,
                 ru.getTimestamp()
-        ));
+        );
+        latestMetricsCache.fill(userId, deviceId, readStarted,
+                DeviceMetrics.empty(userId, deviceId).withRamUsage(dto));
+        return ResponseEntity.ok(dto);
     }
 
     @GetMapping("/disk-io/{userId}/{deviceId}")
     public ResponseEntity<DiskIODTO> getLatestDiskIO(@PathVariable Long userId,
-                                                     @PathVariable String deviceId) {
+                                                     @PathVariable String deviceId,
+                                                     WebRequest request) {
         logger.info("getLatestDiskIO called for userId={} deviceId={}", userId, deviceId);
-        var user = userRepo.getReferenceById(userId);
+        if (notModified(request, userId, deviceId)) {
+            return null;
+        }
+        var cached = latestMetricsCache.get(userId, deviceId).map(DeviceMetrics::getDiskIO);
+        if (cached.isPresent()) {
+            return ResponseEntity.ok(cached.get());
+        }
         var device = lookupDevice(userId, deviceId);
-        var dio = metricsService.getLatestDiskIO(user, device)
+        long readStarted = latestMetricsCache.readStarted();
+        var dio = shardRouter.onShard(deviceId, () -> metricsService.getLatestDiskIO(device))
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, AppConstants.ERROR_NOT_FOUND));
-        return ResponseEntity.ok(new DiskIODTO(
+        var dto = new DiskIODTO(
                 dio.getId(),
                 dio.getReadSpeedMBps(),
                 dio.getWriteSpeedMBps(),
                 userId,
                 deviceId,
                 dio.getTimestamp()
-        ));
+        );
+        latestMetricsCache.fill(userId, deviceId, readStarted,
+                DeviceMetrics.empty(userId, deviceId).withDiskIO(dto));
+        return ResponseEntity.ok(dto);
     }
 
     @GetMapping("/disk-usage/{userId}/{deviceId}")
     public ResponseEntity<List<DiskUsageDTO>> getLatestDiskUsage(@PathVariable Long userId,
-                                                                 @PathVariable String deviceId) {
+                                                                 @PathVariable String deviceId,
+                                                                 WebRequest request) {
         logger.info("getLatestDiskUsage called for userId={} deviceId={}", userId, deviceId);
-        var user = userRepo.getReferenceById(userId);
+        if (notModified(request, userId, deviceId)) {
+            return null;
+        }
+        var cached = latestMetricsCache.get(userId, deviceId).map(DeviceMetrics::getDiskUsage);
+        if (cached.isPresent() && !cached.get().isEmpty()) {
+            return ResponseEntity.ok(cached.get());
+        }
         var device = lookupDevice(userId, deviceId);
-        List<DiskUsage> duList = metricsService.getLatestDiskUsage(user, device);
+        long readStarted = latestMetricsCache.readStarted();
+        List<DiskUsageView> duList = shardRouter.onShard(deviceId, () -> metricsService.getLatestDiskUsage(device));
         if (duList.isEmpty()) {
             throw new ResponseStatusException(HttpStatus.NOT_FOUND, AppConstants.ERROR_NOT_FOUND);
         }
@@ -330,18 +477,28 @@ public class MetricsController {
                         deviceId,
                         du.getTimestamp()
                 ))
-                .collect(Collectors.toList());
+                .toList();
+        latestMetricsCache.fill(userId, deviceId, readStarted,
+                DeviceMetrics.empty(userId, deviceId).withDiskUsage(dtoList));
         return ResponseEntity.ok(dtoList);
     }
 
 
     @GetMapping("/process-status/{userId}/{deviceId}")
     public ResponseEntity<List<ProcessStatusDTO>> getProcessStatuses(@PathVariable Long userId,
-                                                                     @PathVariable String deviceId) {
+                                                                     @PathVariable String deviceId,
+                                                                     WebRequest request) {
         logger.info("getProcessStatuses called for userId={} deviceId={}", userId, deviceId);
-        var user = userRepo.getReferenceById(userId);
+        if (notModified(request, userId, deviceId)) {
+            return null;
+        }
+        var cached = latestMetricsCache.get(userId, deviceId).map(DeviceMetrics::getProcessStatuses);
+        if (cached.isPresent()) {
+            return ResponseEntity.ok(cached.get());
+        }
         var device = lookupDevice(userId, deviceId);
-        var list = metricsService.getProcessStatuses(user, device);
+        long readStarted = latestMetricsCache.readStarted();
+        var list = shardRouter.onShard(deviceId, () -> metricsService.getProcessStatuses(device));
         var dtos = list.stream()
                 .map(ps -> new ProcessStatusDTO(
                         ps.getId(),
@@ -352,7 +509,80 @@ public class MetricsController {
                         userId,
                         deviceId,
                         ps.getTimestamp()))
-                .collect(Collectors.toList());
+                .toList();
+        latestMetricsCache.fill(userId, deviceId, readStarted,
+                DeviceMetrics.empty(userId, deviceId).withProcessStatuses(dtos));
         return ResponseEntity.ok(dtos);
     }
+
+    /**
+     * Every metric type of a device in one call. {@code fields} optionally
+     * narrows the response, e.g. {@code ?fields=cpuUsage,ramUsage}.
+     */
+    @GetMapping("/snapshot/{userId}/{deviceId}")
+    public ResponseEntity<DeviceSnapshotDTO> getSnapshot(@PathVariable Long userId,
+                                                         @PathVariable String deviceId,
+                                                         @RequestParam(required = false) String fields,
+                                                         WebRequest request) {
+        logger.info("getSnapshot called for userId={} deviceId={} fields={}", userId, deviceId, fields);
+        Set<DeviceSnapshotService.Field> selected;
+        try {
+            selected = DeviceSnapshotService.parseFields(fields);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+        if (notModified(request, userId, deviceId)) {
+            return null;
+        }
+        return ResponseEntity.ok(deviceSnapshotService.getSnapshot(userId, deviceId, selected));
+    }
+
+    /**
+     * Live updates for one device as Server-Sent Events: a {@code metrics}
+     * event per ingested batch, starting with the cached snapshot if any.
+     */
+    @GetMapping(value = "/stream/{userId}/{deviceId}", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamMetrics(@PathVariable Long userId, @PathVariable String deviceId) {
+        logger.info("streamMetrics called for userId={} deviceId={}", userId, deviceId);
+        lookupDevice(userId, deviceId);
+        try {
+            return metricsStreamService.open(userId, deviceId);
+        } catch (IllegalStateException e) {
+            logger.warn("streamMetrics rejected for deviceId={}: {}", deviceId, e.getMessage());
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, AppConstants.TOO_MANY_STREAMS);
+        }
+    }
+
+    /**
+     * Downsampled history of one metric type for charts. {@code from} and
+     * {@code to} are epoch milliseconds and default to the last hour.
+     */
+    @GetMapping("/{type}/{userId}/{deviceId}/range")
+    public ResponseEntity<MetricRangeDTO> getRange(@PathVariable String type,
+                                                   @PathVariable Long userId,
+                                                   @PathVariable String deviceId,
+                                                   @RequestParam(required = false) Long from,
+                                                   @RequestParam(required = false) Long to,
+                                                   @RequestParam(defaultValue = "" + AppConstants.DEFAULT_RANGE_POINTS) int maxPoints) {
+        logger.info("getRange called for type={} userId={} deviceId={} from={} to={} maxPoints={}",
+                type, userId, deviceId, from, to, maxPoints);
+        MetricRangeService.Type rangeType;
+        try {
+            rangeType = MetricRangeService.Type.fromKey(type);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+        if (!metricRangeService.isAvailable()) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, AppConstants.RANGE_UNAVAILABLE);
+        }
+        long end = to != null ? to : System.currentTimeMillis();
+        long start = from != null ? from : end - 3_600_000;
+        if (start >= end) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, AppConstants.INVALID_RANGE);
+        }
+        int points = Math.max(3, Math.min(maxPoints, AppConstants.MAX_RANGE_POINTS));
+        var device = lookupDevice(userId, deviceId);
+        return ResponseEntity.ok(shardRouter.onShard(deviceId, () -> metricRangeService.getRange(userId, deviceId,
+                device.getId(), rangeType, start, end, points)));
+    }
 }
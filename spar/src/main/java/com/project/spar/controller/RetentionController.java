@@ -0,0 +1,21 @@
+package com.project.spar.controller;
+
+import com.project.spar.dto.RetentionStatsDTO;
+import com.project.spar.service.RetentionService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/retention")
+@CrossOrigin(origins = "*")
+public class RetentionController {
+
+    @Autowired
+    private RetentionService retentionService;
+
+    @GetMapping("/stats")
+    public ResponseEntity<RetentionStatsDTO> getStats() {
+        return ResponseEntity.ok(retentionService.getStats());
+    }
+}
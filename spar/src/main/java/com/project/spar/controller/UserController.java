@@ -1,8 +1,11 @@
 package com.project.spar.controller;
 
+import com.project.spar.cache.ResourceVersions;
 import com.project.spar.constants.AppConstants;
+import com.project.spar.dto.DeviceSnapshotDTO;
 import com.project.spar.dto.DeviceSpecificationDTO;
 import com.project.spar.model.DeviceSpecification;
+import com.project.spar.service.DeviceSnapshotService;
 import com.project.spar.service.UserDeviceService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -10,9 +13,11 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.util.List;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/api/users")
@@ -24,6 +29,12 @@ public class UserController {
     @Autowired
     private UserDeviceService userDeviceService;
 
+    @Autowired
+    private ResourceVersions resourceVersions;
+
+    @Autowired
+    private DeviceSnapshotService deviceSnapshotService;
+
     @PostMapping("/{userId}/devices")
     public ResponseEntity<List<DeviceSpecificationDTO>> addOrGetDevices(
             @PathVariable Long userId,
@@ -45,9 +56,13 @@ public class UserController {
 
     @GetMapping("/{userId}/getdevices")
     public ResponseEntity<List<DeviceSpecificationDTO>> getDevices(
-            @PathVariable Long userId
+            @PathVariable Long userId,
+            WebRequest request
     ) {
         logger.info("getDevices called for userId={}", userId);
+        if (request.checkNotModified(resourceVersions.deviceList(userId))) {
+            return null;
+        }
         try {
             List<DeviceSpecificationDTO> dtos = userDeviceService.getDevices(userId);
             logger.info("getDevices successful for userId={}; count={}", userId, dtos.size());
@@ -60,4 +75,34 @@ public class UserController {
             throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, AppConstants.ERROR_GENERIC);
         }
     }
+
+    /**
+     * Latest metrics of every device of the user in one call, read from all
+     * shards in parallel. {@code fields} narrows each snapshot as on
+     * {@code /api/metrics/snapshot}.
+     */
+    @GetMapping("/{userId}/snapshots")
+    public ResponseEntity<List<DeviceSnapshotDTO>> getSnapshots(
+            @PathVariable Long userId,
+            @RequestParam(required = false) String fields
+    ) {
+        logger.info("getSnapshots called for userId={} fields={}", userId, fields);
+        Set<DeviceSnapshotService.Field> selected;
+        try {
+            selected = DeviceSnapshotService.parseFields(fields);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+        try {
+            List<DeviceSnapshotDTO> snapshots = deviceSnapshotService.getUserSnapshots(userId, selected);
+            logger.info("getSnapshots successful for userId={}; count={}", userId, snapshots.size());
+            return ResponseEntity.ok(snapshots);
+        } catch (ResponseStatusException e) {
+            logger.warn("getSnapshots failed for userId={}: {}", userId, e.getReason());
+            throw e;
+        } catch (Exception e) {
+            logger.error("Error in getSnapshots for userId={}", userId, e);
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, AppConstants.ERROR_GENERIC);
+        }
+    }
 }
@@ -1,5 +1,8 @@
 package com.project.spar.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.project.spar.constants.AppConstants;
+import com.project.spar.model.PerCoreUsage;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -12,8 +15,23 @@ import java.time.LocalDateTime;
 public class CpuUsageDTO {
     private Long   id;
     private double totalCpuLoad;
-    private String perCoreUsageJson;
+    private float[] perCoreUsage;
     private Long   userId;
     private String deviceId;
     private LocalDateTime timestamp;
+
+    /** Legacy JSON string form of {@link #perCoreUsage}, still read and written by older pollers. */
+    public String getPerCoreUsageJson() {
+        return PerCoreUsage.toJson(perCoreUsage);
+    }
+
+    public void setPerCoreUsageJson(String json) {
+        this.perCoreUsage = PerCoreUsage.fromJson(json);
+    }
+
+    /** Cores at or above {@link AppConstants#HOT_CORE_THRESHOLD} percent, numbered from 1. */
+    @JsonInclude(JsonInclude.Include.NON_EMPTY)
+    public int[] getHotCores() {
+        return PerCoreUsage.hotCores(perCoreUsage, AppConstants.HOT_CORE_THRESHOLD);
+    }
 }
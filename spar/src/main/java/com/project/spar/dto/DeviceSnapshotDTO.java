@@ -0,0 +1,28 @@
+package com.project.spar.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Every metric type of one device in a single response. Fields that were not
+ * requested, or for which no sample exists, are omitted.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class DeviceSnapshotDTO {
+    private Long   userId;
+    private String deviceId;
+
+    private BatteryInfoDTO         batteryInfo;
+    private CpuUsageDTO            cpuUsage;
+    private RamUsageDTO            ramUsage;
+    private DiskIODTO              diskIO;
+    private List<DiskUsageDTO>     diskUsage;
+    private List<ProcessStatusDTO> processStatuses;
+}
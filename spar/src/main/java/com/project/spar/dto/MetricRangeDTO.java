@@ -0,0 +1,25 @@
+package com.project.spar.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * A downsampled time range of one metric type for charting. {@code from} and
+ * {@code to} are epoch milliseconds; {@code resolution} names the source the
+ * points were drawn from ({@code memory}, {@code raw}, {@code 1m} or {@code 1h}).
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MetricRangeDTO {
+    private Long   userId;
+    private String deviceId;
+    private String type;
+    private long   from;
+    private long   to;
+    private String resolution;
+    private List<SeriesDataDTO> series;
+}
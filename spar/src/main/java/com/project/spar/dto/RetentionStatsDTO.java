@@ -0,0 +1,22 @@
+package com.project.spar.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * What the retention job removed, per policy: in its most recent run and in
+ * total since startup. {@code lastRunAt} is {@code null} until the first run.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RetentionStatsDTO {
+    private Instant lastRunAt;
+    private long    lastRunMillis;
+    private Map<String, Long> lastRunDeleted;
+    private Map<String, Long> totalDeleted;
+}
@@ -0,0 +1,19 @@
+package com.project.spar.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One series in column form: {@code timestamps[i]} (epoch milliseconds) goes
+ * with {@code values[i]}. Two flat arrays serialize much smaller than a list
+ * of point objects.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SeriesDataDTO {
+    private String   metric;
+    private long[]   timestamps;
+    private double[] values;
+}
@@ -0,0 +1,13 @@
+package com.project.spar.event;
+
+import java.util.List;
+
+/**
+ * Published when the set of live cluster nodes changes and device ownership
+ * has been recomputed. Listeners drop in-memory state of devices this node
+ * no longer owns; newly owned devices are loaded from the database on first use.
+ *
+ * @param members the node URLs of the new ring, sorted
+ */
+public record ClusterTopologyChangedEvent(List<String> members) {
+}
@@ -0,0 +1,19 @@
+package com.project.spar.event;
+
+import com.project.spar.dto.MetricsBatchDTO;
+
+import java.time.LocalDateTime;
+
+/**
+ * Published by the ingest path once a batch has been written. Listeners that
+ * maintain in-memory state should use {@code @TransactionalEventListener} so
+ * they only observe committed data.
+ *
+ * @param timestamp the sample time stored with every row of the batch
+ */
+public record MetricsIngestedEvent(Long userId,
+                                   Long deviceSpecId,
+                                   String deviceId,
+                                   MetricsBatchDTO batch,
+                                   LocalDateTime timestamp) {
+}
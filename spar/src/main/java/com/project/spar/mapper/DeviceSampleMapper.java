@@ -0,0 +1,87 @@
+package com.project.spar.mapper;
+
+import com.project.spar.model.DeviceSample;
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+import java.time.LocalDateTime;
+
+/**
+ * Statements for the wide {@code device_samples} layout: one insert per tick
+ * and primary-key walks from the newest row for reads.
+ */
+@Mapper
+public interface DeviceSampleMapper {
+
+    String COLUMNS = "ts, hasBattery, batteryPercentage, isCharging, powerConsumption, totalCpuLoad, "
+            + "perCoreUsagePacked, totalMemory, usedMemory, availableMemory, readSpeedMBps, writeSpeedMBps";
+
+    // a second write in the same instant fills in the columns it carries
+    @Insert("INSERT INTO device_samples (device_spec_id, " + COLUMNS + ") VALUES ("
+            + "#{deviceSpecId}, #{ts}, #{hasBattery,jdbcType=BOOLEAN}, #{batteryPercentage,jdbcType=INTEGER}, "
+            + "#{isCharging,jdbcType=BOOLEAN}, #{powerConsumption,jdbcType=DOUBLE}, #{totalCpuLoad,jdbcType=DOUBLE}, "
+            + "#{perCoreUsagePacked,jdbcType=VARBINARY}, #{totalMemory,jdbcType=DOUBLE}, #{usedMemory,jdbcType=DOUBLE}, "
+            + "#{availableMemory,jdbcType=DOUBLE}, #{readSpeedMBps,jdbcType=DOUBLE}, #{writeSpeedMBps,jdbcType=DOUBLE}) "
+            + "ON DUPLICATE KEY UPDATE "
+            + "hasBattery = COALESCE(VALUES(hasBattery), hasBattery), "
+            + "batteryPercentage = COALESCE(VALUES(batteryPercentage), batteryPercentage), "
+            + "isCharging = COALESCE(VALUES(isCharging), isCharging), "
+            + "powerConsumption = COALESCE(VALUES(powerConsumption), powerConsumption), "
+            + "totalCpuLoad = COALESCE(VALUES(totalCpuLoad), totalCpuLoad), "
+            + "perCoreUsagePacked = COALESCE(VALUES(perCoreUsagePacked), perCoreUsagePacked), "
+            + "totalMemory = COALESCE(VALUES(totalMemory), totalMemory), "
+            + "usedMemory = COALESCE(VALUES(usedMemory), usedMemory), "
+            + "availableMemory = COALESCE(VALUES(availableMemory), availableMemory), "
+            + "readSpeedMBps = COALESCE(VALUES(readSpeedMBps), readSpeedMBps), "
+            + "writeSpeedMBps = COALESCE(VALUES(writeSpeedMBps), writeSpeedMBps)")
+    int insert(DeviceSample sample);
+
+    @Select("SELECT " + COLUMNS + " FROM device_samples WHERE device_spec_id = #{deviceSpecId} "
+            + "ORDER BY ts DESC LIMIT 1")
+    DeviceSample selectLatest(@Param("deviceSpecId") Long deviceSpecId);
+
+    /** The column that tells whether a row carries a scalar type. */
+    enum Scalar {
+        BATTERY_INFO("hasBattery"),
+        CPU_USAGE("totalCpuLoad"),
+        RAM_USAGE("usedMemory"),
+        DISK_IO("readSpeedMBps");
+
+        private final String column;
+
+        Scalar(String column) {
+            this.column = column;
+        }
+
+        public String getColumn() {
+            return column;
+        }
+    }
+
+    /**
+     * Newest row carrying {@code scalar} among the device's {@code lookback}
+     * newest rows, so a type the device stopped reporting costs a bounded
+     * primary-key range read instead of a walk over its whole history.
+     */
+    @Select("SELECT " + COLUMNS + " FROM (SELECT " + COLUMNS + " FROM device_samples "
+            + "WHERE device_spec_id = #{deviceSpecId} ORDER BY ts DESC LIMIT #{lookback}) recent "
+            + "WHERE ${scalar.column} IS NOT NULL ORDER BY ts DESC LIMIT 1")
+    DeviceSample selectLatestWith(@Param("deviceSpecId") Long deviceSpecId,
+                                  @Param("scalar") Scalar scalar,
+                                  @Param("lookback") int lookback);
+
+    /**
+     * Deletes up to {@code limit} rows older than {@code cutoff}, sparing each
+     * device's newest row so the latest values of an idle device survive.
+     * The inner select is wrapped in a derived table because MySQL does not
+     * allow a DELETE to read its own table directly.
+     */
+    @Delete("DELETE FROM device_samples WHERE (device_spec_id, ts) IN (SELECT device_spec_id, ts FROM ("
+            + "SELECT s.device_spec_id, s.ts FROM device_samples s WHERE s.ts < #{cutoff} "
+            + "AND EXISTS (SELECT 1 FROM device_samples n WHERE n.device_spec_id = s.device_spec_id AND n.ts > s.ts) "
+            + "LIMIT #{limit}) old_rows)")
+    int deleteSupersededBefore(@Param("cutoff") LocalDateTime cutoff, @Param("limit") int limit);
+}
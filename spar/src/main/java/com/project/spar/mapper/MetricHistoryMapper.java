@@ -0,0 +1,131 @@
+package com.project.spar.mapper;
+
+import com.project.spar.model.MetricRollup;
+import com.project.spar.model.MetricSample;
+import com.project.spar.model.SeriesMetric;
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Writes for the append-only metric history.
+ * <p>
+ * A tick costs one multi-row insert into {@code metric_samples} plus one
+ * multi-row upsert that folds the same values into the 1-minute and 1-hour
+ * buckets of {@code metric_rollups}, independent of how much history exists.
+ * A sample that overwrites an earlier one at the same instant is not folded
+ * in again; its buckets are recomputed from the samples instead.
+ * Enums are stored by ordinal, matching the JPA mapping.
+ */
+@Mapper
+public interface MetricHistoryMapper {
+
+    // the handler needs the enum class, which MyBatis cannot infer for @Param or foreach values
+    String METRIC = "javaType=com.project.spar.model.SeriesMetric,"
+            + "typeHandler=org.apache.ibatis.type.EnumOrdinalTypeHandler";
+    String RESOLUTION = "javaType=com.project.spar.model.MetricRollup$Resolution,"
+            + "typeHandler=org.apache.ibatis.type.EnumOrdinalTypeHandler";
+
+    @Insert({"<script>",
+            "INSERT INTO metric_samples (device_spec_id, metric, ts, sampleValue) VALUES ",
+            "<foreach collection='rows' item='s' separator=','>",
+            "(#{s.deviceSpecId}, #{s.metric," + METRIC + "}, #{s.ts}, #{s.sampleValue})",
+            "</foreach>",
+            " ON DUPLICATE KEY UPDATE sampleValue = VALUES(sampleValue)",
+            "</script>"})
+    int insertSamples(@Param("rows") List<MetricSample> rows);
+
+    String INSERT_ROLLUPS =
+            "INSERT INTO metric_rollups (device_spec_id, metric, resolution, bucketStart, minVal, maxVal, sumVal, sampleCount) VALUES "
+            + "<foreach collection='rows' item='r' separator=','>"
+            + "(#{r.deviceSpecId}, #{r.metric," + METRIC + "}, #{r.resolution," + RESOLUTION + "}, #{r.bucketStart}, "
+            + "#{r.minVal}, #{r.maxVal}, #{r.sumVal}, #{r.sampleCount})"
+            + "</foreach>";
+
+    /** Which of {@code metrics} already have a sample of the device at {@code ts}; metric ordinals. */
+    @Select({"<script>",
+            "SELECT metric FROM metric_samples WHERE device_spec_id = #{deviceSpecId} AND ts = #{ts} AND metric IN ",
+            "<foreach collection='metrics' item='m' open='(' separator=',' close=')'>#{m," + METRIC + "}</foreach>",
+            "</script>"})
+    List<Integer> selectSampledMetrics(@Param("deviceSpecId") Long deviceSpecId,
+                                       @Param("ts") LocalDateTime ts,
+                                       @Param("metrics") Collection<SeriesMetric> metrics);
+
+    @Insert({"<script>", INSERT_ROLLUPS,
+            " ON DUPLICATE KEY UPDATE minVal = LEAST(minVal, VALUES(minVal)), maxVal = GREATEST(maxVal, VALUES(maxVal)), ",
+            "sumVal = sumVal + VALUES(sumVal), sampleCount = sampleCount + VALUES(sampleCount)",
+            "</script>"})
+    int upsertRollups(@Param("rows") List<MetricRollup> rows);
+
+    /** Overwrites buckets with the given aggregates, e.g. ones recomputed by {@link #aggregateSamples}. */
+    @Insert({"<script>", INSERT_ROLLUPS,
+            " ON DUPLICATE KEY UPDATE minVal = VALUES(minVal), maxVal = VALUES(maxVal), ",
+            "sumVal = VALUES(sumVal), sampleCount = VALUES(sampleCount)",
+            "</script>"})
+    int replaceRollups(@Param("rows") List<MetricRollup> rows);
+
+    /** Min, max, sum and count of the samples with {@code from <= ts < to}; only those fields are set. */
+    @Select("SELECT MIN(sampleValue) AS minVal, MAX(sampleValue) AS maxVal, SUM(sampleValue) AS sumVal, "
+            + "COUNT(*) AS sampleCount FROM metric_samples "
+            + "WHERE device_spec_id = #{deviceSpecId} AND metric = #{metric," + METRIC + "} "
+            + "AND ts >= #{from} AND ts < #{to}")
+    MetricRollup aggregateSamples(@Param("deviceSpecId") Long deviceSpecId,
+                                  @Param("metric") SeriesMetric metric,
+                                  @Param("from") LocalDateTime from,
+                                  @Param("to") LocalDateTime to);
+
+    // ───── RANGE READS ───────────────────────────
+    // both walk the primary key from (device, metric[, resolution], start)
+
+    @Select("SELECT ts, sampleValue FROM metric_samples "
+            + "WHERE device_spec_id = #{deviceSpecId} AND metric = #{metric," + METRIC + "} "
+            + "AND ts BETWEEN #{from} AND #{to} ORDER BY ts")
+    List<MetricSample> selectSamples(@Param("deviceSpecId") Long deviceSpecId,
+                                     @Param("metric") SeriesMetric metric,
+                                     @Param("from") LocalDateTime from,
+                                     @Param("to") LocalDateTime to);
+
+    @Select("SELECT bucketStart, minVal, maxVal, sumVal, sampleCount FROM metric_rollups "
+            + "WHERE device_spec_id = #{deviceSpecId} AND metric = #{metric," + METRIC + "} "
+            + "AND resolution = #{resolution," + RESOLUTION + "} "
+            + "AND bucketStart BETWEEN #{from} AND #{to} ORDER BY bucketStart")
+    List<MetricRollup> selectRollups(@Param("deviceSpecId") Long deviceSpecId,
+                                     @Param("metric") SeriesMetric metric,
+                                     @Param("resolution") MetricRollup.Resolution resolution,
+                                     @Param("from") LocalDateTime from,
+                                     @Param("to") LocalDateTime to);
+
+    // ───── RETENTION ───────────────────────────
+    // bounded deletes so a purge never holds locks for long
+
+    @Delete("DELETE FROM metric_samples WHERE ts < #{cutoff} LIMIT #{limit}")
+    int deleteSamplesBefore(@Param("cutoff") LocalDateTime cutoff, @Param("limit") int limit);
+
+    @Delete("DELETE FROM metric_rollups WHERE resolution = #{resolution," + RESOLUTION + "} "
+            + "AND bucketStart < #{cutoff} LIMIT #{limit}")
+    int deleteRollupsBefore(@Param("resolution") MetricRollup.Resolution resolution,
+                            @Param("cutoff") LocalDateTime cutoff,
+                            @Param("limit") int limit);
+
+    // ───── PARTITIONS (MySQL, see V3__partition_metric_samples.sql) ─────
+    // partition definitions are built by MetricSamplePartitions, never from input
+
+    @Select("SELECT partition_name FROM information_schema.partitions "
+            + "WHERE table_schema = DATABASE() AND table_name = 'metric_samples' AND partition_name IS NOT NULL "
+            + "ORDER BY partition_ordinal_position")
+    List<String> selectSamplePartitions();
+
+    @Update("ALTER TABLE metric_samples REORGANIZE PARTITION p_future INTO "
+            + "(${partitions}, PARTITION p_future VALUES LESS THAN MAXVALUE)")
+    void splitFutureSamplePartition(@Param("partitions") String partitions);
+
+    @Update("ALTER TABLE metric_samples DROP PARTITION ${names}")
+    void dropSamplePartitions(@Param("names") String names);
+}
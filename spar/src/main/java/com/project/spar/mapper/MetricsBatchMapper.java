@@ -0,0 +1,102 @@
+package com.project.spar.mapper;
+
+import com.project.spar.dto.DiskUsageDTO;
+import com.project.spar.dto.MetricsBatchDTO;
+import com.project.spar.dto.ProcessStatusDTO;
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Options;
+import org.apache.ibatis.annotations.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Set-based writes for the metrics ingest path.
+ * <p>
+ * Each method is a single statement against one table, so persisting a whole
+ * {@link MetricsBatchDTO} costs a handful of round trips regardless of how many
+ * disk or process rows it carries. Column names follow the JPA mapping
+ * (standard physical naming, i.e. the Java field names). Multi-row inserts
+ * write the generated ids back into the passed DTOs.
+ */
+@Mapper
+public interface MetricsBatchMapper {
+
+    // ───── LATEST-VALUE TABLES ───────────────────────────
+    // battery_info, cpu_usage, ram_usage and disk_io hold one row per device
+    // (unique device_spec_id); each sample overwrites it in a single upsert.
+
+    @Insert("INSERT INTO battery_info (hasBattery, batteryPercentage, isCharging, powerConsumption, timestamp, device_spec_id) "
+            + "VALUES (#{hasBattery}, #{batteryPercentage}, #{charging}, #{powerConsumption,jdbcType=DOUBLE}, #{ts}, #{deviceSpecId}) "
+            + "ON DUPLICATE KEY UPDATE hasBattery = VALUES(hasBattery), batteryPercentage = VALUES(batteryPercentage), "
+            + "isCharging = VALUES(isCharging), powerConsumption = VALUES(powerConsumption), timestamp = VALUES(timestamp)")
+    int upsertBatteryInfo(@Param("deviceSpecId") Long deviceSpecId,
+                          @Param("hasBattery") boolean hasBattery,
+                          @Param("batteryPercentage") int batteryPercentage,
+                          @Param("charging") boolean charging,
+                          @Param("powerConsumption") Double powerConsumption,
+                          @Param("ts") LocalDateTime ts);
+
+    @Insert("INSERT INTO cpu_usage (totalCpuLoad, perCoreUsagePacked, timestamp, device_spec_id) "
+            + "VALUES (#{totalCpuLoad}, #{perCoreUsagePacked,jdbcType=VARBINARY}, #{ts}, #{deviceSpecId}) "
+            + "ON DUPLICATE KEY UPDATE totalCpuLoad = VALUES(totalCpuLoad), perCoreUsagePacked = VALUES(perCoreUsagePacked), "
+            + "timestamp = VALUES(timestamp)")
+    int upsertCpuUsage(@Param("deviceSpecId") Long deviceSpecId,
+                       @Param("totalCpuLoad") double totalCpuLoad,
+                       @Param("perCoreUsagePacked") byte[] perCoreUsagePacked,
+                       @Param("ts") LocalDateTime ts);
+
+    @Insert("INSERT INTO ram_usage (totalMemory, usedMemory, availableMemory, timestamp, device_spec_id) "
+            + "VALUES (#{totalMemory}, #{usedMemory}, #{availableMemory}, #{ts}, #{deviceSpecId}) "
+            + "ON DUPLICATE KEY UPDATE totalMemory = VALUES(totalMemory), usedMemory = VALUES(usedMemory), "
+            + "availableMemory = VALUES(availableMemory), timestamp = VALUES(timestamp)")
+    int upsertRamUsage(@Param("deviceSpecId") Long deviceSpecId,
+                       @Param("totalMemory") double totalMemory,
+                       @Param("usedMemory") double usedMemory,
+                       @Param("availableMemory") double availableMemory,
+                       @Param("ts") LocalDateTime ts);
+
+    @Insert("INSERT INTO disk_io (readSpeedMBps, writeSpeedMBps, timestamp, device_spec_id) "
+            + "VALUES (#{readSpeedMBps}, #{writeSpeedMBps}, #{ts}, #{deviceSpecId}) "
+            + "ON DUPLICATE KEY UPDATE readSpeedMBps = VALUES(readSpeedMBps), writeSpeedMBps = VALUES(writeSpeedMBps), "
+            + "timestamp = VALUES(timestamp)")
+    int upsertDiskIO(@Param("deviceSpecId") Long deviceSpecId,
+                     @Param("readSpeedMBps") double readSpeedMBps,
+                     @Param("writeSpeedMBps") double writeSpeedMBps,
+                     @Param("ts") LocalDateTime ts);
+
+    // ───── DISK USAGE ───────────────────────────
+
+    @Delete("DELETE FROM disk_usage WHERE device_spec_id = #{deviceSpecId}")
+    int deleteDiskUsage(@Param("deviceSpecId") Long deviceSpecId);
+
+    @Insert({"<script>",
+            "INSERT INTO disk_usage (filesystem, sizeGB, usedGB, availableGB, timestamp, device_spec_id) VALUES ",
+            "<foreach collection='rows' item='du' separator=','>",
+            "(#{du.filesystem,jdbcType=VARCHAR}, #{du.sizeGB}, #{du.usedGB}, #{du.availableGB}, #{ts}, #{deviceSpecId})",
+            "</foreach>",
+            "</script>"})
+    @Options(useGeneratedKeys = true, keyProperty = "rows.id")
+    int insertDiskUsage(@Param("deviceSpecId") Long deviceSpecId,
+                        @Param("rows") List<DiskUsageDTO> rows,
+                        @Param("ts") LocalDateTime ts);
+
+    // ───── PROCESS STATUS ───────────────────────────
+    // the process list is a snapshot: each tick replaces the previous one
+
+    @Delete("DELETE FROM process_status WHERE device_spec_id = #{deviceSpecId}")
+    int deleteProcessStatuses(@Param("deviceSpecId") Long deviceSpecId);
+
+    @Insert({"<script>",
+            "INSERT INTO process_status (pid, name, cpuUsage, memoryMB, timestamp, device_spec_id) VALUES ",
+            "<foreach collection='rows' item='ps' separator=','>",
+            "(#{ps.pid}, #{ps.name,jdbcType=VARCHAR}, #{ps.cpuUsage}, #{ps.memoryMB}, #{ts}, #{deviceSpecId})",
+            "</foreach>",
+            "</script>"})
+    @Options(useGeneratedKeys = true, keyProperty = "rows.id")
+    int insertProcessStatuses(@Param("deviceSpecId") Long deviceSpecId,
+                              @Param("rows") List<ProcessStatusDTO> rows,
+                              @Param("ts") LocalDateTime ts);
+}
@@ -0,0 +1,61 @@
+package com.project.spar.mapper;
+
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Bounded deletes for the retention job. Every statement touches at most one
+ * chunk of rows and walks an index: the {@code device_spec_id}-leading keys
+ * for per-device reclaim, which pages through devices with a keyset cursor,
+ * and {@code idx_tokens_expires_at} for tokens.
+ * {@code table} and {@code tsColumn} are substituted verbatim and always come
+ * from the fixed policy list in {@code RetentionService}.
+ */
+@Mapper
+public interface RetentionMapper {
+
+    @Delete("DELETE FROM tokens WHERE expiresAt < #{cutoff} LIMIT #{limit}")
+    int deleteExpiredTokens(@Param("cutoff") Instant cutoff, @Param("limit") int limit);
+
+    /** The next chunk of devices with rows in {@code table}, in key order after {@code after}. */
+    @Select("SELECT DISTINCT device_spec_id FROM ${table} WHERE device_spec_id > #{after} "
+            + "ORDER BY device_spec_id LIMIT #{limit}")
+    List<Long> selectDevicesAfter(@Param("table") String table,
+                                  @Param("after") long after,
+                                  @Param("limit") int limit);
+
+    /** Those of {@code deviceSpecIds} whose newest row in {@code table} is older than {@code cutoff}. */
+    @Select({"<script>",
+            "SELECT device_spec_id FROM ${table} WHERE device_spec_id IN ",
+            "<foreach collection='deviceSpecIds' item='id' open='(' separator=',' close=')'>#{id}</foreach>",
+            "GROUP BY device_spec_id HAVING MAX(${tsColumn}) &lt; #{cutoff}",
+            "</script>"})
+    List<Long> selectStaleDevices(@Param("table") String table,
+                                  @Param("tsColumn") String tsColumn,
+                                  @Param("cutoff") LocalDateTime cutoff,
+                                  @Param("deviceSpecIds") List<Long> deviceSpecIds);
+
+    /** Those of {@code deviceSpecIds} that still have rows in {@code table}. */
+    @Select({"<script>",
+            "SELECT DISTINCT device_spec_id FROM ${table} WHERE device_spec_id IN ",
+            "<foreach collection='deviceSpecIds' item='id' open='(' separator=',' close=')'>#{id}</foreach>",
+            "</script>"})
+    List<Long> selectDevicesWithRows(@Param("table") String table,
+                                     @Param("deviceSpecIds") List<Long> deviceSpecIds);
+
+    // the timestamp check again, in case a device reported since the select
+    @Delete({"<script>",
+            "DELETE FROM ${table} WHERE ${tsColumn} &lt; #{cutoff} AND device_spec_id IN ",
+            "<foreach collection='deviceSpecIds' item='id' open='(' separator=',' close=')'>#{id}</foreach>",
+            "</script>"})
+    int deleteForDevices(@Param("table") String table,
+                         @Param("tsColumn") String tsColumn,
+                         @Param("cutoff") LocalDateTime cutoff,
+                         @Param("deviceSpecIds") List<Long> deviceSpecIds);
+}
@@ -7,8 +7,9 @@ import lombok.NoArgsConstructor;
 import java.time.LocalDateTime;
 
 @Data @NoArgsConstructor
-@Entity @Table(name="battery_info")
-public class BatteryInfo {
+// one row per device holding its latest sample, updated in place
+@Entity @Table(name="battery_info", uniqueConstraints=@UniqueConstraint(columnNames="device_spec_id"))
+public class BatteryInfo implements BatteryInfoView {
     @Id @GeneratedValue(strategy=GenerationType.IDENTITY) private Long id;
     private boolean hasBattery;
     private int batteryPercentage;
@@ -17,9 +18,9 @@ public class BatteryInfo {
     private Double powerConsumption;
     private LocalDateTime timestamp = LocalDateTime.now();
 
-    @ManyToOne @JoinColumn(name="user_id", nullable=false)
-    private User user;
+    // request binding only: the owner is the device's user, not a column here
+    @Transient private User user;
 
-    @ManyToOne @JoinColumn(name="device_spec_id", nullable=false)
+    @ManyToOne(fetch=FetchType.LAZY) @JoinColumn(name="device_spec_id", nullable=false)
     private DeviceSpecification device;
 }
@@ -0,0 +1,13 @@
+package com.project.spar.model;
+
+import java.time.LocalDateTime;
+
+/** Read-only projection of a {@link BatteryInfo} row, loaded without its device or user. */
+public interface BatteryInfoView {
+    Long getId();
+    boolean isHasBattery();
+    int getBatteryPercentage();
+    boolean isCharging();
+    Double getPowerConsumption();
+    LocalDateTime getTimestamp();
+}
@@ -1,18 +1,35 @@
 package com.project.spar.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import java.time.LocalDateTime;
 
 @Data @NoArgsConstructor
-@Entity @Table(name="cpu_usage")
-public class CpuUsage {
+// one row per device holding its latest sample, updated in place
+@Entity @Table(name="cpu_usage", uniqueConstraints=@UniqueConstraint(columnNames="device_spec_id"))
+public class CpuUsage implements CpuUsageView {
     @Id @GeneratedValue(strategy=GenerationType.IDENTITY) private Long id;
     private double totalCpuLoad;
-    @Column(columnDefinition="TEXT") private String perCoreUsageJson;
+    // float32 per core, see PerCoreUsage
+    @JsonIgnore @Column(length=2048) private byte[] perCoreUsagePacked;
     private LocalDateTime timestamp = LocalDateTime.now();
 
-    @ManyToOne @JoinColumn(name="user_id", nullable=false) private User user;
-    @ManyToOne @JoinColumn(name="device_spec_id", nullable=false) private DeviceSpecification device;
+    // request binding only: the owner is the device's user, not a column here
+    @Transient private User user;
+    @ManyToOne(fetch=FetchType.LAZY) @JoinColumn(name="device_spec_id", nullable=false) private DeviceSpecification device;
+
+    public float[] getPerCoreUsage() {
+        return PerCoreUsage.unpack(perCoreUsagePacked);
+    }
+
+    public void setPerCoreUsage(float[] loads) {
+        this.perCoreUsagePacked = PerCoreUsage.pack(loads);
+    }
+
+    // older pollers post the JSON string form
+    public void setPerCoreUsageJson(String json) {
+        setPerCoreUsage(PerCoreUsage.fromJson(json));
+    }
 }
@@ -0,0 +1,15 @@
+package com.project.spar.model;
+
+import java.time.LocalDateTime;
+
+/** Read-only projection of a {@link CpuUsage} row, loaded without its device or user. */
+public interface CpuUsageView {
+    Long getId();
+    double getTotalCpuLoad();
+    byte[] getPerCoreUsagePacked();
+    LocalDateTime getTimestamp();
+
+    default float[] getPerCoreUsage() {
+        return PerCoreUsage.unpack(getPerCoreUsagePacked());
+    }
+}
@@ -0,0 +1,48 @@
+package com.project.spar.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * Wide layout ({@code storage.layout=wide}): all scalar metrics of one device
+ * tick in a single row keyed by (device, ts). A column is null when the tick
+ * did not carry that metric type.
+ */
+@Data @NoArgsConstructor
+@Entity @Table(name="device_samples", indexes=@Index(name="idx_device_samples_ts", columnList="ts"))
+@IdClass(DeviceSample.Key.class)
+public class DeviceSample {
+    @Id @Column(name="device_spec_id") private Long deviceSpecId;
+    @Id private LocalDateTime ts;
+
+    private Boolean hasBattery;
+    private Integer batteryPercentage;
+    private Boolean isCharging;
+    private Double  powerConsumption;
+
+    private Double  totalCpuLoad;
+    @Column(length=2048) private byte[] perCoreUsagePacked;
+
+    private Double  totalMemory;
+    private Double  usedMemory;
+    private Double  availableMemory;
+
+    private Double  readSpeedMBps;
+    private Double  writeSpeedMBps;
+
+    public DeviceSample(Long deviceSpecId, LocalDateTime ts) {
+        this.deviceSpecId = deviceSpecId;
+        this.ts = ts;
+    }
+
+    @Data @NoArgsConstructor @AllArgsConstructor
+    public static class Key implements Serializable {
+        private Long deviceSpecId;
+        private LocalDateTime ts;
+    }
+}
@@ -1,5 +1,6 @@
 package com.project.spar.model;
 
+import com.project.spar.cache.DeviceRegistryListener;
 import jakarta.persistence.*;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -7,6 +8,7 @@ import java.time.LocalDateTime;
 
 @Data @NoArgsConstructor
 @Entity @Table(name="device_specifications")
+@EntityListeners(DeviceRegistryListener.class)
 public class DeviceSpecification {
     @Id @GeneratedValue(strategy=GenerationType.IDENTITY) private Long id;
     @Column(nullable=false, unique=true) private String deviceId;
@@ -6,13 +6,15 @@ import lombok.NoArgsConstructor;
 import java.time.LocalDateTime;
 
 @Data @NoArgsConstructor
-@Entity @Table(name="disk_io")
-public class DiskIO {
+// one row per device holding its latest sample, updated in place
+@Entity @Table(name="disk_io", uniqueConstraints=@UniqueConstraint(columnNames="device_spec_id"))
+public class DiskIO implements DiskIOView {
     @Id @GeneratedValue(strategy=GenerationType.IDENTITY) private Long id;
     private double readSpeedMBps;
     private double writeSpeedMBps;
     private LocalDateTime timestamp = LocalDateTime.now();
 
-    @ManyToOne @JoinColumn(name="user_id", nullable=false) private User user;
-    @ManyToOne @JoinColumn(name="device_spec_id", nullable=false) private DeviceSpecification device;
+    // request binding only: the owner is the device's user, not a column here
+    @Transient private User user;
+    @ManyToOne(fetch=FetchType.LAZY) @JoinColumn(name="device_spec_id", nullable=false) private DeviceSpecification device;
 }
@@ -0,0 +1,11 @@
+package com.project.spar.model;
+
+import java.time.LocalDateTime;
+
+/** Read-only projection of a {@link DiskIO} row, loaded without its device or user. */
+public interface DiskIOView {
+    Long getId();
+    double getReadSpeedMBps();
+    double getWriteSpeedMBps();
+    LocalDateTime getTimestamp();
+}
@@ -6,8 +6,9 @@ import lombok.NoArgsConstructor;
 import java.time.LocalDateTime;
 
 @Data @NoArgsConstructor
-@Entity @Table(name="disk_usage")
-public class DiskUsage {
+@Entity @Table(name="disk_usage",
+        indexes=@Index(name="idx_disk_usage_device_ts", columnList="device_spec_id, timestamp DESC"))
+public class DiskUsage implements DiskUsageView {
     @Id @GeneratedValue(strategy=GenerationType.IDENTITY) private Long id;
     private String filesystem;
     private double sizeGB;
@@ -15,6 +16,7 @@ public class DiskUsage {
     private double availableGB;
     private LocalDateTime timestamp = LocalDateTime.now();
 
-    @ManyToOne @JoinColumn(name="user_id", nullable=false) private User user;
-    @ManyToOne @JoinColumn(name="device_spec_id", nullable=false) private DeviceSpecification device;
+    // request binding only: the owner is the device's user, not a column here
+    @Transient private User user;
+    @ManyToOne(fetch=FetchType.LAZY) @JoinColumn(name="device_spec_id", nullable=false) private DeviceSpecification device;
 }
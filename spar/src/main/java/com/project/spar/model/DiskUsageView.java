@@ -0,0 +1,13 @@
+package com.project.spar.model;
+
+import java.time.LocalDateTime;
+
+/** Read-only projection of a {@link DiskUsage} row, loaded without its device or user. */
+public interface DiskUsageView {
+    Long getId();
+    String getFilesystem();
+    double getSizeGB();
+    double getUsedGB();
+    double getAvailableGB();
+    LocalDateTime getTimestamp();
+}
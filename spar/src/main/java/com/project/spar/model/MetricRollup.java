@@ -0,0 +1,60 @@
+package com.project.spar.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Pre-aggregated history bucket. Sum and count are stored instead of the
+ * average so concurrent writers can merge into a bucket with one upsert.
+ */
+@Data @NoArgsConstructor @AllArgsConstructor
+@Entity @Table(name="metric_rollups", indexes=@Index(name="idx_metric_rollups_bucket", columnList="resolution, bucketStart"))
+@IdClass(MetricRollup.Key.class)
+public class MetricRollup {
+    @Id @Column(name="device_spec_id") private Long deviceSpecId;
+    @Id @Enumerated(EnumType.ORDINAL) private SeriesMetric metric;
+    @Id @Enumerated(EnumType.ORDINAL) private Resolution resolution;
+    @Id private LocalDateTime bucketStart;
+    private double minVal;
+    private double maxVal;
+    private double sumVal;
+    private long sampleCount;
+
+    public double getAverage() {
+        return sampleCount == 0 ? 0 : sumVal / sampleCount;
+    }
+
+    /** Bucket widths; stored by ordinal, append new values only. */
+    public enum Resolution {
+        MINUTE(ChronoUnit.MINUTES),
+        HOUR(ChronoUnit.HOURS);
+
+        private final ChronoUnit unit;
+
+        Resolution(ChronoUnit unit) {
+            this.unit = unit;
+        }
+
+        public LocalDateTime bucketOf(LocalDateTime ts) {
+            return ts.truncatedTo(unit);
+        }
+
+        public LocalDateTime bucketAfter(LocalDateTime bucketStart) {
+            return bucketStart.plus(1, unit);
+        }
+    }
+
+    @Data @NoArgsConstructor @AllArgsConstructor
+    public static class Key implements Serializable {
+        private Long deviceSpecId;
+        private SeriesMetric metric;
+        private Resolution resolution;
+        private LocalDateTime bucketStart;
+    }
+}
@@ -0,0 +1,31 @@
+package com.project.spar.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * One raw history sample. Append-only and keyed by (device, metric, ts), so
+ * range reads for a chart walk the primary key. There is deliberately no
+ * foreign key: history outlives nothing but its own retention.
+ */
+@Data @NoArgsConstructor @AllArgsConstructor
+@Entity @Table(name="metric_samples", indexes=@Index(name="idx_metric_samples_ts", columnList="ts"))
+@IdClass(MetricSample.Key.class)
+public class MetricSample {
+    @Id @Column(name="device_spec_id") private Long deviceSpecId;
+    @Id @Enumerated(EnumType.ORDINAL) private SeriesMetric metric;
+    @Id private LocalDateTime ts;
+    private double sampleValue;
+
+    @Data @NoArgsConstructor @AllArgsConstructor
+    public static class Key implements Serializable {
+        private Long deviceSpecId;
+        private SeriesMetric metric;
+        private LocalDateTime ts;
+    }
+}
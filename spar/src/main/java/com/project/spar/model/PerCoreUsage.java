@@ -0,0 +1,111 @@
+package com.project.spar.model;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.project.spar.constants.AppConstants;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Per-core CPU loads: packed as little-endian float32 for storage (4 bytes a
+ * core) and converted to and from the legacy {@code [{"core":1,"usage":12.5}]}
+ * JSON string that older pollers send and expect.
+ */
+public final class PerCoreUsage {
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    private PerCoreUsage() {}
+
+    public static byte[] pack(float[] loads) {
+        if (loads == null) {
+            return null;
+        }
+        if (loads.length > AppConstants.MAX_CORES) {
+            throw new IllegalArgumentException(AppConstants.TOO_MANY_CORES + loads.length);
+        }
+        ByteBuffer buf = ByteBuffer.allocate(loads.length * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        for (float load : loads) {
+            buf.putFloat(load);
+        }
+        return buf.array();
+    }
+
+    public static float[] unpack(byte[] packed) {
+        if (packed == null) {
+            return null;
+        }
+        ByteBuffer buf = ByteBuffer.wrap(packed).order(ByteOrder.LITTLE_ENDIAN);
+        float[] loads = new float[packed.length / Float.BYTES];
+        for (int i = 0; i < loads.length; i++) {
+            loads[i] = buf.getFloat();
+        }
+        return loads;
+    }
+
+    /**
+     * Parses the legacy JSON form: an array of {@code {"core":n,"usage":x}}
+     * objects (ordered by core number) or of plain numbers.
+     *
+     * @throws IllegalArgumentException if the string is not such an array
+     */
+    public static float[] fromJson(String json) {
+        if (json == null || json.isBlank()) {
+            return null;
+        }
+        JsonNode root;
+        try {
+            root = JSON.readTree(json);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException(AppConstants.INVALID_PER_CORE_USAGE, e);
+        }
+        if (!root.isArray()) {
+            throw new IllegalArgumentException(AppConstants.INVALID_PER_CORE_USAGE);
+        }
+        List<JsonNode> cores = new ArrayList<>(root.size());
+        root.forEach(cores::add);
+        cores.sort(Comparator.comparingInt(n -> n.path("core").asInt(0)));
+        float[] loads = new float[cores.size()];
+        for (int i = 0; i < loads.length; i++) {
+            JsonNode core = cores.get(i);
+            loads[i] = (float) (core.isNumber() ? core.asDouble() : core.path("usage").asDouble());
+        }
+        return loads;
+    }
+
+    /** Renders loads in the legacy JSON form, numbering cores from 1. */
+    public static String toJson(float[] loads) {
+        if (loads == null) {
+            return null;
+        }
+        StringBuilder sb = new StringBuilder(loads.length * 24).append('[');
+        for (int i = 0; i < loads.length; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append("{\"core\":").append(i + 1).append(",\"usage\":").append(loads[i]).append('}');
+        }
+        return sb.append(']').toString();
+    }
+
+    /** Core numbers (from 1) whose load is at or above {@code threshold}. */
+    public static int[] hotCores(float[] loads, float threshold) {
+        if (loads == null) {
+            return new int[0];
+        }
+        int[] hot = new int[loads.length];
+        int n = 0;
+        for (int i = 0; i < loads.length; i++) {
+            if (loads[i] >= threshold) {
+                hot[n++] = i + 1;
+            }
+        }
+        return Arrays.copyOf(hot, n);
+    }
+}
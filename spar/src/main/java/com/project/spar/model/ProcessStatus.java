@@ -6,8 +6,9 @@ import lombok.NoArgsConstructor;
 import java.time.LocalDateTime;
 
 @Data @NoArgsConstructor
-@Entity @Table(name="process_status")
-public class ProcessStatus {
+@Entity @Table(name="process_status",
+        indexes=@Index(name="idx_process_status_device_ts", columnList="device_spec_id, timestamp DESC"))
+public class ProcessStatus implements ProcessStatusView {
     @Id @GeneratedValue(strategy=GenerationType.IDENTITY) private Long id;
     private long pid;
     private String name;
@@ -15,6 +16,7 @@ public class ProcessStatus {
     private double memoryMB;
     private LocalDateTime timestamp = LocalDateTime.now();
 
-    @ManyToOne @JoinColumn(name="user_id", nullable=false) private User user;
-    @ManyToOne @JoinColumn(name="device_spec_id", nullable=false) private DeviceSpecification device;
+    // request binding only: the owner is the device's user, not a column here
+    @Transient private User user;
+    @ManyToOne(fetch=FetchType.LAZY) @JoinColumn(name="device_spec_id", nullable=false) private DeviceSpecification device;
 }
@@ -0,0 +1,13 @@
+package com.project.spar.model;
+
+import java.time.LocalDateTime;
+
+/** Read-only projection of a {@link ProcessStatus} row, loaded without its device or user. */
+public interface ProcessStatusView {
+    Long getId();
+    long getPid();
+    String getName();
+    double getCpuUsage();
+    double getMemoryMB();
+    LocalDateTime getTimestamp();
+}
@@ -6,14 +6,16 @@ import lombok.NoArgsConstructor;
 import java.time.LocalDateTime;
 
 @Data @NoArgsConstructor
-@Entity @Table(name="ram_usage")
-public class RamUsage {
+// one row per device holding its latest sample, updated in place
+@Entity @Table(name="ram_usage", uniqueConstraints=@UniqueConstraint(columnNames="device_spec_id"))
+public class RamUsage implements RamUsageView {
     @Id @GeneratedValue(strategy=GenerationType.IDENTITY) private Long id;
     private double totalMemory;
     private double usedMemory;
     private double availableMemory;
     private LocalDateTime timestamp = LocalDateTime.now();
 
-    @ManyToOne @JoinColumn(name="user_id", nullable=false) private User user;
-    @ManyToOne @JoinColumn(name="device_spec_id", nullable=false) private DeviceSpecification device;
+    // request binding only: the owner is the device's user, not a column here
+    @Transient private User user;
+    @ManyToOne(fetch=FetchType.LAZY) @JoinColumn(name="device_spec_id", nullable=false) private DeviceSpecification device;
 }
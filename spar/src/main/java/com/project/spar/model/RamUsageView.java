@@ -0,0 +1,12 @@
+package com.project.spar.model;
+
+import java.time.LocalDateTime;
+
+/** Read-only projection of a {@link RamUsage} row, loaded without its device or user. */
+public interface RamUsageView {
+    Long getId();
+    double getTotalMemory();
+    double getUsedMemory();
+    double getAvailableMemory();
+    LocalDateTime getTimestamp();
+}
@@ -0,0 +1,14 @@
+package com.project.spar.model;
+
+/**
+ * Scalar metrics kept as history. Stored by ordinal, so new values must only
+ * ever be appended.
+ */
+public enum SeriesMetric {
+    CPU_LOAD,
+    RAM_USED,
+    DISK_READ,
+    DISK_WRITE,
+    BATTERY_PERCENT,
+    POWER_CONSUMPTION
+}
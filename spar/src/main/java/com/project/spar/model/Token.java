@@ -7,7 +7,10 @@ import java.time.Instant;
 
 @Data
 @Entity
-@Table(name = "tokens")
+@Table(name = "tokens", indexes = {
+        @Index(name = "idx_tokens_username", columnList = "username"),
+        @Index(name = "idx_tokens_expires_at", columnList = "expiresAt")
+})
 public class Token {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -0,0 +1,94 @@
+package com.project.spar.reactive;
+
+import io.r2dbc.spi.Readable;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.type.JdbcType;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.r2dbc.core.DatabaseClient.GenericExecuteSpec;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Runs statements declared on the MyBatis mappers through R2DBC, so the
+ * blocking and the reactive write paths share one copy of the SQL.
+ * <p>
+ * MyBatis renders the statement (including {@code <script>} loops) for the
+ * given parameters; each {@code ?} becomes a named marker bound to the value
+ * MyBatis would have set. Enums are bound by ordinal, as every mapper stores
+ * them. Generated keys are not read back.
+ */
+final class MapperStatements {
+
+    private final Configuration configuration;
+    private final DatabaseClient db;
+
+    MapperStatements(Configuration configuration, DatabaseClient db) {
+        this.configuration = configuration;
+        this.db = db;
+    }
+
+    /** Runs an insert, update or delete; {@code id} is the mapper method, e.g. {@code Mapper.class.getName() + ".upsert"}. */
+    Mono<Long> update(String id, Map<String, Object> params) {
+        return spec(id, params).fetch().rowsUpdated();
+    }
+
+    <T> Flux<T> select(String id, Map<String, Object> params, Function<Readable, T> mapper) {
+        return spec(id, params).map(mapper).all();
+    }
+
+    private GenericExecuteSpec spec(String id, Map<String, Object> params) {
+        MappedStatement statement = configuration.getMappedStatement(id);
+        // a plain map answers the same lookups as the ParamMap MyBatis builds from @Param
+        BoundSql bound = statement.getBoundSql(params);
+        String sql = bound.getSql();
+        StringBuilder named = new StringBuilder(sql.length() + 16);
+        int marker = 0;
+        for (int i = 0; i < sql.length(); i++) {
+            char c = sql.charAt(i);
+            if (c == '?') {
+                named.append(":p").append(marker++);
+            } else {
+                named.append(c);
+            }
+        }
+
+        GenericExecuteSpec spec = db.sql(named.toString());
+        MetaObject meta = configuration.newMetaObject(params);
+        List<ParameterMapping> mappings = bound.getParameterMappings();
+        for (int i = 0; i < mappings.size(); i++) {
+            ParameterMapping mapping = mappings.get(i);
+            String property = mapping.getProperty();
+            Object value = bound.hasAdditionalParameter(property)
+                    ? bound.getAdditionalParameter(property)
+                    : meta.getValue(property);
+            if (value instanceof Enum<?> e) {
+                value = e.ordinal();
+            }
+            spec = value == null ? spec.bindNull("p" + i, nullType(mapping)) : spec.bind("p" + i, value);
+        }
+        return spec;
+    }
+
+    // a null map value leaves MyBatis with Object; the mappers name a jdbcType on every nullable column
+    private static Class<?> nullType(ParameterMapping mapping) {
+        if (mapping.getJavaType() != null && mapping.getJavaType() != Object.class) {
+            return mapping.getJavaType();
+        }
+        JdbcType jdbcType = mapping.getJdbcType();
+        if (jdbcType == JdbcType.VARBINARY) {
+            return byte[].class;
+        }
+        if (jdbcType == JdbcType.DOUBLE) {
+            return Double.class;
+        }
+        return String.class;
+    }
+}
@@ -0,0 +1,151 @@
+package com.project.spar.reactive;
+
+import com.project.spar.cache.DeviceRegistry;
+import com.project.spar.constants.AppConstants;
+import com.project.spar.dto.MetricsBatchDTO;
+import com.project.spar.event.MetricsIngestedEvent;
+import com.project.spar.security.JwtUtils;
+import com.project.spar.security.VerifiedTokenCache;
+import com.project.spar.service.MetricsBatchService;
+import com.project.spar.service.TokenService;
+import io.jsonwebtoken.Claims;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.codec.DecodingException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import org.springframework.web.server.ServerWebInputException;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.concurrent.Semaphore;
+
+/**
+ * {@code POST /api/metrics/batch} on the reactive port.
+ * <p>
+ * This is load shedding, not streaming backpressure: each body is buffered
+ * whole before it is decoded (capped at {@code ingest.reactive.maxBodyBytes}),
+ * and once {@code ingest.reactive.maxInFlight} batches are being decoded or
+ * written the next request is turned away with a 503 and {@code Retry-After},
+ * like a full MVC ingest queue, before its body is read.
+ * Authentication mirrors {@code AuthTokenFilter}: a verified, unrevoked bearer token.
+ */
+@Component
+@ConditionalOnProperty(name = "ingest.reactive.enabled", havingValue = "true")
+public class ReactiveIngestHandler {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReactiveIngestHandler.class);
+
+    @Value("${ingest.reactive.maxInFlight:2000}") private int maxInFlight;
+
+    @Autowired
+    private ReactiveMetricsWriter writer;
+
+    @Autowired
+    private MetricsBatchService metricsBatchService;
+
+    @Autowired
+    private DeviceRegistry deviceRegistry;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private JwtUtils jwtUtils;
+
+    @Autowired
+    private VerifiedTokenCache verifiedTokenCache;
+
+    @Autowired
+    private TokenService tokenService;
+
+    private Semaphore inFlight;
+
+    @PostConstruct
+    void init() {
+        inFlight = new Semaphore(maxInFlight);
+    }
+
+    public Mono<ServerResponse> publishBatch(ServerRequest request) {
+        return isAuthenticated(request.headers().firstHeader(HttpHeaders.AUTHORIZATION))
+                .flatMap(authenticated -> authenticated
+                        ? accept(request)
+                        : ServerResponse.status(HttpStatus.UNAUTHORIZED).bodyValue(AppConstants.ERROR_UNAUTHORIZED));
+    }
+
+    private Mono<ServerResponse> accept(ServerRequest request) {
+        if (!inFlight.tryAcquire()) {
+            logger.warn("Reactive ingest at capacity ({} in flight), rejecting batch", maxInFlight);
+            return ServerResponse.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .bodyValue(AppConstants.INGEST_QUEUE_FULL);
+        }
+        return request.bodyToMono(MetricsBatchDTO.class)
+                .flatMap(this::persist)
+                .then(ServerResponse.accepted().bodyValue(AppConstants.METRIC_SUCCESS))
+                .onErrorResume(IllegalArgumentException.class,
+                        e -> ServerResponse.badRequest().bodyValue(e.getMessage()))
+                .onErrorResume(e -> e instanceof DecodingException || e instanceof ServerWebInputException,
+                        e -> ServerResponse.badRequest().bodyValue(AppConstants.ERROR_GENERIC))
+                .onErrorResume(e -> {
+                    logger.error("Error during reactive publishBatch", e);
+                    return ServerResponse.status(HttpStatus.INTERNAL_SERVER_ERROR).bodyValue(AppConstants.ERROR_GENERIC);
+                })
+                .doFinally(signal -> inFlight.release());
+    }
+
+    private Mono<Void> persist(MetricsBatchDTO batch) {
+        Long userId = batch.getUserId();
+        String deviceId = batch.getDeviceId();
+        try {
+            MetricsBatchService.validate(batch);
+        } catch (IllegalArgumentException e) {
+            return Mono.error(e);
+        }
+        return resolveDevice(userId, deviceId)
+                .flatMap(deviceSpecId -> writer.write(deviceSpecId, batch)
+                        // committed: caches, stream and validators update as for the MVC path
+                        .doOnNext(ts -> eventPublisher.publishEvent(
+                                new MetricsIngestedEvent(userId, deviceSpecId, deviceId, batch, ts))))
+                .then();
+    }
+
+    // registered devices resolve in memory; the first batch of an unknown one queries JPA off the event loop
+    private Mono<Long> resolveDevice(Long userId, String deviceId) {
+        var known = deviceRegistry.find(userId, deviceId);
+        if (known.isPresent()) {
+            return Mono.just(known.get());
+        }
+        return Mono.fromCallable(() -> metricsBatchService.resolveDeviceId(userId, deviceId))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    // a token the cache cannot vouch for is checked against the tokens table off the event loop
+    private Mono<Boolean> isAuthenticated(String header) {
+        if (header == null || !header.startsWith("Bearer ")) {
+            return Mono.just(false);
+        }
+        String token = header.substring(7);
+        Claims claims = verifiedTokenCache.get(token);
+        if (claims == null) {
+            claims = jwtUtils.parseClaims(token);
+            if (claims == null) {
+                return Mono.just(false);
+            }
+            verifiedTokenCache.put(token, claims);
+        }
+        String jti = claims.getId();
+        return tokenService.cachedValidity(jti)
+                .map(Mono::just)
+                .orElseGet(() -> Mono.fromCallable(() -> tokenService.isJtiValid(jti))
+                        .subscribeOn(Schedulers.boundedElastic()));
+    }
+}
@@ -0,0 +1,74 @@
+package com.project.spar.reactive;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.http.server.reactive.ReactorHttpHandlerAdapter;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.HandlerStrategies;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+import static org.springframework.web.reactive.function.server.RequestPredicates.POST;
+
+/**
+ * Runs the reactive ingest endpoint on its own Reactor Netty port next to the
+ * Tomcat server, which keeps every MVC endpoint (including the blocking
+ * {@code /api/metrics/batch}). Started only with {@code ingest.reactive.enabled}.
+ */
+@Component
+@ConditionalOnProperty(name = "ingest.reactive.enabled", havingValue = "true")
+public class ReactiveIngestServer {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReactiveIngestServer.class);
+
+    @Value("${ingest.reactive.address:0.0.0.0}") private String address;
+    @Value("${ingest.reactive.port:8081}") private int port;
+    @Value("${ingest.reactive.maxBodyBytes:1048576}") private int maxBodyBytes;
+
+    @Autowired
+    private ReactiveIngestHandler handler;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private DisposableServer server;
+
+    @PostConstruct
+    void start() {
+        RouterFunction<ServerResponse> routes = RouterFunctions.route(POST("/api/metrics/batch"), handler::publishBatch);
+        HandlerStrategies strategies = HandlerStrategies.builder()
+                .codecs(codecs -> {
+                    codecs.defaultCodecs().jackson2JsonDecoder(new Jackson2JsonDecoder(objectMapper));
+                    codecs.defaultCodecs().jackson2JsonEncoder(new Jackson2JsonEncoder(objectMapper));
+                    codecs.defaultCodecs().maxInMemorySize(maxBodyBytes);
+                })
+                .build();
+        server = HttpServer.create()
+                .host(address)
+                .port(port)
+                .handle(new ReactorHttpHandlerAdapter(RouterFunctions.toHttpHandler(routes, strategies)))
+                .bindNow();
+        logger.info("Reactive ingest listening on {}:{}", address, server.port());
+    }
+
+    /** The bound port, which differs from the configured one when that is 0. */
+    public int getPort() {
+        return server.port();
+    }
+
+    @PreDestroy
+    void stop() {
+        server.disposeNow();
+    }
+}
@@ -0,0 +1,232 @@
+package com.project.spar.reactive;
+
+import com.project.spar.cluster.ClusterMembership;
+import com.project.spar.constants.AppConstants;
+import com.project.spar.dto.*;
+import com.project.spar.mapper.MetricHistoryMapper;
+import com.project.spar.mapper.MetricsBatchMapper;
+import com.project.spar.model.MetricRollup;
+import com.project.spar.model.PerCoreUsage;
+import com.project.spar.model.SeriesMetric;
+import com.project.spar.service.DeviceSampleService;
+import com.project.spar.service.DeviceWriteLocks;
+import com.project.spar.service.MetricHistoryService;
+import com.project.spar.shard.ShardRouter;
+import io.r2dbc.spi.Closeable;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.r2dbc.connection.R2dbcTransactionManager;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * R2DBC counterpart of {@code MetricsBatchService.persistMetrics} for the
+ * reactive ingest endpoint: the {@code MetricsBatchMapper} and
+ * {@code MetricHistoryMapper} statements, run through {@link MapperStatements}
+ * in one transaction without holding a thread while the database works.
+ * <p>
+ * The connection factory and transaction manager are private to this class on
+ * purpose: registered as beans they would compete with the JPA transaction
+ * manager for every {@code @Transactional} method. Generated ids of disk and
+ * process rows are not read back, so those lists are loaded into the cache on
+ * the next read instead of from the batch.
+ * <p>
+ * Writes hold the device's {@link DeviceWriteLocks} stripe, the same one the
+ * MVC endpoints and the ingest pipeline take, but wait for it without holding
+ * a thread; so no two writes for one device, from either port, interleave
+ * their deletes and inserts.
+ */
+@Component
+@ConditionalOnProperty(name = "ingest.reactive.enabled", havingValue = "true")
+public class ReactiveMetricsWriter {
+
+    private static final String BATCH = MetricsBatchMapper.class.getName() + ".";
+    private static final String HISTORY = MetricHistoryMapper.class.getName() + ".";
+
+    @Value("${ingest.reactive.r2dbcUrl}") private String url;
+    @Value("${ingest.reactive.username:${spring.datasource.username:}}") private String username;
+    @Value("${ingest.reactive.password:${spring.datasource.password:}}") private String password;
+
+    @Autowired
+    private DeviceSampleService deviceSampleService;
+
+    @Autowired
+    private MetricHistoryService metricHistoryService;
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    @Autowired
+    private ClusterMembership clusterMembership;
+
+    @Autowired
+    private DeviceWriteLocks deviceWriteLocks;
+
+    @Autowired
+    private SqlSessionFactory sqlSessionFactory;
+
+    private ConnectionFactory connectionFactory;
+    private MapperStatements sql;
+    private TransactionalOperator tx;
+
+    @PostConstruct
+    void init() {
+        if (deviceSampleService.isEnabled()) {
+            throw new IllegalStateException("ingest.reactive only supports storage.layout=split");
+        }
+        if (shardRouter.isEnabled()) {
+            throw new IllegalStateException("ingest.reactive writes to one database and cannot be used with shard.enabled");
+        }
+        if (clusterMembership.isEnabled()) {
+            throw new IllegalStateException("ingest.reactive bypasses request forwarding and cannot be used with cluster.enabled");
+        }
+        ConnectionFactoryOptions.Builder options = ConnectionFactoryOptions.parse(url).mutate();
+        if (!username.isEmpty()) {
+            options.option(ConnectionFactoryOptions.USER, username);
+            options.option(ConnectionFactoryOptions.PASSWORD, password);
+        }
+        connectionFactory = ConnectionFactories.get(options.build());
+        sql = new MapperStatements(sqlSessionFactory.getConfiguration(), DatabaseClient.create(connectionFactory));
+        tx = TransactionalOperator.create(new R2dbcTransactionManager(connectionFactory));
+    }
+
+    @PreDestroy
+    void close() {
+        if (connectionFactory instanceof Closeable closeable) {
+            Mono.from(closeable.close()).block(Duration.ofSeconds(5));
+        }
+    }
+
+    /**
+     * Writes a validated batch in one transaction and emits the sample time
+     * stored with its rows once committed. The write starts once the
+     * device's {@link DeviceWriteLocks} stripe is free.
+     */
+    public Mono<LocalDateTime> write(Long deviceSpecId, MetricsBatchDTO batch) {
+        return deviceWriteLocks.withLockReactive(deviceSpecId, Mono.defer(() -> writeNow(deviceSpecId, batch)));
+    }
+
+    private Mono<LocalDateTime> writeNow(Long deviceSpecId, MetricsBatchDTO batch) {
+        LocalDateTime now = LocalDateTime.now();
+        List<Mono<Long>> statements = new ArrayList<>();
+
+        BatteryInfoDTO bi = batch.getBatteryInfo();
+        if (bi != null) {
+            statements.add(sql.update(BATCH + "upsertBatteryInfo", params(deviceSpecId, now,
+                    "hasBattery", bi.isHasBattery(), "batteryPercentage", bi.getBatteryPercentage(),
+                    "charging", bi.isCharging(), "powerConsumption", bi.getPowerConsumption())));
+        }
+        CpuUsageDTO cu = batch.getCpuUsage();
+        if (cu != null) {
+            statements.add(sql.update(BATCH + "upsertCpuUsage", params(deviceSpecId, now,
+                    "totalCpuLoad", cu.getTotalCpuLoad(),
+                    "perCoreUsagePacked", PerCoreUsage.pack(cu.getPerCoreUsage()))));
+        }
+        RamUsageDTO ru = batch.getRamUsage();
+        if (ru != null) {
+            statements.add(sql.update(BATCH + "upsertRamUsage", params(deviceSpecId, now,
+                    "totalMemory", ru.getTotalMemory(), "usedMemory", ru.getUsedMemory(),
+                    "availableMemory", ru.getAvailableMemory())));
+        }
+        DiskIODTO dio = batch.getDiskIO();
+        if (dio != null) {
+            statements.add(sql.update(BATCH + "upsertDiskIO", params(deviceSpecId, now,
+                    "readSpeedMBps", dio.getReadSpeedMBps(), "writeSpeedMBps", dio.getWriteSpeedMBps())));
+        }
+
+        if (metricHistoryService.isEnabled()) {
+            Map<SeriesMetric, Double> values = MetricHistoryService.valuesOf(batch);
+            if (!values.isEmpty()) {
+                statements.add(recordHistory(deviceSpecId, now, values));
+            }
+        }
+
+        List<DiskUsageDTO> duList = batch.getDiskUsage();
+        if (duList != null) {
+            statements.add(sql.update(BATCH + "deleteDiskUsage", params(deviceSpecId, now)));
+            if (!duList.isEmpty()) {
+                statements.add(sql.update(BATCH + "insertDiskUsage", params(deviceSpecId, now, "rows", duList)));
+            }
+        }
+        List<ProcessStatusDTO> psList = batch.getProcessStatuses();
+        if (psList != null) {
+            statements.add(sql.update(BATCH + "deleteProcessStatuses", params(deviceSpecId, now)));
+            List<ProcessStatusDTO> snapshot = psList.stream().limit(AppConstants.MAX_PROCESSES).toList();
+            if (!snapshot.isEmpty()) {
+                statements.add(sql.update(BATCH + "insertProcessStatuses", params(deviceSpecId, now, "rows", snapshot)));
+            }
+        }
+
+        // statements are cold until subscribed, so they run one after another inside the transaction
+        return Flux.concat(statements)
+                .then(Mono.just(now))
+                .as(tx::transactional);
+    }
+
+    // the steps of MetricHistoryService.record, on the same MetricHistoryMapper statements
+    private Mono<Long> recordHistory(Long deviceSpecId, LocalDateTime ts, Map<SeriesMetric, Double> values) {
+        Map<String, Object> sampled = params(deviceSpecId, ts, "metrics", values.keySet());
+        return sql.select(HISTORY + "selectSampledMetrics", sampled, row -> row.get("metric", Integer.class))
+                .collectList()
+                .map(MetricHistoryService::metricsOf)
+                .flatMap(overwritten -> {
+                    List<MetricRollup> rollups = MetricHistoryService.rollupsOf(deviceSpecId, ts, values, overwritten);
+                    return sql.update(HISTORY + "insertSamples",
+                                    rows(MetricHistoryService.samplesOf(deviceSpecId, ts, values)))
+                            .then(rollups.isEmpty() ? Mono.just(0L) : sql.update(HISTORY + "upsertRollups", rows(rollups)))
+                            .thenMany(Flux.fromIterable(MetricHistoryService.bucketsOf(deviceSpecId, ts, overwritten))
+                                    .concatMap(this::recompute))
+                            .collectList()
+                            .flatMap(buckets -> buckets.isEmpty()
+                                    ? Mono.just(0L)
+                                    : sql.update(HISTORY + "replaceRollups", rows(buckets)));
+                });
+    }
+
+    private Mono<MetricRollup> recompute(MetricRollup bucket) {
+        Map<String, Object> range = new HashMap<>();
+        range.put("deviceSpecId", bucket.getDeviceSpecId());
+        range.put("metric", bucket.getMetric());
+        range.put("from", bucket.getBucketStart());
+        range.put("to", bucket.getResolution().bucketAfter(bucket.getBucketStart()));
+        return sql.select(HISTORY + "aggregateSamples", range, row -> new MetricRollup(null, null, null, null,
+                        row.get("minVal", Double.class), row.get("maxVal", Double.class),
+                        row.get("sumVal", Double.class), row.get("sampleCount", Long.class)))
+                .single()
+                .map(aggregate -> MetricHistoryService.recomputed(bucket, aggregate));
+    }
+
+    // the @Param names of the mapper methods: deviceSpecId and ts, then name/value pairs
+    private static Map<String, Object> params(Long deviceSpecId, LocalDateTime ts, Object... more) {
+        Map<String, Object> params = new HashMap<>();
+        params.put("deviceSpecId", deviceSpecId);
+        params.put("ts", ts);
+        for (int i = 0; i < more.length; i += 2) {
+            params.put((String) more[i], more[i + 1]);
+        }
+        return params;
+    }
+
+    private static Map<String, Object> rows(List<?> rows) {
+        Map<String, Object> params = new HashMap<>();
+        params.put("rows", rows);
+        return params;
+    }
+}
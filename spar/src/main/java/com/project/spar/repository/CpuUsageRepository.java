@@ -1,8 +1,8 @@
 package com.project.spar.repository;
 
 import com.project.spar.model.CpuUsage;
+import com.project.spar.model.CpuUsageView;
 import com.project.spar.model.DeviceSpecification;
-import com.project.spar.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
@@ -10,7 +10,5 @@ import java.util.Optional;
 
 @Repository
 public interface CpuUsageRepository extends JpaRepository<CpuUsage, Long> {
-    void deleteByUserAndDevice(User user, DeviceSpecification device);
-    Optional<CpuUsage> findTopByUserAndDeviceOrderByTimestampDesc(User user, DeviceSpecification device);
-
+    Optional<CpuUsageView> findTopByDeviceOrderByTimestampDesc(DeviceSpecification device);
 }
@@ -2,7 +2,7 @@ package com.project.spar.repository;
 
 import com.project.spar.model.DeviceSpecification;
 import com.project.spar.model.DiskIO;
-import com.project.spar.model.User;
+import com.project.spar.model.DiskIOView;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
@@ -10,8 +10,5 @@ import java.util.Optional;
 
 @Repository
 public interface DiskIORepository extends JpaRepository<DiskIO, Long> {
-    void deleteByUserAndDevice(User user, DeviceSpecification device);
-    Optional<DiskIO> findTopByUserAndDeviceOrderByTimestampDesc(User user, DeviceSpecification device);
-
+    Optional<DiskIOView> findTopByDeviceOrderByTimestampDesc(DeviceSpecification device);
 }
-
@@ -3,6 +3,7 @@ package com.project.spar.repository;
 import com.project.spar.model.Token;
 import org.springframework.data.jpa.repository.JpaRepository;
 
+import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
 
@@ -11,6 +12,7 @@ public interface TokenRepository extends JpaRepository<Token, Long> {
     void deleteByJti(String jti);
     List<Token> findByUsername(String username);
     void deleteByUsername(String username);
+    List<Token> findByExpiresAtAfter(Instant cutoff);
 
     boolean existsByJti(String jti);
 }
@@ -2,6 +2,7 @@
 package com.project.spar.security;
 
 import com.project.spar.service.TokenService;
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -9,6 +10,7 @@ import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
@@ -24,6 +26,7 @@ public class AuthTokenFilter extends OncePerRequestFilter {
     private final JwtUtils jwtUtils;
     private final UserDetailsServiceImpl userDetailsService;
     private final TokenService tokenService;
+    private final VerifiedTokenCache verifiedTokenCache;
 
     @Override
     protected void doFilterInternal(HttpServletRequest req,
@@ -34,16 +37,29 @@ public class AuthTokenFilter extends OncePerRequestFilter {
         String header = req.getHeader("Authorization");
         if (StringUtils.hasText(header) && header.startsWith("Bearer ")) {
             String token = header.substring(7);
-            if (jwtUtils.validateToken(token)) {
-                String jti = jwtUtils.getJtiFromToken(token);
+            // one signature check per token lifetime; repeat requests hit the cache
+            Claims claims = verifiedTokenCache.get(token);
+            if (claims == null) {
+                claims = jwtUtils.parseClaims(token);
+                if (claims != null) {
+                    verifiedTokenCache.put(token, claims);
+                }
+            }
+            if (claims != null) {
+                String jti = claims.getId();
                 // if the JTI has been deleted, the token is revoked
                 if (!tokenService.isJtiValid(jti)) {
                     res.sendError(HttpStatus.UNAUTHORIZED.value(), "Token revoked or expired");
                     return;
                 }
 
-                String username = jwtUtils.getUsernameFromToken(token);
-                UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+                String username = claims.getSubject();
+                Long userId = jwtUtils.getUserId(claims);
+                // tokens issued before the uid claim still need the user row
+                UserDetails userDetails = userId != null
+                        ? UserDetailsImpl.fromClaims(userId, username, jwtUtils.getRoles(claims).stream()
+                                .map(SimpleGrantedAuthority::new).toList())
+                        : userDetailsService.loadCachedUserByUsername(username);
                 UsernamePasswordAuthenticationToken auth =
                         new UsernamePasswordAuthenticationToken(
                                 userDetails, null, userDetails.getAuthorities());
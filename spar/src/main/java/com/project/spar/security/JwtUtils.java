@@ -2,51 +2,84 @@
 package com.project.spar.security;
 
 import io.jsonwebtoken.*;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
+import java.util.Collection;
 import java.util.Date;
+import java.util.List;
 import java.util.UUID;
 
 @Component
 public class JwtUtils {
+    public static final String CLAIM_USER_ID = "uid";
+    public static final String CLAIM_ROLES = "roles";
+
     @Value("${jwt.secret}") private String jwtSecret;
     @Value("${jwt.expirationMs}") private Long jwtExpirationMs;
 
-    public String generateToken(String username) {
+    // immutable and thread-safe, so built once instead of per call
+    private JwtParser parser;
+
+    @PostConstruct
+    void initParser() {
+        parser = Jwts.parserBuilder().setSigningKey(jwtSecret).build();
+    }
+
+    /**
+     * Issues a token whose claims carry everything the request filter needs to
+     * build the principal, so authenticated requests never reload the user.
+     */
+    public String generateToken(Long userId, String username, Collection<String> roles) {
         Date now = new Date();
         Date exp = new Date(now.getTime() + jwtExpirationMs);
         return Jwts.builder()
                 .setId(UUID.randomUUID().toString())
                 .setSubject(username)
+                .claim(CLAIM_USER_ID, userId)
+                .claim(CLAIM_ROLES, roles)
                 .setIssuedAt(now)
                 .setExpiration(exp)
                 .signWith(SignatureAlgorithm.HS256, jwtSecret)
                 .compact();
     }
 
+    /**
+     * Verifies the signature and expiry once and returns the claims, or
+     * {@code null} if the token is invalid. Prefer this over calling the
+     * single-claim getters one after another.
+     */
+    public Claims parseClaims(String token) {
+        try {
+            return parser.parseClaimsJws(token).getBody();
+        } catch (JwtException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /** The user id claim, or {@code null} for tokens issued before it existed. */
+    public Long getUserId(Claims claims) {
+        return claims.get(CLAIM_USER_ID, Long.class);
+    }
+
+    public List<String> getRoles(Claims claims) {
+        Object roles = claims.get(CLAIM_ROLES);
+        if (!(roles instanceof Collection<?> c)) {
+            return List.of();
+        }
+        return c.stream().map(String::valueOf).toList();
+    }
+
     public String getUsernameFromToken(String token) {
-        return Jwts.parser()
-                .setSigningKey(jwtSecret)
-                .parseClaimsJws(token)
-                .getBody()
-                .getSubject();
+        return parser.parseClaimsJws(token).getBody().getSubject();
     }
 
     public String getJtiFromToken(String token) {
-        return Jwts.parser()
-                .setSigningKey(jwtSecret)
-                .parseClaimsJws(token)
-                .getBody()
-                .getId();
+        return parser.parseClaimsJws(token).getBody().getId();
     }
 
     public boolean validateToken(String token) {
-        try {
-            Jwts.parser().setSigningKey(jwtSecret).parseClaimsJws(token);
-            return true;
-        } catch (JwtException e) {
-            return false;
-        }
+        return parseClaims(token) != null;
     }
 
     public long getExpirationMs() {
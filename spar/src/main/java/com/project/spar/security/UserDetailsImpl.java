@@ -1,15 +1,37 @@
 package com.project.spar.security;
 
 import com.project.spar.model.User;
-import lombok.AllArgsConstructor;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.GrantedAuthority;
 import java.util.Collection;
+import java.util.List;
 
-@AllArgsConstructor
 public class UserDetailsImpl implements UserDetails {
-    private User user;
-    public Collection<? extends GrantedAuthority> getAuthorities(){ return null; }
+    private final User user;
+    private final Collection<? extends GrantedAuthority> authorities;
+
+    public UserDetailsImpl(User user) {
+        this(user, List.of());
+    }
+
+    public UserDetailsImpl(User user, Collection<? extends GrantedAuthority> authorities) {
+        this.user = user;
+        this.authorities = authorities;
+    }
+
+    /**
+     * Principal rebuilt from verified token claims without reading the users
+     * table. It carries no password and must not be used for authentication.
+     */
+    public static UserDetailsImpl fromClaims(Long id, String username,
+                                             Collection<? extends GrantedAuthority> authorities) {
+        User u = new User();
+        u.setId(id);
+        u.setUsername(username);
+        return new UserDetailsImpl(u, authorities);
+    }
+
+    public Collection<? extends GrantedAuthority> getAuthorities(){ return authorities; }
     public String getPassword(){ return user.getPassword(); }
     public String getUsername(){ return user.getUsername(); }
 
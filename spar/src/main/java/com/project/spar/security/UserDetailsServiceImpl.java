@@ -5,16 +5,47 @@ import com.project.spar.model.User;
 import com.project.spar.repository.UserRepository;
 import org.springframework.security.core.userdetails.*;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.util.concurrent.ConcurrentHashMap;
+
 @Service
 public class UserDetailsServiceImpl implements UserDetailsService {
+    // cap on cached users before expired ones are swept
+    private static final int MAX_CACHED_USERS = 10_000;
+
     @Autowired private UserRepository userRepo;
 
+    @Value("${jwt.userCacheTtlMs:60000}") private long userCacheTtlMs;
+
+    private record CachedUser(UserDetails details, long expiresAtMs) {}
+
+    private final ConcurrentHashMap<String, CachedUser> cache = new ConcurrentHashMap<>();
+
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
         User u = userRepo.findByUsername(username)
                 .orElseThrow(() -> new UsernameNotFoundException(AppConstants.USER_NOT_FOUND));
         return new UserDetailsImpl(u);
     }
+
+    /**
+     * Same as {@link #loadUserByUsername} but served from a short-lived cache.
+     * For request-time lookups only; sign-in must keep using the uncached
+     * method so password changes take effect immediately.
+     */
+    public UserDetails loadCachedUserByUsername(String username) throws UsernameNotFoundException {
+        long now = System.currentTimeMillis();
+        CachedUser cached = cache.get(username);
+        if (cached != null && cached.expiresAtMs() > now) {
+            return cached.details();
+        }
+        UserDetails details = loadUserByUsername(username);
+        if (cache.size() >= MAX_CACHED_USERS) {
+            cache.values().removeIf(c -> c.expiresAtMs() <= now);
+        }
+        cache.put(username, new CachedUser(details, now + userCacheTtlMs));
+        return details;
+    }
 }
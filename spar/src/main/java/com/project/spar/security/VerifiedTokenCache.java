@@ -0,0 +1,80 @@
+package com.project.spar.security;
+
+import io.jsonwebtoken.Claims;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Bounded cache of tokens whose signature has already been verified, keyed by
+ * a SHA-256 hash of the token so raw tokens are never held. An entry lives until
+ * the token's own {@code exp}; pollers that reuse one token then skip the HMAC
+ * check and JSON parsing on every request after the first.
+ * <p>
+ * Revocation is not cached here: callers still check the JTI on every request.
+ */
+@Component
+public class VerifiedTokenCache {
+
+    @Value("${jwt.verifiedCacheSize:10000}") private int maxEntries;
+
+    private final ConcurrentHashMap<String, Claims> entries = new ConcurrentHashMap<>();
+
+    public Claims get(String token) {
+        String key = hash(token);
+        Claims claims = entries.get(key);
+        if (claims == null) {
+            return null;
+        }
+        if (isExpired(claims, new Date())) {
+            entries.remove(key, claims);
+            return null;
+        }
+        return claims;
+    }
+
+    public void put(String token, Claims claims) {
+        if (claims.getExpiration() == null) {
+            return; // never cache a token that would not expire
+        }
+        if (entries.size() >= maxEntries) {
+            makeRoom();
+        }
+        entries.put(hash(token), claims);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    // drop expired entries first, then arbitrary ones until a tenth is free
+    private void makeRoom() {
+        Date now = new Date();
+        entries.values().removeIf(c -> isExpired(c, now));
+        Iterator<String> keys = entries.keySet().iterator();
+        while (entries.size() >= maxEntries * 9 / 10 && keys.hasNext()) {
+            keys.next();
+            keys.remove();
+        }
+    }
+
+    private static boolean isExpired(Claims claims, Date now) {
+        return !claims.getExpiration().after(now);
+    }
+
+    private static String hash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
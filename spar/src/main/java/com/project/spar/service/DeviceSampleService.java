@@ -0,0 +1,171 @@
+package com.project.spar.service;
+
+import com.project.spar.dto.*;
+import com.project.spar.mapper.DeviceSampleMapper;
+import com.project.spar.mapper.DeviceSampleMapper.Scalar;
+import com.project.spar.model.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Reads and writes the wide {@code device_samples} layout, enabled with
+ * {@code storage.layout=wide}. A batch tick becomes one insert instead of four
+ * upserts, and the latest values of a device are one primary-key lookup.
+ * <p>
+ * Rows are turned back into the same read views the per-type repositories
+ * return, so callers do not care which layout is active. Like the per-type
+ * latest rows, such a view has a stable id per device: the device's own
+ * primary key.
+ * <p>
+ * The latest value of one type is taken from the newest row when it carries
+ * that type, which is the usual case; otherwise only the device's
+ * {@code storage.latestLookbackRows} newest rows are searched.
+ */
+@Service
+public class DeviceSampleService {
+
+    @Value("${storage.layout:split}") private String layout;
+    @Value("${storage.latestLookbackRows:1000}") private int lookbackRows;
+
+    @Autowired
+    private DeviceSampleMapper deviceSampleMapper;
+
+    public boolean isEnabled() {
+        return "wide".equalsIgnoreCase(layout);
+    }
+
+    public void write(DeviceSample sample) {
+        deviceSampleMapper.insert(sample);
+    }
+
+    public int deleteSupersededBefore(LocalDateTime cutoff, int limit) {
+        return deviceSampleMapper.deleteSupersededBefore(cutoff, limit);
+    }
+
+    public static boolean hasScalars(MetricsBatchDTO batch) {
+        return batch.getBatteryInfo() != null || batch.getCpuUsage() != null
+                || batch.getRamUsage() != null || batch.getDiskIO() != null;
+    }
+
+    /** The scalar part of a batch as one wide row. */
+    public static DeviceSample fromBatch(Long deviceSpecId, LocalDateTime ts, MetricsBatchDTO batch) {
+        DeviceSample s = new DeviceSample(deviceSpecId, ts);
+        BatteryInfoDTO bi = batch.getBatteryInfo();
+        if (bi != null) {
+            s.setHasBattery(bi.isHasBattery());
+            s.setBatteryPercentage(bi.getBatteryPercentage());
+            s.setIsCharging(bi.isCharging());
+            s.setPowerConsumption(bi.getPowerConsumption());
+        }
+        CpuUsageDTO cu = batch.getCpuUsage();
+        if (cu != null) {
+            s.setTotalCpuLoad(cu.getTotalCpuLoad());
+            s.setPerCoreUsagePacked(PerCoreUsage.pack(cu.getPerCoreUsage()));
+        }
+        RamUsageDTO ru = batch.getRamUsage();
+        if (ru != null) {
+            s.setTotalMemory(ru.getTotalMemory());
+            s.setUsedMemory(ru.getUsedMemory());
+            s.setAvailableMemory(ru.getAvailableMemory());
+        }
+        DiskIODTO dio = batch.getDiskIO();
+        if (dio != null) {
+            s.setReadSpeedMBps(dio.getReadSpeedMBps());
+            s.setWriteSpeedMBps(dio.getWriteSpeedMBps());
+        }
+        return s;
+    }
+
+    public Optional<DeviceSample> latest(Long deviceSpecId) {
+        return Optional.ofNullable(deviceSampleMapper.selectLatest(deviceSpecId));
+    }
+
+    public Optional<BatteryInfoView> latestBatteryInfo(DeviceSpecification device) {
+        return latestOf(device.getId(), Scalar.BATTERY_INFO, s -> toBatteryInfo(s, device));
+    }
+
+    public Optional<CpuUsageView> latestCpuUsage(DeviceSpecification device) {
+        return latestOf(device.getId(), Scalar.CPU_USAGE, s -> toCpuUsage(s, device));
+    }
+
+    public Optional<RamUsageView> latestRamUsage(DeviceSpecification device) {
+        return latestOf(device.getId(), Scalar.RAM_USAGE, s -> toRamUsage(s, device));
+    }
+
+    public Optional<DiskIOView> latestDiskIO(DeviceSpecification device) {
+        return latestOf(device.getId(), Scalar.DISK_IO, s -> toDiskIO(s, device));
+    }
+
+    private <T> Optional<T> latestOf(Long deviceSpecId, Scalar scalar, Function<DeviceSample, Optional<T>> view) {
+        DeviceSample newest = deviceSampleMapper.selectLatest(deviceSpecId);
+        if (newest == null) {
+            return Optional.empty();
+        }
+        Optional<T> value = view.apply(newest);
+        if (value.isPresent()) {
+            return value;
+        }
+        return Optional.ofNullable(deviceSampleMapper.selectLatestWith(deviceSpecId, scalar, lookbackRows))
+                .flatMap(view);
+    }
+
+    public static Optional<BatteryInfoView> toBatteryInfo(DeviceSample s, DeviceSpecification device) {
+        if (s.getHasBattery() == null) {
+            return Optional.empty();
+        }
+        BatteryInfo bi = new BatteryInfo();
+        bi.setId(device.getId());
+        bi.setHasBattery(s.getHasBattery());
+        bi.setBatteryPercentage(s.getBatteryPercentage() == null ? 0 : s.getBatteryPercentage());
+        bi.setCharging(Boolean.TRUE.equals(s.getIsCharging()));
+        bi.setPowerConsumption(s.getPowerConsumption());
+        bi.setTimestamp(s.getTs());
+        bi.setDevice(device);
+        return Optional.of(bi);
+    }
+
+    public static Optional<CpuUsageView> toCpuUsage(DeviceSample s, DeviceSpecification device) {
+        if (s.getTotalCpuLoad() == null) {
+            return Optional.empty();
+        }
+        CpuUsage cu = new CpuUsage();
+        cu.setId(device.getId());
+        cu.setTotalCpuLoad(s.getTotalCpuLoad());
+        cu.setPerCoreUsagePacked(s.getPerCoreUsagePacked());
+        cu.setTimestamp(s.getTs());
+        cu.setDevice(device);
+        return Optional.of(cu);
+    }
+
+    public static Optional<RamUsageView> toRamUsage(DeviceSample s, DeviceSpecification device) {
+        if (s.getUsedMemory() == null) {
+            return Optional.empty();
+        }
+        RamUsage ru = new RamUsage();
+        ru.setId(device.getId());
+        ru.setTotalMemory(s.getTotalMemory() == null ? 0 : s.getTotalMemory());
+        ru.setUsedMemory(s.getUsedMemory());
+        ru.setAvailableMemory(s.getAvailableMemory() == null ? 0 : s.getAvailableMemory());
+        ru.setTimestamp(s.getTs());
+        ru.setDevice(device);
+        return Optional.of(ru);
+    }
+
+    public static Optional<DiskIOView> toDiskIO(DeviceSample s, DeviceSpecification device) {
+        if (s.getReadSpeedMBps() == null) {
+            return Optional.empty();
+        }
+        DiskIO dio = new DiskIO();
+        dio.setId(device.getId());
+        dio.setReadSpeedMBps(s.getReadSpeedMBps());
+        dio.setWriteSpeedMBps(s.getWriteSpeedMBps() == null ? 0 : s.getWriteSpeedMBps());
+        dio.setTimestamp(s.getTs());
+        dio.setDevice(device);
+        return Optional.of(dio);
+    }
+}
@@ -0,0 +1,256 @@
+package com.project.spar.service;
+
+import com.project.spar.cache.DeviceMetrics;
+import com.project.spar.cache.DeviceRegistry;
+import com.project.spar.cache.LatestMetricsCache;
+import com.project.spar.constants.AppConstants;
+import com.project.spar.dto.*;
+import com.project.spar.model.DeviceSample;
+import com.project.spar.model.DeviceSpecification;
+import com.project.spar.model.User;
+import com.project.spar.repository.DeviceSpecificationRepository;
+import com.project.spar.repository.UserRepository;
+import com.project.spar.shard.ShardRouter;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Builds the all-metrics snapshot of a device.
+ * <p>
+ * A snapshot is served from one immutable cache entry when it holds every
+ * requested field; otherwise all requested fields are read from the database
+ * inside one read-only transaction. Either way the fields form a single
+ * point-in-time view rather than a mix of cached and fresh values.
+ * <p>
+ * The device is resolved on the primary before the transaction starts, which
+ * then reads from the device's shard.
+ */
+@Service
+public class DeviceSnapshotService {
+
+    private static final Logger logger = LoggerFactory.getLogger(DeviceSnapshotService.class);
+
+    /** Selectable parts of a snapshot, named after the JSON properties. */
+    public enum Field {
+        BATTERY_INFO("batteryInfo"),
+        CPU_USAGE("cpuUsage"),
+        RAM_USAGE("ramUsage"),
+        DISK_IO("diskIO"),
+        DISK_USAGE("diskUsage"),
+        PROCESS_STATUSES("processStatuses");
+
+        private final String key;
+
+        Field(String key) {
+            this.key = key;
+        }
+
+        static Field fromKey(String key) {
+            return Arrays.stream(values())
+                    .filter(f -> f.key.toLowerCase(Locale.ROOT).equals(key.toLowerCase(Locale.ROOT)))
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalArgumentException(AppConstants.UNKNOWN_SNAPSHOT_FIELD + key));
+        }
+    }
+
+    @Autowired
+    private LatestMetricsCache latestMetricsCache;
+
+    @Autowired
+    private DeviceRegistry deviceRegistry;
+
+    @Autowired
+    private MetricsService metricsService;
+
+    @Autowired
+    private DeviceSampleService deviceSampleService;
+
+    @Autowired
+    private UserRepository userRepo;
+
+    @Autowired
+    private DeviceSpecificationRepository deviceRepo;
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate readOnlyTx;
+
+    @PostConstruct
+    void init() {
+        readOnlyTx = new TransactionTemplate(transactionManager);
+        readOnlyTx.setReadOnly(true);
+    }
+
+    /**
+     * Parses a comma separated field list; {@code null} or blank selects all.
+     *
+     * @throws IllegalArgumentException on an unknown field name
+     */
+    public static Set<Field> parseFields(String fields) {
+        if (fields == null || fields.isBlank()) {
+            return EnumSet.allOf(Field.class);
+        }
+        Set<Field> selected = EnumSet.noneOf(Field.class);
+        for (String key : fields.split(",")) {
+            if (!key.isBlank()) {
+                selected.add(Field.fromKey(key.trim()));
+            }
+        }
+        return selected;
+    }
+
+    public DeviceSnapshotDTO getSnapshot(Long userId, String deviceId, Set<Field> fields) {
+        var cached = latestMetricsCache.get(userId, deviceId);
+        if (cached.isPresent() && covers(cached.get(), fields)) {
+            logger.debug("getSnapshot served from cache for userId={} deviceId={}", userId, deviceId);
+            return toSnapshot(cached.get(), fields);
+        }
+        DeviceSpecification device = resolve(userId, deviceId);
+        return shardRouter.onShard(deviceId, () -> loadSnapshot(userId, deviceId, device, fields));
+    }
+
+    /**
+     * Snapshots of all of a user's devices, read from their shards in
+     * parallel; devices fully in the cache are answered from it.
+     */
+    public List<DeviceSnapshotDTO> getUserSnapshots(Long userId, Set<Field> fields) {
+        List<DeviceSpecification> devices = deviceRepo.findAllByUserId(userId);
+        devices.forEach(deviceRegistry::register);
+        return shardRouter.fanOut(devices, DeviceSpecification::getDeviceId, device -> {
+            var cached = latestMetricsCache.get(userId, device.getDeviceId());
+            return cached.isPresent() && covers(cached.get(), fields)
+                    ? toSnapshot(cached.get(), fields)
+                    : loadSnapshot(userId, device.getDeviceId(), device, fields);
+        });
+    }
+
+    // caller is on the device's shard; device may be an uninitialized reference, only its id is used
+    private DeviceSnapshotDTO loadSnapshot(Long userId, String deviceId, DeviceSpecification device,
+                                           Set<Field> fields) {
+        logger.debug("getSnapshot loading {} from database for userId={} deviceId={}", fields, userId, deviceId);
+        long readStarted = latestMetricsCache.readStarted();
+        DeviceMetrics loaded = readOnlyTx.execute(status -> load(userId, deviceId, device, fields));
+        latestMetricsCache.fill(userId, deviceId, readStarted, loaded);
+        return toSnapshot(loaded, fields);
+    }
+
+    private DeviceSpecification resolve(Long userId, String deviceId) {
+        var known = deviceRegistry.find(userId, deviceId);
+        if (known.isPresent()) {
+            return deviceRepo.getReferenceById(known.get());
+        }
+        User user = userRepo.findById(userId)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, AppConstants.USER_NOT_FOUND));
+        DeviceSpecification device = deviceRepo.findByUserAndDeviceId(user, deviceId)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.BAD_REQUEST, AppConstants.DEVICE_NOT_REGISTERED));
+        deviceRegistry.register(device);
+        return device;
+    }
+
+    private DeviceMetrics load(Long userId, String deviceId, DeviceSpecification device, Set<Field> fields) {
+        // in the wide layout the newest row usually holds every scalar type at once
+        DeviceSample latest = deviceSampleService.isEnabled()
+                ? deviceSampleService.latest(device.getId()).orElse(null)
+                : null;
+
+        DeviceMetrics m = DeviceMetrics.empty(userId, deviceId);
+        if (fields.contains(Field.BATTERY_INFO)) {
+            m = m.withBatteryInfo(orLoad(latest, s -> DeviceSampleService.toBatteryInfo(s, device),
+                            () -> metricsService.getLatestBatteryInfo(device))
+                    .map(bi -> new BatteryInfoDTO(bi.getId(), bi.isHasBattery(), bi.getBatteryPercentage(),
+                            bi.isCharging(), bi.getPowerConsumption(), userId, deviceId, bi.getTimestamp()))
+                    .orElse(null));
+        }
+        if (fields.contains(Field.CPU_USAGE)) {
+            m = m.withCpuUsage(orLoad(latest, s -> DeviceSampleService.toCpuUsage(s, device),
+                            () -> metricsService.getLatestCpuUsage(device))
+                    .map(cu -> new CpuUsageDTO(cu.getId(), cu.getTotalCpuLoad(), cu.getPerCoreUsage(),
+                            userId, deviceId, cu.getTimestamp()))
+                    .orElse(null));
+        }
+        if (fields.contains(Field.RAM_USAGE)) {
+            m = m.withRamUsage(orLoad(latest, s -> DeviceSampleService.toRamUsage(s, device),
+                            () -> metricsService.getLatestRamUsage(device))
+                    .map(ru -> new RamUsageDTO(ru.getId(), ru.getTotalMemory(), ru.getUsedMemory(),
+                            ru.getAvailableMemory(), userId, deviceId, ru.getTimestamp()))
+                    .orElse(null));
+        }
+        if (fields.contains(Field.DISK_IO)) {
+            m = m.withDiskIO(orLoad(latest, s -> DeviceSampleService.toDiskIO(s, device),
+                            () -> metricsService.getLatestDiskIO(device))
+                    .map(dio -> new DiskIODTO(dio.getId(), dio.getReadSpeedMBps(), dio.getWriteSpeedMBps(),
+                            userId, deviceId, dio.getTimestamp()))
+                    .orElse(null));
+        }
+        if (fields.contains(Field.DISK_USAGE)) {
+            m = m.withDiskUsage(metricsService.getLatestDiskUsage(device).stream()
+                    .map(du -> new DiskUsageDTO(du.getId(), du.getFilesystem(), du.getSizeGB(), du.getUsedGB(),
+                            du.getAvailableGB(), userId, deviceId, du.getTimestamp()))
+                    .toList());
+        }
+        if (fields.contains(Field.PROCESS_STATUSES)) {
+            m = m.withProcessStatuses(metricsService.getProcessStatuses(device).stream()
+                    .map(ps -> new ProcessStatusDTO(ps.getId(), ps.getPid(), ps.getName(), ps.getCpuUsage(),
+                            ps.getMemoryMB(), userId, deviceId, ps.getTimestamp()))
+                    .toList());
+        }
+        return m;
+    }
+
+    // take the value from the wide row when it has it, otherwise query for it
+    private static <T> Optional<T> orLoad(DeviceSample latest, Function<DeviceSample, Optional<T>> fromRow,
+                                          Supplier<Optional<T>> load) {
+        Optional<T> value = latest == null ? Optional.empty() : fromRow.apply(latest);
+        return value.isPresent() ? value : load.get();
+    }
+
+    private static boolean covers(DeviceMetrics m, Set<Field> fields) {
+        for (Field f : fields) {
+            Object value = switch (f) {
+                case BATTERY_INFO -> m.getBatteryInfo();
+                case CPU_USAGE -> m.getCpuUsage();
+                case RAM_USAGE -> m.getRamUsage();
+                case DISK_IO -> m.getDiskIO();
+                case DISK_USAGE -> m.getDiskUsage();
+                case PROCESS_STATUSES -> m.getProcessStatuses();
+            };
+            if (value == null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static DeviceSnapshotDTO toSnapshot(DeviceMetrics m, Set<Field> fields) {
+        return new DeviceSnapshotDTO(
+                m.getUserId(),
+                m.getDeviceId(),
+                fields.contains(Field.BATTERY_INFO) ? m.getBatteryInfo() : null,
+                fields.contains(Field.CPU_USAGE) ? m.getCpuUsage() : null,
+                fields.contains(Field.RAM_USAGE) ? m.getRamUsage() : null,
+                fields.contains(Field.DISK_IO) ? m.getDiskIO() : null,
+                fields.contains(Field.DISK_USAGE) ? m.getDiskUsage() : null,
+                fields.contains(Field.PROCESS_STATUSES) ? m.getProcessStatuses() : null
+        );
+    }
+}
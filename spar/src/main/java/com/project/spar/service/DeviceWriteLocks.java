@@ -0,0 +1,160 @@
+package com.project.spar.service;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Striped in-memory locks that serialize writes per device.
+ * <p>
+ * Two overlapping writes for one device (a retried poll, or a single-type POST
+ * racing a batch) otherwise interleave their deletes and inserts inside InnoDB,
+ * where they meet as gap-lock waits or deadlocks. Callers take the device's
+ * stripe <em>around</em> the transaction, so the second writer waits here until
+ * the first has committed; devices on different stripes never wait for each
+ * other. Several stripes are always taken in ascending order.
+ * <p>
+ * The reactive ingest path waits on the same stripes without holding a thread
+ * ({@link #withLockReactive}), so MVC, queued and reactive writes for one
+ * device all exclude each other. A stripe is therefore not owned by a thread
+ * and is not reentrant; waiters are served in arrival order.
+ */
+@Component
+public class DeviceWriteLocks {
+
+    @Value("${ingest.lockStripes:256}") private int stripeCount;
+
+    private Stripe[] stripes;
+
+    @PostConstruct
+    void init() {
+        stripes = new Stripe[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    public int stripeCount() {
+        return stripeCount;
+    }
+
+    /** The stripe guarding a device; stable for the life of the process. */
+    public int stripeOf(Long deviceSpecId) {
+        // mix the id so sequential devices spread evenly over stripes (and so over ingest writers)
+        long h = deviceSpecId * 0x9E3779B97F4A7C15L;
+        return (int) Math.floorMod(h ^ (h >>> 32), (long) stripeCount);
+    }
+
+    /** Runs {@code work} holding the device's stripe; meant to wrap a whole transaction. */
+    public <T> T withLock(Long deviceSpecId, Supplier<T> work) {
+        Stripe lock = stripes[stripeOf(deviceSpecId)];
+        lock.lock();
+        try {
+            return work.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Runs {@code work} holding the stripes of all the given devices. */
+    public <T> T withLocks(Collection<Long> deviceSpecIds, Supplier<T> work) {
+        int[] held = deviceSpecIds.stream().mapToInt(this::stripeOf).distinct().sorted().toArray();
+        int locked = 0;
+        try {
+            for (int stripe : held) {
+                stripes[stripe].lock();
+                locked++;
+            }
+            return work.get();
+        } finally {
+            for (int i = locked - 1; i >= 0; i--) {
+                stripes[held[i]].unlock();
+            }
+        }
+    }
+
+    /**
+     * Subscribes to {@code work} once the device's stripe is free and frees it
+     * when {@code work} terminates or is cancelled; no thread waits meanwhile.
+     */
+    public <T> Mono<T> withLockReactive(Long deviceSpecId, Mono<T> work) {
+        Stripe stripe = stripes[stripeOf(deviceSpecId)];
+        return Mono.usingWhen(stripe.acquire(), held -> work, held -> Mono.fromRunnable(stripe::unlock));
+    }
+
+    // a FIFO mutex handed directly from the holder to the next waiter, blocking or reactive
+    private static final class Stripe {
+
+        private static final int WAITING = 0, GRANTED = 1, CANCELLED = 2;
+
+        private final ArrayDeque<Runnable> waiters = new ArrayDeque<>();
+        private boolean held;
+
+        void lock() {
+            CountDownLatch granted = new CountDownLatch(1);
+            synchronized (this) {
+                if (!held) {
+                    held = true;
+                    return;
+                }
+                waiters.add(granted::countDown);
+            }
+            // like ReentrantLock.lock(): an interrupt neither aborts the wait nor is lost
+            boolean interrupted = false;
+            while (true) {
+                try {
+                    granted.await();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        Mono<Boolean> acquire() {
+            return Mono.create(sink -> {
+                AtomicInteger state = new AtomicInteger(WAITING);
+                Runnable grant = () -> {
+                    if (state.compareAndSet(WAITING, GRANTED)) {
+                        sink.success(true);
+                    } else {
+                        // the subscriber left while queued: pass the stripe on
+                        unlock();
+                    }
+                };
+                sink.onCancel(() -> state.compareAndSet(WAITING, CANCELLED));
+                synchronized (this) {
+                    if (held) {
+                        waiters.add(grant);
+                        return;
+                    }
+                    held = true;
+                }
+                grant.run();
+            });
+        }
+
+        void unlock() {
+            Runnable next;
+            synchronized (this) {
+                next = waiters.poll();
+                if (next == null) {
+                    held = false;
+                    return;
+                }
+            }
+            // ownership moves to the waiter without the stripe ever looking free
+            next.run();
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.project.spar.service;
+
+import com.project.spar.dto.*;
+import com.project.spar.mapper.MetricHistoryMapper;
+import com.project.spar.model.MetricRollup;
+import com.project.spar.model.MetricSample;
+import com.project.spar.model.SeriesMetric;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Appends scalar metrics to the history tables. Runs inside the caller's
+ * transaction so history and the latest-value rows commit together.
+ * <p>
+ * Recording the same instant twice leaves the rollups as if it had been
+ * recorded once: a sample that replaces an earlier one has its buckets
+ * recomputed rather than counted again.
+ */
+@Service
+public class MetricHistoryService {
+
+    @Value("${history.enabled:true}") private boolean enabled;
+
+    @Autowired
+    private MetricHistoryMapper metricHistoryMapper;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /** Records one tick of values for a device; a no-op when history is disabled. */
+    public void record(Long deviceSpecId, LocalDateTime ts, Map<SeriesMetric, Double> values) {
+        if (!enabled || values.isEmpty()) {
+            return;
+        }
+        LocalDateTime at = ts != null ? ts : LocalDateTime.now();
+        Set<SeriesMetric> overwritten = metricsOf(
+                metricHistoryMapper.selectSampledMetrics(deviceSpecId, at, values.keySet()));
+
+        metricHistoryMapper.insertSamples(samplesOf(deviceSpecId, at, values));
+        List<MetricRollup> rollups = rollupsOf(deviceSpecId, at, values, overwritten);
+        if (!rollups.isEmpty()) {
+            metricHistoryMapper.upsertRollups(rollups);
+        }
+        if (!overwritten.isEmpty()) {
+            List<MetricRollup> buckets = bucketsOf(deviceSpecId, at, overwritten);
+            buckets.forEach(b -> recomputed(b, metricHistoryMapper.aggregateSamples(b.getDeviceSpecId(),
+                    b.getMetric(), b.getBucketStart(), b.getResolution().bucketAfter(b.getBucketStart()))));
+            metricHistoryMapper.replaceRollups(buckets);
+        }
+    }
+
+    // The steps of record() below are shared with the reactive writer, which
+    // runs the same MetricHistoryMapper statements through R2DBC.
+
+    /** Metrics from the ordinals {@code selectSampledMetrics} returns. */
+    public static Set<SeriesMetric> metricsOf(List<Integer> ordinals) {
+        Set<SeriesMetric> metrics = EnumSet.noneOf(SeriesMetric.class);
+        ordinals.forEach(ordinal -> metrics.add(SeriesMetric.values()[ordinal]));
+        return metrics;
+    }
+
+    public static List<MetricSample> samplesOf(Long deviceSpecId, LocalDateTime ts, Map<SeriesMetric, Double> values) {
+        List<MetricSample> samples = new ArrayList<>(values.size());
+        values.forEach((metric, value) -> samples.add(new MetricSample(deviceSpecId, metric, ts, value)));
+        return samples;
+    }
+
+    /** What each new sample adds to its buckets; samples in {@code overwritten} add nothing. */
+    public static List<MetricRollup> rollupsOf(Long deviceSpecId, LocalDateTime ts, Map<SeriesMetric, Double> values,
+                                               Set<SeriesMetric> overwritten) {
+        List<MetricRollup> rollups = new ArrayList<>(values.size() * MetricRollup.Resolution.values().length);
+        values.forEach((metric, value) -> {
+            if (!overwritten.contains(metric)) {
+                for (MetricRollup.Resolution resolution : MetricRollup.Resolution.values()) {
+                    rollups.add(new MetricRollup(deviceSpecId, metric, resolution, resolution.bucketOf(ts),
+                            value, value, value, 1));
+                }
+            }
+        });
+        return rollups;
+    }
+
+    /** The buckets around {@code ts} of the given metrics, without aggregates yet. */
+    public static List<MetricRollup> bucketsOf(Long deviceSpecId, LocalDateTime ts, Set<SeriesMetric> metrics) {
+        List<MetricRollup> buckets = new ArrayList<>();
+        for (SeriesMetric metric : metrics) {
+            for (MetricRollup.Resolution resolution : MetricRollup.Resolution.values()) {
+                MetricRollup bucket = new MetricRollup();
+                bucket.setDeviceSpecId(deviceSpecId);
+                bucket.setMetric(metric);
+                bucket.setResolution(resolution);
+                bucket.setBucketStart(resolution.bucketOf(ts));
+                buckets.add(bucket);
+            }
+        }
+        return buckets;
+    }
+
+    /** Sets the bucket's values to the {@code aggregateSamples} result over its range. */
+    public static MetricRollup recomputed(MetricRollup bucket, MetricRollup aggregate) {
+        bucket.setMinVal(aggregate.getMinVal());
+        bucket.setMaxVal(aggregate.getMaxVal());
+        bucket.setSumVal(aggregate.getSumVal());
+        bucket.setSampleCount(aggregate.getSampleCount());
+        return bucket;
+    }
+
+    /** The history values carried by a batch; absent metric types are skipped. */
+    public static Map<SeriesMetric, Double> valuesOf(MetricsBatchDTO batch) {
+        Map<SeriesMetric, Double> values = new EnumMap<>(SeriesMetric.class);
+        CpuUsageDTO cu = batch.getCpuUsage();
+        if (cu != null) {
+            values.put(SeriesMetric.CPU_LOAD, cu.getTotalCpuLoad());
+        }
+        RamUsageDTO ru = batch.getRamUsage();
+        if (ru != null) {
+            values.put(SeriesMetric.RAM_USED, ru.getUsedMemory());
+        }
+        DiskIODTO dio = batch.getDiskIO();
+        if (dio != null) {
+            values.put(SeriesMetric.DISK_READ, dio.getReadSpeedMBps());
+            values.put(SeriesMetric.DISK_WRITE, dio.getWriteSpeedMBps());
+        }
+        BatteryInfoDTO bi = batch.getBatteryInfo();
+        if (bi != null && bi.isHasBattery()) {
+            values.put(SeriesMetric.BATTERY_PERCENT, (double) bi.getBatteryPercentage());
+        }
+        if (bi != null && bi.getPowerConsumption() != null) {
+            values.put(SeriesMetric.POWER_CONSUMPTION, bi.getPowerConsumption());
+        }
+        return values;
+    }
+}
@@ -0,0 +1,179 @@
+package com.project.spar.service;
+
+import com.project.spar.constants.AppConstants;
+import com.project.spar.dto.MetricRangeDTO;
+import com.project.spar.dto.SeriesDataDTO;
+import com.project.spar.mapper.MetricHistoryMapper;
+import com.project.spar.model.MetricRollup;
+import com.project.spar.model.SeriesMetric;
+import com.project.spar.timeseries.Downsampler;
+import com.project.spar.timeseries.SeriesPoint;
+import com.project.spar.timeseries.SeriesStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.OptionalLong;
+
+/**
+ * Serves chart ranges of a metric type, downsampled on the server.
+ * <p>
+ * Points come from the cheapest source that covers the window: the in-memory
+ * {@link SeriesStore} when it reaches back far enough, otherwise raw history
+ * for short windows and the 1-minute or 1-hour rollups for longer ones. The
+ * result is reduced with LTTB to at most {@code maxPoints} per series, so the
+ * response size is bounded by {@code maxPoints}, not by the window.
+ * <p>
+ * Without history the series store is the only source, however far back it
+ * reaches; with neither, ranges are unavailable.
+ */
+@Service
+public class MetricRangeService {
+
+    private static final Logger logger = LoggerFactory.getLogger(MetricRangeService.class);
+
+    /** Chartable metric types, keyed like the existing per-type endpoints. */
+    public enum Type {
+        CPU_USAGE("cpu-usage", SeriesMetric.CPU_LOAD),
+        RAM_USAGE("ram-usage", SeriesMetric.RAM_USED),
+        DISK_IO("disk-io", SeriesMetric.DISK_READ, SeriesMetric.DISK_WRITE),
+        BATTERY_INFO("battery-info", SeriesMetric.BATTERY_PERCENT, SeriesMetric.POWER_CONSUMPTION);
+
+        private final String key;
+        private final List<SeriesMetric> metrics;
+
+        Type(String key, SeriesMetric... metrics) {
+            this.key = key;
+            this.metrics = List.of(metrics);
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        /** @throws IllegalArgumentException on an unknown type key */
+        public static Type fromKey(String key) {
+            return Arrays.stream(values())
+                    .filter(t -> t.key.equals(key.toLowerCase(Locale.ROOT)))
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalArgumentException(AppConstants.UNKNOWN_RANGE_TYPE + key));
+        }
+    }
+
+    /** Where the points of a range come from, keyed as reported in {@link MetricRangeDTO}. */
+    public enum Resolution {
+        MEMORY("memory", null),
+        RAW("raw", null),
+        MINUTE("1m", MetricRollup.Resolution.MINUTE),
+        HOUR("1h", MetricRollup.Resolution.HOUR);
+
+        private final String key;
+        private final MetricRollup.Resolution rollup;
+
+        Resolution(String key, MetricRollup.Resolution rollup) {
+            this.key = key;
+            this.rollup = rollup;
+        }
+
+        public String getKey() {
+            return key;
+        }
+    }
+
+    // longest windows served from raw samples and from 1-minute rollups
+    @Value("${history.rawRangeMaxMinutes:120}") private long rawRangeMaxMinutes;
+    @Value("${history.minuteRangeMaxHours:168}") private long minuteRangeMaxHours;
+
+    @Autowired
+    private SeriesStore seriesStore;
+
+    @Autowired
+    private MetricHistoryService metricHistoryService;
+
+    @Autowired
+    private MetricHistoryMapper metricHistoryMapper;
+
+    public boolean isAvailable() {
+        return metricHistoryService.isEnabled() || seriesStore.isEnabled();
+    }
+
+    /** @throws IllegalStateException if neither history nor the series store is enabled */
+    public MetricRangeDTO getRange(Long userId, String deviceId, Long deviceSpecId,
+                                   Type type, long from, long to, int maxPoints) {
+        if (!isAvailable()) {
+            throw new IllegalStateException(AppConstants.RANGE_UNAVAILABLE);
+        }
+        Resolution resolution = chooseResolution(deviceSpecId, type, from, to);
+        logger.debug("getRange type={} deviceSpecId={} window={}ms resolution={}",
+                type.getKey(), deviceSpecId, to - from, resolution);
+
+        List<SeriesDataDTO> series = new ArrayList<>(type.metrics.size());
+        for (SeriesMetric metric : type.metrics) {
+            List<SeriesPoint> points = Downsampler.lttb(load(deviceSpecId, metric, resolution, from, to), maxPoints);
+            long[] timestamps = new long[points.size()];
+            double[] values = new double[points.size()];
+            for (int i = 0; i < points.size(); i++) {
+                timestamps[i] = points.get(i).timestamp();
+                values[i] = points.get(i).value();
+            }
+            series.add(new SeriesDataDTO(metric.name(), timestamps, values));
+        }
+        return new MetricRangeDTO(userId, deviceId, type.getKey(), from, to, resolution.getKey(), series);
+    }
+
+    private Resolution chooseResolution(Long deviceSpecId, Type type, long from, long to) {
+        if (!metricHistoryService.isEnabled() || storeCovers(deviceSpecId, type, from)) {
+            return Resolution.MEMORY;
+        }
+        long window = to - from;
+        if (window <= rawRangeMaxMinutes * 60_000) {
+            return Resolution.RAW;
+        }
+        return window <= minuteRangeMaxHours * 3_600_000 ? Resolution.MINUTE : Resolution.HOUR;
+    }
+
+    private boolean storeCovers(Long deviceSpecId, Type type, long from) {
+        if (!seriesStore.isEnabled()) {
+            return false;
+        }
+        for (SeriesMetric metric : type.metrics) {
+            OptionalLong earliest = seriesStore.earliest(deviceSpecId, metric);
+            if (earliest.isEmpty() || earliest.getAsLong() > from) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private List<SeriesPoint> load(Long deviceSpecId, SeriesMetric metric, Resolution resolution, long from, long to) {
+        return switch (resolution) {
+            case MEMORY -> seriesStore.query(deviceSpecId, metric, from, to);
+            case RAW -> metricHistoryMapper.selectSamples(deviceSpecId, metric, toDateTime(from), toDateTime(to))
+                    .stream()
+                    .map(s -> new SeriesPoint(toMillis(s.getTs()), s.getSampleValue()))
+                    .toList();
+            case MINUTE, HOUR -> metricHistoryMapper.selectRollups(deviceSpecId, metric, resolution.rollup,
+                            toDateTime(from), toDateTime(to))
+                    .stream()
+                    .map(r -> new SeriesPoint(toMillis(r.getBucketStart()), r.getAverage()))
+                    .toList();
+        };
+    }
+
+    private static LocalDateTime toDateTime(long millis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault());
+    }
+
+    private static long toMillis(LocalDateTime ts) {
+        return ts.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
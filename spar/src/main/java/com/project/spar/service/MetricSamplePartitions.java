@@ -0,0 +1,98 @@
+package com.project.spar.service;
+
+import com.project.spar.mapper.MetricHistoryMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps the daily partitions of {@code metric_samples} in step with the clock
+ * (MySQL only, {@code history.partitioned}). A partition {@code pYYYYMMDD}
+ * holds the samples of that day. Days up to {@code history.partitionDaysAhead}
+ * ahead are split off the catch-all {@code p_future} while it is still
+ * empty, and days wholly past the raw retention are dropped. Dropping a
+ * partition is a metadata change, unlike deleting its rows one by one.
+ */
+@Component
+public class MetricSamplePartitions {
+
+    private static final Logger logger = LoggerFactory.getLogger(MetricSamplePartitions.class);
+
+    static final String FUTURE = "p_future";
+    private static final DateTimeFormatter DAY = DateTimeFormatter.BASIC_ISO_DATE;
+
+    @Value("${history.partitioned:false}") private boolean enabled;
+    @Value("${history.partitionDaysAhead:3}") private int daysAhead;
+    @Value("${history.rawRetentionDays:7}") private int rawRetentionDays;
+
+    @Autowired
+    private MetricHistoryMapper metricHistoryMapper;
+
+    /**
+     * Adds the missing days up to {@code today + daysAhead} and drops expired
+     * ones; returns the number of partitions dropped.
+     */
+    public int maintain(LocalDate today) {
+        if (!enabled) {
+            return 0;
+        }
+        List<String> names = metricHistoryMapper.selectSamplePartitions();
+        if (!names.contains(FUTURE)) {
+            logger.warn("metric_samples is not partitioned, skipping partition maintenance");
+            return 0;
+        }
+        List<LocalDate> days = new ArrayList<>();
+        for (String name : names) {
+            LocalDate day = dayOf(name);
+            if (day != null) {
+                days.add(day);
+            }
+        }
+
+        LocalDate next = days.isEmpty() ? today : days.get(days.size() - 1).plusDays(1);
+        List<String> added = new ArrayList<>();
+        for (LocalDate day = next; !day.isAfter(today.plusDays(daysAhead)); day = day.plusDays(1)) {
+            added.add("PARTITION " + nameOf(day) + " VALUES LESS THAN (TO_DAYS('" + day.plusDays(1) + "'))");
+        }
+        if (!added.isEmpty()) {
+            metricHistoryMapper.splitFutureSamplePartition(String.join(", ", added));
+            logger.info("Added {} metric_samples partitions starting {}", added.size(), next);
+        }
+
+        // a day is dropped once all of it is older than the raw retention cutoff
+        LocalDate cutoff = today.minusDays(rawRetentionDays);
+        List<String> expired = days.stream()
+                .filter(day -> day.isBefore(cutoff))
+                .map(MetricSamplePartitions::nameOf)
+                .collect(Collectors.toList());
+        if (!expired.isEmpty()) {
+            metricHistoryMapper.dropSamplePartitions(String.join(", ", expired));
+            logger.info("Dropped {} expired metric_samples partitions", expired.size());
+        }
+        return expired.size();
+    }
+
+    static String nameOf(LocalDate day) {
+        return "p" + DAY.format(day);
+    }
+
+    static LocalDate dayOf(String partitionName) {
+        if (partitionName.length() != 9 || partitionName.charAt(0) != 'p') {
+            return null;
+        }
+        try {
+            return LocalDate.parse(partitionName.substring(1), DAY);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+}
@@ -1,16 +1,27 @@
 package com.project.spar.service;
 
+import com.project.spar.cache.DeviceRegistry;
 import com.project.spar.constants.AppConstants;
 import com.project.spar.dto.*;
-import com.project.spar.model.*;
+import com.project.spar.event.MetricsIngestedEvent;
+import com.project.spar.mapper.MetricsBatchMapper;
+import com.project.spar.model.DeviceSpecification;
+import com.project.spar.model.PerCoreUsage;
+import com.project.spar.model.User;
 import com.project.spar.repository.DeviceSpecificationRepository;
 import com.project.spar.repository.UserRepository;
+import com.project.spar.shard.ShardRouter;
+import jakarta.annotation.PostConstruct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Component
@@ -24,124 +35,209 @@ public class MetricsBatchService {
     @Autowired
     private DeviceSpecificationRepository deviceRepo;
 
+    @Autowired
+    private MetricsBatchMapper metricsBatchMapper;
+
     @Autowired
     private MetricsService metricsService;
 
-    @Transactional
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private DeviceRegistry deviceRegistry;
+
+    @Autowired
+    private MetricHistoryService metricHistoryService;
+
+    @Autowired
+    private DeviceSampleService deviceSampleService;
+
+    @Autowired
+    private DeviceWriteLocks deviceWriteLocks;
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate txTemplate;
+
+    @PostConstruct
+    void init() {
+        txTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Checks everything about a batch that does not need the database, so a
+     * batch the writers would fail on is rejected before it is accepted.
+     *
+     * @throws IllegalArgumentException describing the first problem found
+     */
+    public static void validate(MetricsBatchDTO batch) {
+        if (batch.getUserId() == null || batch.getDeviceId() == null || batch.getDeviceId().isBlank()) {
+            throw new IllegalArgumentException(AppConstants.MISSING_BATCH_DEVICE);
+        }
+        CpuUsageDTO cpu = batch.getCpuUsage();
+        if (cpu != null && cpu.getPerCoreUsage() != null && cpu.getPerCoreUsage().length > AppConstants.MAX_CORES) {
+            throw new IllegalArgumentException(AppConstants.TOO_MANY_CORES + cpu.getPerCoreUsage().length);
+        }
+        if (batch.getDiskUsage() != null) {
+            for (DiskUsageDTO du : batch.getDiskUsage()) {
+                if (du == null) {
+                    throw new IllegalArgumentException(AppConstants.NULL_BATCH_ENTRY);
+                }
+                checkLength(du.getFilesystem());
+            }
+        }
+        if (batch.getProcessStatuses() != null) {
+            for (ProcessStatusDTO ps : batch.getProcessStatuses()) {
+                if (ps == null) {
+                    throw new IllegalArgumentException(AppConstants.NULL_BATCH_ENTRY);
+                }
+                checkLength(ps.getName());
+            }
+        }
+    }
+
+    private static void checkLength(String text) {
+        if (text != null && text.length() > AppConstants.MAX_TEXT_LENGTH) {
+            throw new IllegalArgumentException(AppConstants.TEXT_TOO_LONG
+                    + text.substring(0, 32) + "...");
+        }
+    }
+
+    /**
+     * Resolves the primary key of the device a batch is addressed to, or throws
+     * if the user or device is unknown. Used to validate a batch before it is
+     * queued; known devices are answered from the {@link DeviceRegistry}.
+     */
+    public Long resolveDeviceId(Long userId, String deviceId) {
+        var known = deviceRegistry.find(userId, deviceId);
+        if (known.isPresent()) {
+            return known.get();
+        }
+
+        // 1) resolve managed User
+        User user = userRepo.findById(userId)
+                .orElseThrow(() -> {
+                    String msg = AppConstants.UNKNOWN_USER_ID + '=' + userId;
+                    logger.warn("User resolution failed in addMetrics: {}", msg);
+                    return new IllegalArgumentException(msg);
+                });
+
+        // 2) resolve managed DeviceSpecification
+        DeviceSpecification device = deviceRepo.findByUserAndDeviceId(user, deviceId)
+                .orElseThrow(() -> {
+                    String msg = AppConstants.DEVICE + deviceId + AppConstants.NOT_REGISTERED_FOR_USER + userId;
+                    logger.warn("Device resolution failed in addMetrics: {}", msg);
+                    return new IllegalArgumentException(msg);
+                });
+        deviceRegistry.register(device);
+        return device.getId();
+    }
+
+    /**
+     * Synchronous ingest: persists the batch in its own transaction on the
+     * device's shard while holding the device's write stripe, so it cannot
+     * interleave with a queued batch or another request for the same device.
+     */
     public String addMetrics(MetricsBatchDTO batch) {
         Long userId = batch.getUserId();
         String deviceId = batch.getDeviceId();
         logger.info("addMetrics called for userId={} deviceId={}", userId, deviceId);
         try {
-            // 1) resolve managed User
-            User user = userRepo.findById(userId)
-                    .orElseThrow(() -> {
-                        String msg = AppConstants.UNKNOWN_USER_ID + '=' + userId;
-                        logger.warn("User resolution failed in addMetrics: {}", msg);
-                        return new IllegalArgumentException(msg);
-                    });
-
-            // 2) resolve managed DeviceSpecification
-            DeviceSpecification device = deviceRepo.findByUserAndDeviceId(user, deviceId)
-                    .orElseThrow(() -> {
-                        String msg = AppConstants.DEVICE + deviceId + AppConstants.NOT_REGISTERED_FOR_USER + userId;
-                        logger.warn("Device resolution failed in addMetrics: {}", msg);
-                        return new IllegalArgumentException(msg);
-                    });
+            validate(batch);
+            Long deviceSpecId = resolveDeviceId(userId, deviceId);
+            deviceWriteLocks.withLock(deviceSpecId, () -> shardRouter.onShard(deviceId,
+                    () -> txTemplate.execute(status -> {
+                        persistMetrics(userId, deviceSpecId, batch);
+                        return null;
+                    })));
+
+            logger.info("addMetrics completed successfully for userId={} deviceId={}", userId, deviceId);
+            return AppConstants.METRIC_SUCCESS;
+        } catch (IllegalArgumentException e) {
+            // propagate known input validation errors without stack trace
+            throw e;
+        } catch (Exception e) {
+            logger.error("Error in addMetrics for userId={} deviceId={}", userId, deviceId, e);
+            throw new RuntimeException(AppConstants.ERROR_GENERIC);
+        }
+    }
+
+    /**
+     * Persists an already validated batch with one set-based statement per
+     * table. Joins the caller's transaction, which lets the ingest pipeline
+     * commit many batches at once, and announces the batch with a
+     * {@link MetricsIngestedEvent} that listeners see after commit.
+     */
+    @Transactional
+    public void persistMetrics(Long userId, Long deviceSpecId, MetricsBatchDTO batch) {
+        String deviceId = batch.getDeviceId();
+        LocalDateTime now = LocalDateTime.now();
 
+        if (deviceSampleService.isEnabled()) {
+            // wide layout: the four scalar types become one row for this tick
+            if (DeviceSampleService.hasScalars(batch)) {
+                logger.debug("Persisting wide sample for userId={} deviceId={}", userId, deviceId);
+                deviceSampleService.write(DeviceSampleService.fromBatch(deviceSpecId, now, batch));
+            }
+        } else {
             // 3) BatteryInfo
             BatteryInfoDTO biDto = batch.getBatteryInfo();
             if (biDto != null) {
                 logger.debug("Persisting BatteryInfo for userId={} deviceId={}", userId, deviceId);
-                BatteryInfo bi = new BatteryInfo();
-                bi.setHasBattery(biDto.isHasBattery());
-                bi.setBatteryPercentage(biDto.getBatteryPercentage());
-                bi.setCharging(biDto.isCharging());
-                bi.setPowerConsumption(biDto.getPowerConsumption());
-                bi.setUser(user);
-                bi.setDevice(device);
-                metricsService.saveBatteryInfo(bi);
+                metricsBatchMapper.upsertBatteryInfo(deviceSpecId, biDto.isHasBattery(),
+                        biDto.getBatteryPercentage(), biDto.isCharging(), biDto.getPowerConsumption(), now);
             }
 
             // 4) CpuUsage
             CpuUsageDTO cuDto = batch.getCpuUsage();
             if (cuDto != null) {
                 logger.debug("Persisting CpuUsage for userId={} deviceId={}", userId, deviceId);
-                CpuUsage cu = new CpuUsage();
-                cu.setTotalCpuLoad(cuDto.getTotalCpuLoad());
-                cu.setPerCoreUsageJson(cuDto.getPerCoreUsageJson());
-                cu.setUser(user);
-                cu.setDevice(device);
-                metricsService.saveCpuUsage(cu);
+                metricsBatchMapper.upsertCpuUsage(deviceSpecId, cuDto.getTotalCpuLoad(),
+                        PerCoreUsage.pack(cuDto.getPerCoreUsage()), now);
             }
 
             // 5) RamUsage
             RamUsageDTO ruDto = batch.getRamUsage();
             if (ruDto != null) {
                 logger.debug("Persisting RamUsage for userId={} deviceId={}", userId, deviceId);
-                RamUsage ru = new RamUsage();
-                ru.setTotalMemory(ruDto.getTotalMemory());
-                ru.setUsedMemory(ruDto.getUsedMemory());
-                ru.setAvailableMemory(ruDto.getAvailableMemory());
-                ru.setUser(user);
-                ru.setDevice(device);
-                metricsService.saveRamUsage(ru);
+                metricsBatchMapper.upsertRamUsage(deviceSpecId, ruDto.getTotalMemory(),
+                        ruDto.getUsedMemory(), ruDto.getAvailableMemory(), now);
             }
 
             // 6) Disk I/O
             DiskIODTO dioDto = batch.getDiskIO();
             if (dioDto != null) {
                 logger.debug("Persisting DiskIO for userId={} deviceId={}", userId, deviceId);
-                DiskIO dio = new DiskIO();
-                dio.setReadSpeedMBps(dioDto.getReadSpeedMBps());
-                dio.setWriteSpeedMBps(dioDto.getWriteSpeedMBps());
-                dio.setUser(user);
-                dio.setDevice(device);
-                metricsService.saveDiskIO(dio);
+                metricsBatchMapper.upsertDiskIO(deviceSpecId, dioDto.getReadSpeedMBps(),
+                        dioDto.getWriteSpeedMBps(), now);
             }
+        }
 
-            // 7) DiskUsage
-            List<DiskUsageDTO> duList = batch.getDiskUsage();
-            if (duList != null) {
-                logger.debug("Clearing old DiskUsage for userId={} deviceId={}", userId, deviceId);
-                metricsService.deleteAllDiskUsageFor(user, device);
-                for (DiskUsageDTO duDto : duList) {
-                    logger.debug("Persisting DiskUsage entry for fs={} userId={} deviceId={}", duDto.getFilesystem(), userId, deviceId);
-                    DiskUsage du = new DiskUsage();
-                    du.setFilesystem(duDto.getFilesystem());
-                    du.setSizeGB(duDto.getSizeGB());
-                    du.setUsedGB(duDto.getUsedGB());
-                    du.setAvailableGB(duDto.getAvailableGB());
-                    du.setUser(user);
-                    du.setDevice(device);
-                    metricsService.saveDiskUsage(du);
-                }
+        // append the scalar values to the history tables
+        metricHistoryService.record(deviceSpecId, now, MetricHistoryService.valuesOf(batch));
 
-                // 8) ProcessStatus
-                List<ProcessStatusDTO> psList = batch.getProcessStatuses();
-                if (psList != null) {
-                    for (ProcessStatusDTO psDto : psList) {
-                        logger.debug("Persisting ProcessStatus pid={} userId={} deviceId={}", psDto.getPid(), userId, deviceId);
-                        ProcessStatus ps = new ProcessStatus();
-                        ps.setPid(psDto.getPid());
-                        ps.setName(psDto.getName());
-                        ps.setCpuUsage(psDto.getCpuUsage());
-                        ps.setMemoryMB(psDto.getMemoryMB());
-                        ps.setUser(user);
-                        ps.setDevice(device);
-                        metricsService.saveProcessStatus(ps);
-                    }
-                }
+        // 7) DiskUsage
+        List<DiskUsageDTO> duList = batch.getDiskUsage();
+        if (duList != null) {
+            logger.debug("Replacing DiskUsage ({} entries) for userId={} deviceId={}", duList.size(), userId, deviceId);
+            metricsBatchMapper.deleteDiskUsage(deviceSpecId);
+            if (!duList.isEmpty()) {
+                metricsBatchMapper.insertDiskUsage(deviceSpecId, duList, now);
             }
+        }
 
-            logger.info("addMetrics completed successfully for userId={} deviceId={}", userId, deviceId);
-            return AppConstants.METRIC_SUCCESS;
-        } catch (IllegalArgumentException e) {
-            // propagate known input validation errors without stack trace
-            throw e;
-        } catch (Exception e) {
-            logger.error("Error in addMetrics for userId={} deviceId={}", userId, deviceId, e);
-            throw new RuntimeException(AppConstants.ERROR_GENERIC);
+        // 8) ProcessStatus
+        List<ProcessStatusDTO> psList = batch.getProcessStatuses();
+        if (psList != null) {
+            logger.debug("Replacing process snapshot ({} entries) for userId={} deviceId={}", psList.size(), userId, deviceId);
+            metricsService.replaceProcessSnapshot(userId, deviceSpecId, psList);
         }
+
+        eventPublisher.publishEvent(new MetricsIngestedEvent(userId, deviceSpecId, deviceId, batch, now));
     }
-}
\ No newline at end of file
+}
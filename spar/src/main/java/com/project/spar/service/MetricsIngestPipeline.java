@@ -0,0 +1,210 @@
+package com.project.spar.service;
+
+import com.project.spar.config.SparThreads;
+import com.project.spar.dto.MetricsBatchDTO;
+import com.project.spar.shard.ShardRouter;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Accept-then-persist ingest for metric batches.
+ * <p>
+ * Batches are validated on the request thread and queued; writer threads drain
+ * the queue and persist everything they picked up in a single transaction
+ * (group commit), so many devices' ticks share one commit and round trip.
+ * <p>
+ * Each writer has its own queue and a device always lands on the same one
+ * (by its {@link DeviceWriteLocks} stripe), so one device's batches commit in
+ * arrival order and never in two writers' transactions at once. A writer
+ * holds its group's stripes for the whole commit, which also keeps the
+ * synchronous write paths out of those devices meanwhile.
+ * <p>
+ * With sharding on, a transaction covers one shard, so a group that spans
+ * several is committed once per shard.
+ * <p>
+ * A writer never dies of a failed commit: a group that cannot be committed is
+ * logged and dropped, and the writer goes on with the next one, so its queue
+ * keeps draining while {@link #submit} accepts batches for it.
+ */
+@Component
+public class MetricsIngestPipeline {
+
+    private static final Logger logger = LoggerFactory.getLogger(MetricsIngestPipeline.class);
+
+    @Autowired
+    private MetricsBatchService metricsBatchService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private SparThreads sparThreads;
+
+    @Autowired
+    private DeviceWriteLocks deviceWriteLocks;
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    @Value("${ingest.async:true}") private boolean async;
+    @Value("${ingest.queueCapacity:10000}") private int queueCapacity;
+    @Value("${ingest.writerThreads:2}") private int writerThreads;
+    @Value("${ingest.maxBatchesPerCommit:200}") private int maxBatchesPerCommit;
+    @Value("${ingest.lingerMs:5}") private long lingerMs;
+
+    private final List<BlockingQueue<PendingBatch>> queues = new ArrayList<>();
+    private TransactionTemplate txTemplate;
+    private final List<Thread> writers = new ArrayList<>();
+    private volatile boolean running;
+
+    /** A validated batch together with the ids it resolved to. */
+    private record PendingBatch(Long userId, Long deviceSpecId, MetricsBatchDTO batch) {}
+
+    @PostConstruct
+    void start() {
+        if (!async) {
+            logger.info("Metrics ingest pipeline disabled, batches are persisted synchronously");
+            return;
+        }
+        if (writerThreads < 1) {
+            throw new IllegalStateException("ingest.writerThreads must be at least 1 when ingest.async is on");
+        }
+        txTemplate = new TransactionTemplate(transactionManager);
+        running = true;
+        ThreadFactory writerFactory = sparThreads.threadFactory("spar-ingest-");
+        for (int i = 0; i < writerThreads; i++) {
+            BlockingQueue<PendingBatch> queue = new ArrayBlockingQueue<>(Math.max(1, queueCapacity / writerThreads));
+            queues.add(queue);
+            Thread writer = writerFactory.newThread(() -> drainLoop(queue));
+            writer.start();
+            writers.add(writer);
+        }
+        logger.info("Metrics ingest pipeline started with {} writers, capacity={}", writerThreads, queueCapacity);
+    }
+
+    public boolean isAsync() {
+        return async;
+    }
+
+    /**
+     * Validates the batch and queues it for persistence. Everything that
+     * would make the writers fail is checked here, since a queued batch has
+     * already been acknowledged and can no longer be rejected.
+     *
+     * @return false if the queue is full and the caller should retry later
+     * @throws IllegalArgumentException if the batch is invalid or the user or
+     *         device is unknown
+     */
+    public boolean submit(MetricsBatchDTO batch) {
+        MetricsBatchService.validate(batch);
+        Long deviceSpecId = metricsBatchService.resolveDeviceId(batch.getUserId(), batch.getDeviceId());
+        // writers own disjoint sets of stripes, so their commits never wait on each other
+        var queue = queues.get(deviceWriteLocks.stripeOf(deviceSpecId) % queues.size());
+        boolean queued = queue.offer(new PendingBatch(batch.getUserId(), deviceSpecId, batch));
+        if (!queued) {
+            logger.warn("Ingest queue full, rejecting batch for userId={} deviceId={}",
+                    batch.getUserId(), batch.getDeviceId());
+        }
+        return queued;
+    }
+
+    public int getQueueDepth() {
+        return queues.stream().mapToInt(BlockingQueue::size).sum();
+    }
+
+    private void drainLoop(BlockingQueue<PendingBatch> queue) {
+        List<PendingBatch> group = new ArrayList<>(maxBatchesPerCommit);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingBatch first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                group.add(first);
+                // linger briefly so concurrent pollers share the same commit
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(lingerMs);
+                while (group.size() < maxBatchesPerCommit) {
+                    queue.drainTo(group, maxBatchesPerCommit - group.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (group.size() >= maxBatchesPerCommit || remaining <= 0) {
+                        break;
+                    }
+                    PendingBatch next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    group.add(next);
+                }
+                commit(group);
+            } catch (RuntimeException e) {
+                // e.g. the shard lookup or the stripe locks failed before commitLocked could retry
+                logger.error("Dropping group of {} batches that could not be committed", group.size(), e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                group.clear();
+            }
+        }
+    }
+
+    private void commit(List<PendingBatch> group) {
+        List<Long> devices = group.stream().map(PendingBatch::deviceSpecId).toList();
+        deviceWriteLocks.withLocks(devices, () -> {
+            shardRouter.groupByShard(group, pending -> pending.batch().getDeviceId())
+                    .forEach((shard, batches) -> shardRouter.onShard(shard, () -> {
+                        commitLocked(batches);
+                        return null;
+                    }));
+            return null;
+        });
+    }
+
+    private void commitLocked(List<PendingBatch> group) {
+        try {
+            txTemplate.executeWithoutResult(status -> group.forEach(this::persist));
+            logger.debug("Group commit persisted {} batches", group.size());
+        } catch (Exception e) {
+            // one bad batch must not drop the others: retry each on its own
+            logger.warn("Group commit of {} batches failed, retrying individually", group.size(), e);
+            for (PendingBatch pending : group) {
+                try {
+                    txTemplate.executeWithoutResult(status -> persist(pending));
+                } catch (Exception ex) {
+                    logger.error("Dropping batch for userId={} deviceId={}",
+                            pending.userId(), pending.batch().getDeviceId(), ex);
+                }
+            }
+        }
+    }
+
+    private void persist(PendingBatch pending) {
+        metricsBatchService.persistMetrics(pending.userId(), pending.deviceSpecId(), pending.batch());
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        for (Thread writer : writers) {
+            writer.join(TimeUnit.SECONDS.toMillis(10));
+        }
+        int queued = getQueueDepth();
+        if (queued > 0) {
+            logger.warn("Ingest pipeline stopped with {} batches still queued", queued);
+        }
+    }
+}
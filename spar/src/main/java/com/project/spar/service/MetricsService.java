@@ -1,6 +1,9 @@
 package com.project.spar.service;
 
 import com.project.spar.constants.AppConstants;
+import com.project.spar.dto.DiskUsageDTO;
+import com.project.spar.dto.ProcessStatusDTO;
+import com.project.spar.mapper.MetricsBatchMapper;
 import com.project.spar.model.*;
 import com.project.spar.repository.*;
 import org.slf4j.Logger;
@@ -9,7 +12,10 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -40,6 +46,15 @@ public class MetricsService {
     @Autowired
     private BatteryInfoRepository batteryInfoRepository;
 
+    @Autowired
+    private MetricsBatchMapper metricsBatchMapper;
+
+    @Autowired
+    private MetricHistoryService metricHistoryService;
+
+    @Autowired
+    private DeviceSampleService deviceSampleService;
+
     @Transactional
     public DeviceSpecification saveDeviceSpecification(DeviceSpecification deviceSpec) {
         Long userId = deviceSpec.getUser().getId();
@@ -64,230 +79,278 @@ public class MetricsService {
         }
     }
 
+    /**
+     * Upserts the device's latest-value row and returns {@code cpuUsage} as
+     * written, without reading the row back; its id is therefore not set.
+     */
     @Transactional
-    public CpuUsage saveCpuUsage(CpuUsage cpuUsage) {
+    public CpuUsageView saveCpuUsage(CpuUsage cpuUsage) {
         Long userId = cpuUsage.getUser().getId();
-        String deviceId = cpuUsage.getDevice().getDeviceId();
+        Long deviceSpecId = cpuUsage.getDevice().getId();
         try {
-            logger.info("saveCpuUsage called for userId={}, deviceId={}", userId, deviceId);
-            cpuUsageRepository.deleteByUserAndDevice(cpuUsage.getUser(), cpuUsage.getDevice());
-            logger.debug("Old CPU usage entries deleted for userId={}, deviceId={}", userId, deviceId);
-            CpuUsage saved = cpuUsageRepository.save(cpuUsage);
-            logger.info("saveCpuUsage succeeded for userId={}, deviceId={}", userId, deviceId);
-            return saved;
+            logger.info("saveCpuUsage called for userId={}, deviceSpecId={}", userId, deviceSpecId);
+            if (deviceSampleService.isEnabled()) {
+                DeviceSample sample = new DeviceSample(deviceSpecId, cpuUsage.getTimestamp());
+                sample.setTotalCpuLoad(cpuUsage.getTotalCpuLoad());
+                sample.setPerCoreUsagePacked(cpuUsage.getPerCoreUsagePacked());
+                deviceSampleService.write(sample);
+            } else {
+                metricsBatchMapper.upsertCpuUsage(cpuUsage.getDevice().getId(),
+                        cpuUsage.getTotalCpuLoad(), cpuUsage.getPerCoreUsagePacked(), cpuUsage.getTimestamp());
+            }
+            metricHistoryService.record(deviceSpecId, cpuUsage.getTimestamp(),
+                    Map.of(SeriesMetric.CPU_LOAD, cpuUsage.getTotalCpuLoad()));
+            logger.info("saveCpuUsage succeeded for userId={}, deviceSpecId={}", userId, deviceSpecId);
+            return cpuUsage;
         } catch (Exception e) {
-            logger.error("Error in saveCpuUsage for userId={}, deviceId={}", userId, deviceId, e);
+            logger.error("Error in saveCpuUsage for userId={}, deviceSpecId={}", userId, deviceSpecId, e);
             throw e;
         }
     }
 
+    /** As {@link #saveCpuUsage}: returns {@code ramUsage} as written, without an id. */
     @Transactional
-    public RamUsage saveRamUsage(RamUsage ramUsage) {
+    public RamUsageView saveRamUsage(RamUsage ramUsage) {
         Long userId = ramUsage.getUser().getId();
-        String deviceId = ramUsage.getDevice().getDeviceId();
+        Long deviceSpecId = ramUsage.getDevice().getId();
         try {
-            logger.info("saveRamUsage called for userId={}, deviceId={}", userId, deviceId);
-            ramUsageRepository.deleteByUserAndDevice(ramUsage.getUser(), ramUsage.getDevice());
-            logger.debug("Old RAM usage entries deleted for userId={}, deviceId={}", userId, deviceId);
-            RamUsage saved = ramUsageRepository.save(ramUsage);
-            logger.info("saveRamUsage succeeded for userId={}, deviceId={}", userId, deviceId);
-            return saved;
+            logger.info("saveRamUsage called for userId={}, deviceSpecId={}", userId, deviceSpecId);
+            if (deviceSampleService.isEnabled()) {
+                DeviceSample sample = new DeviceSample(deviceSpecId, ramUsage.getTimestamp());
+                sample.setTotalMemory(ramUsage.getTotalMemory());
+                sample.setUsedMemory(ramUsage.getUsedMemory());
+                sample.setAvailableMemory(ramUsage.getAvailableMemory());
+                deviceSampleService.write(sample);
+            } else {
+                metricsBatchMapper.upsertRamUsage(ramUsage.getDevice().getId(), ramUsage.getTotalMemory(),
+                        ramUsage.getUsedMemory(), ramUsage.getAvailableMemory(), ramUsage.getTimestamp());
+            }
+            metricHistoryService.record(deviceSpecId, ramUsage.getTimestamp(),
+                    Map.of(SeriesMetric.RAM_USED, ramUsage.getUsedMemory()));
+            logger.info("saveRamUsage succeeded for userId={}, deviceSpecId={}", userId, deviceSpecId);
+            return ramUsage;
         } catch (Exception e) {
-            logger.error("Error in saveRamUsage for userId={}, deviceId={}", userId, deviceId, e);
+            logger.error("Error in saveRamUsage for userId={}, deviceSpecId={}", userId, deviceSpecId, e);
             throw e;
         }
     }
 
+    /** Adds one disk row through the same insert as the batch path; its generated id is set on {@code diskUsage}. */
     @Transactional
     public DiskUsage saveDiskUsage(DiskUsage diskUsage) {
         Long userId = diskUsage.getUser().getId();
-        String deviceId = diskUsage.getDevice().getDeviceId();
+        Long deviceSpecId = diskUsage.getDevice().getId();
         try {
-            logger.info("saveDiskUsage called for userId={}, deviceId={}", userId, deviceId);
-            DiskUsage saved = diskUsageRepository.save(diskUsage);
-            logger.info("saveDiskUsage succeeded for userId={}, deviceId={}", userId, deviceId);
-            return saved;
+            logger.info("saveDiskUsage called for userId={}, deviceSpecId={}", userId, deviceSpecId);
+            DiskUsageDTO row = new DiskUsageDTO(null, diskUsage.getFilesystem(), diskUsage.getSizeGB(),
+                    diskUsage.getUsedGB(), diskUsage.getAvailableGB(), userId, diskUsage.getDevice().getDeviceId(),
+                    diskUsage.getTimestamp());
+            metricsBatchMapper.insertDiskUsage(deviceSpecId, List.of(row), diskUsage.getTimestamp());
+            diskUsage.setId(row.getId());
+            logger.info("saveDiskUsage succeeded for userId={}, deviceSpecId={}", userId, deviceSpecId);
+            return diskUsage;
         } catch (Exception e) {
-            logger.error("Error in saveDiskUsage for userId={}, deviceId={}", userId, deviceId, e);
+            logger.error("Error in saveDiskUsage for userId={}, deviceSpecId={}", userId, deviceSpecId, e);
             throw e;
         }
     }
 
     @Transactional
-    public void deleteAllDiskUsageFor(User user, DeviceSpecification device) {
-        Long userId = user.getId();
-        String deviceId = device.getDeviceId();
+    public void deleteAllDiskUsageFor(DeviceSpecification device) {
+        Long deviceSpecId = device.getId();
         try {
-            logger.info("deleteAllDiskUsageFor called for userId={}, deviceId={}", userId, deviceId);
-            diskUsageRepository.deleteByUserAndDevice(user, device);
-            logger.info("deleteAllDiskUsageFor succeeded for userId={}, deviceId={}", userId, deviceId);
+            logger.info("deleteAllDiskUsageFor called for deviceSpecId={}", deviceSpecId);
+            diskUsageRepository.deleteByDevice(device);
+            logger.info("deleteAllDiskUsageFor succeeded for deviceSpecId={}", deviceSpecId);
         } catch (Exception e) {
-            logger.error("Error in deleteAllDiskUsageFor for userId={}, deviceId={}", userId, deviceId, e);
+            logger.error("Error in deleteAllDiskUsageFor for deviceSpecId={}", deviceSpecId, e);
             throw e;
         }
     }
 
+    /** As {@link #saveCpuUsage}: returns {@code diskIO} as written, without an id. */
     @Transactional
-    public DiskIO saveDiskIO(DiskIO diskIO) {
+    public DiskIOView saveDiskIO(DiskIO diskIO) {
         Long userId = diskIO.getUser().getId();
-        String deviceId = diskIO.getDevice().getDeviceId();
+        Long deviceSpecId = diskIO.getDevice().getId();
         try {
-            logger.info("saveDiskIO called for userId={}, deviceId={}", userId, deviceId);
-            diskIORepository.deleteByUserAndDevice(diskIO.getUser(), diskIO.getDevice());
-            logger.debug("Old Disk I/O entries deleted for userId={}, deviceId={}", userId, deviceId);
-            DiskIO saved = diskIORepository.save(diskIO);
-            logger.info("saveDiskIO succeeded for userId={}, deviceId={}", userId, deviceId);
-            return saved;
+            logger.info("saveDiskIO called for userId={}, deviceSpecId={}", userId, deviceSpecId);
+            if (deviceSampleService.isEnabled()) {
+                DeviceSample sample = new DeviceSample(deviceSpecId, diskIO.getTimestamp());
+                sample.setReadSpeedMBps(diskIO.getReadSpeedMBps());
+                sample.setWriteSpeedMBps(diskIO.getWriteSpeedMBps());
+                deviceSampleService.write(sample);
+            } else {
+                metricsBatchMapper.upsertDiskIO(diskIO.getDevice().getId(),
+                        diskIO.getReadSpeedMBps(), diskIO.getWriteSpeedMBps(), diskIO.getTimestamp());
+            }
+            metricHistoryService.record(deviceSpecId, diskIO.getTimestamp(), Map.of(
+                    SeriesMetric.DISK_READ, diskIO.getReadSpeedMBps(),
+                    SeriesMetric.DISK_WRITE, diskIO.getWriteSpeedMBps()));
+            logger.info("saveDiskIO succeeded for userId={}, deviceSpecId={}", userId, deviceSpecId);
+            return diskIO;
         } catch (Exception e) {
-            logger.error("Error in saveDiskIO for userId={}, deviceId={}", userId, deviceId, e);
+            logger.error("Error in saveDiskIO for userId={}, deviceSpecId={}", userId, deviceSpecId, e);
             throw e;
         }
     }
 
+    /**
+     * Replaces the device's process list with a new snapshot: one bulk delete
+     * plus one multi-row insert, capped at {@link AppConstants#MAX_PROCESSES}.
+     */
     @Transactional
-    public ProcessStatus saveProcessStatus(ProcessStatus ps) {
-        Long userId = ps.getUser().getId();
-        String deviceId = ps.getDevice().getDeviceId();
+    public int replaceProcessSnapshot(Long userId, Long deviceSpecId, List<ProcessStatusDTO> processes) {
         try {
-            logger.info("saveProcessStatus called for userId={}, deviceId={}", userId, deviceId);
-            ProcessStatus saved = processStatusRepository.save(ps);
-            logger.debug("New process status saved (pid={}) for userId={}, deviceId={}",
-                    ps.getPid(), userId, deviceId);
-
-            List<ProcessStatus> all = processStatusRepository
-                    .findByUserAndDeviceOrderByTimestampDesc(ps.getUser(), ps.getDevice());
-            if (all.size() > AppConstants.MAX_PROCESSES) {
-                all.subList(AppConstants.MAX_PROCESSES, all.size())
-                        .forEach(dead -> processStatusRepository.delete(dead));
-                logger.debug("Old process statuses pruned to max {} entries for userId={}, deviceId={}",
-                        AppConstants.MAX_PROCESSES, userId, deviceId);
+            logger.info("replaceProcessSnapshot called for userId={}, deviceSpecId={}, count={}",
+                    userId, deviceSpecId, processes.size());
+            List<ProcessStatusDTO> snapshot = processes.size() > AppConstants.MAX_PROCESSES
+                    ? processes.subList(0, AppConstants.MAX_PROCESSES)
+                    : processes;
+            metricsBatchMapper.deleteProcessStatuses(deviceSpecId);
+            if (!snapshot.isEmpty()) {
+                metricsBatchMapper.insertProcessStatuses(deviceSpecId, snapshot, LocalDateTime.now());
             }
-
-            logger.info("saveProcessStatus succeeded for userId={}, deviceId={}", userId, deviceId);
-            return saved;
+            logger.info("replaceProcessSnapshot succeeded for userId={}, deviceSpecId={}", userId, deviceSpecId);
+            return snapshot.size();
         } catch (Exception e) {
-            logger.error("Error in saveProcessStatus for userId={}, deviceId={}", userId, deviceId, e);
+            logger.error("Error in replaceProcessSnapshot for userId={}, deviceSpecId={}", userId, deviceSpecId, e);
             throw e;
         }
     }
 
 
+    /** As {@link #saveCpuUsage}: returns {@code batteryInfo} as written, without an id. */
     @Transactional
-    public BatteryInfo saveBatteryInfo(BatteryInfo batteryInfo) {
+    public BatteryInfoView saveBatteryInfo(BatteryInfo batteryInfo) {
         Long userId = batteryInfo.getUser().getId();
-        String deviceId = batteryInfo.getDevice().getDeviceId();
+        Long deviceSpecId = batteryInfo.getDevice().getId();
         try {
-            logger.info("saveBatteryInfo called for userId={}, deviceId={}", userId, deviceId);
-            batteryInfoRepository.deleteByUserAndDevice(batteryInfo.getUser(), batteryInfo.getDevice());
-            logger.debug("Old battery info deleted for userId={}, deviceId={}", userId, deviceId);
-            BatteryInfo saved = batteryInfoRepository.save(batteryInfo);
-            logger.info("saveBatteryInfo succeeded for userId={}, deviceId={}", userId, deviceId);
-            return saved;
+            logger.info("saveBatteryInfo called for userId={}, deviceSpecId={}", userId, deviceSpecId);
+            if (deviceSampleService.isEnabled()) {
+                DeviceSample sample = new DeviceSample(deviceSpecId, batteryInfo.getTimestamp());
+                sample.setHasBattery(batteryInfo.isHasBattery());
+                sample.setBatteryPercentage(batteryInfo.getBatteryPercentage());
+                sample.setIsCharging(batteryInfo.isCharging());
+                sample.setPowerConsumption(batteryInfo.getPowerConsumption());
+                deviceSampleService.write(sample);
+            } else {
+                metricsBatchMapper.upsertBatteryInfo(batteryInfo.getDevice().getId(),
+                        batteryInfo.isHasBattery(), batteryInfo.getBatteryPercentage(), batteryInfo.isCharging(),
+                        batteryInfo.getPowerConsumption(), batteryInfo.getTimestamp());
+            }
+            Map<SeriesMetric, Double> history = new EnumMap<>(SeriesMetric.class);
+            if (batteryInfo.isHasBattery()) {
+                history.put(SeriesMetric.BATTERY_PERCENT, (double) batteryInfo.getBatteryPercentage());
+            }
+            if (batteryInfo.getPowerConsumption() != null) {
+                history.put(SeriesMetric.POWER_CONSUMPTION, batteryInfo.getPowerConsumption());
+            }
+            metricHistoryService.record(deviceSpecId, batteryInfo.getTimestamp(), history);
+            logger.info("saveBatteryInfo succeeded for userId={}, deviceSpecId={}", userId, deviceSpecId);
+            return batteryInfo;
         } catch (Exception e) {
-            logger.error("Error in saveBatteryInfo for userId={}, deviceId={}", userId, deviceId, e);
+            logger.error("Error in saveBatteryInfo for userId={}, deviceSpecId={}", userId, deviceSpecId, e);
             throw e;
         }
     }
 
-    public Optional<BatteryInfo> getLatestBatteryInfo(User user, DeviceSpecification device) {
-        Long userId = user.getId();
-        String deviceId = device.getDeviceId();
+    public Optional<BatteryInfoView> getLatestBatteryInfo(DeviceSpecification device) {
+        Long deviceSpecId = device.getId();
         try {
-            logger.info("getLatestBatteryInfo called for userId={}, deviceId={}", userId, deviceId);
-            Optional<BatteryInfo> result = batteryInfoRepository
-                    .findTopByUserAndDeviceOrderByTimestampDesc(user, device);
-            logger.info("getLatestBatteryInfo returned {} for userId={}, deviceId={}",
-                    result.map(b -> "1 record").orElse("0 records"), userId, deviceId);
+            logger.info("getLatestBatteryInfo called for deviceSpecId={}", deviceSpecId);
+            Optional<BatteryInfoView> result = deviceSampleService.isEnabled()
+                    ? deviceSampleService.latestBatteryInfo(device)
+                    : batteryInfoRepository.findTopByDeviceOrderByTimestampDesc(device);
+            logger.info("getLatestBatteryInfo returned {} for deviceSpecId={}",
+                    result.map(b -> "1 record").orElse("0 records"), deviceSpecId);
             return result;
         } catch (Exception e) {
-            logger.error("Error in getLatestBatteryInfo for userId={}, deviceId={}", userId, deviceId, e);
+            logger.error("Error in getLatestBatteryInfo for deviceSpecId={}", deviceSpecId, e);
             throw e;
         }
     }
 
-    public Optional<CpuUsage> getLatestCpuUsage(User user, DeviceSpecification device) {
-        Long userId = user.getId();
-        String deviceId = device.getDeviceId();
+    public Optional<CpuUsageView> getLatestCpuUsage(DeviceSpecification device) {
+        Long deviceSpecId = device.getId();
         try {
-            logger.info("getLatestCpuUsage called for userId={}, deviceId={}", userId, deviceId);
-            Optional<CpuUsage> result = cpuUsageRepository
-                    .findTopByUserAndDeviceOrderByTimestampDesc(user, device);
-            logger.info("getLatestCpuUsage returned {} for userId={}, deviceId={}",
-                    result.map(c -> "1 record").orElse("0 records"), userId, deviceId);
+            logger.info("getLatestCpuUsage called for deviceSpecId={}", deviceSpecId);
+            Optional<CpuUsageView> result = deviceSampleService.isEnabled()
+                    ? deviceSampleService.latestCpuUsage(device)
+                    : cpuUsageRepository.findTopByDeviceOrderByTimestampDesc(device);
+            logger.info("getLatestCpuUsage returned {} for deviceSpecId={}",
+                    result.map(c -> "1 record").orElse("0 records"), deviceSpecId);
             return result;
         } catch (Exception e) {
-            logger.error("Error in getLatestCpuUsage for userId={}, deviceId={}", userId, deviceId, e);
+            logger.error("Error in getLatestCpuUsage for deviceSpecId={}", deviceSpecId, e);
             throw e;
         }
     }
 
-    public Optional<RamUsage> getLatestRamUsage(User user, DeviceSpecification device) {
-        Long userId = user.getId();
-        String deviceId = device.getDeviceId();
+    public Optional<RamUsageView> getLatestRamUsage(DeviceSpecification device) {
+        Long deviceSpecId = device.getId();
         try {
-            logger.info("getLatestRamUsage called for userId={}, deviceId={}", userId, deviceId);
-            Optional<RamUsage> result = ramUsageRepository
-                    .findTopByUserAndDeviceOrderByTimestampDesc(user, device);
-            logger.info("getLatestRamUsage returned {} for userId={}, deviceId={}",
-                    result.map(r -> "1 record").orElse("0 records"), userId, deviceId);
+            logger.info("getLatestRamUsage called for deviceSpecId={}", deviceSpecId);
+            Optional<RamUsageView> result = deviceSampleService.isEnabled()
+                    ? deviceSampleService.latestRamUsage(device)
+                    : ramUsageRepository.findTopByDeviceOrderByTimestampDesc(device);
+            logger.info("getLatestRamUsage returned {} for deviceSpecId={}",
+                    result.map(r -> "1 record").orElse("0 records"), deviceSpecId);
             return result;
         } catch (Exception e) {
-            logger.error("Error in getLatestRamUsage for userId={}, deviceId={}", userId, deviceId, e);
+            logger.error("Error in getLatestRamUsage for deviceSpecId={}", deviceSpecId, e);
             throw e;
         }
     }
 
-    public List<DiskUsage> getLatestDiskUsage(User user, DeviceSpecification device) {
-        Long userId = user.getId();
-        String deviceId = device.getDeviceId();
+    public List<DiskUsageView> getLatestDiskUsage(DeviceSpecification device) {
+        Long deviceSpecId = device.getId();
         try {
-            logger.info("getLatestDiskUsage called for userId={}, deviceId={}", userId, deviceId);
-            List<DiskUsage> results = diskUsageRepository
-                    .findByUserAndDeviceOrderByTimestampDesc(user, device);
+            logger.info("getLatestDiskUsage called for deviceSpecId={}", deviceSpecId);
+            List<DiskUsageView> results = diskUsageRepository.findByDeviceOrderByTimestampDesc(device);
             if (!results.isEmpty()) {
-                logger.info("Returned {} records for userId={}, deviceId={}", results.size(), userId, deviceId);
+                logger.info("Returned {} records for deviceSpecId={}", results.size(), deviceSpecId);
             } else {
-                logger.info("No records found for userId={}, deviceId={}", userId, deviceId);
+                logger.info("No records found for deviceSpecId={}", deviceSpecId);
             }
             return results;
         } catch (Exception e) {
-            logger.error("Error in getLatestDiskUsage for userId={}, deviceId={}", userId, deviceId, e);
+            logger.error("Error in getLatestDiskUsage for deviceSpecId={}", deviceSpecId, e);
             throw e;
         }
     }
 
 
-    public Optional<DiskIO> getLatestDiskIO(User user, DeviceSpecification device) {
-        Long userId = user.getId();
-        String deviceId = device.getDeviceId();
+    public Optional<DiskIOView> getLatestDiskIO(DeviceSpecification device) {
+        Long deviceSpecId = device.getId();
         try {
-            logger.info("getLatestDiskIO called for userId={}, deviceId={}", userId, deviceId);
-            Optional<DiskIO> result = diskIORepository
-                    .findTopByUserAndDeviceOrderByTimestampDesc(user, device);
-            logger.info("getLatestDiskIO returned {} for userId={}, deviceId={}",
-                    result.map(d -> "1 record").orElse("0 records"), userId, deviceId);
+            logger.info("getLatestDiskIO called for deviceSpecId={}", deviceSpecId);
+            Optional<DiskIOView> result = deviceSampleService.isEnabled()
+                    ? deviceSampleService.latestDiskIO(device)
+                    : diskIORepository.findTopByDeviceOrderByTimestampDesc(device);
+            logger.info("getLatestDiskIO returned {} for deviceSpecId={}",
+                    result.map(d -> "1 record").orElse("0 records"), deviceSpecId);
             return result;
         } catch (Exception e) {
-            logger.error("Error in getLatestDiskIO for userId={}, deviceId={}", userId, deviceId, e);
+            logger.error("Error in getLatestDiskIO for deviceSpecId={}", deviceSpecId, e);
             throw e;
         }
     }
 
-    public List<ProcessStatus> getProcessStatuses(User user, DeviceSpecification device) {
-        Long userId = user.getId();
-        String deviceId = device.getDeviceId();
+    public List<ProcessStatusView> getProcessStatuses(DeviceSpecification device) {
+        Long deviceSpecId = device.getId();
         try {
-            logger.info("getProcessStatuses called for userId={}, deviceId={}", userId, deviceId);
-            List<ProcessStatus> list = processStatusRepository
-                    .findByUserAndDeviceOrderByTimestampDesc(user, device)
+            logger.info("getProcessStatuses called for deviceSpecId={}", deviceSpecId);
+            List<ProcessStatusView> list = processStatusRepository
+                    .findByDeviceOrderByTimestampDesc(device)
                     .stream()
                     .limit(AppConstants.MAX_PROCESSES)
                     .toList();
-            logger.info("getProcessStatuses returned {} entries for userId={}, deviceId={}",
-                    list.size(), userId, deviceId);
+            logger.info("getProcessStatuses returned {} entries for deviceSpecId={}",
+                    list.size(), deviceSpecId);
             return list;
         } catch (Exception e) {
-            logger.error("Error in getProcessStatuses for userId={}, deviceId={}", userId, deviceId, e);
+            logger.error("Error in getProcessStatuses for deviceSpecId={}", deviceSpecId, e);
             throw e;
         }
     }
@@ -0,0 +1,257 @@
+package com.project.spar.service;
+
+import com.project.spar.cache.DeviceRegistry;
+import com.project.spar.cache.LatestMetricsCache;
+import com.project.spar.cache.ResourceVersions;
+import com.project.spar.dto.RetentionStatsDTO;
+import com.project.spar.mapper.MetricHistoryMapper;
+import com.project.spar.mapper.RetentionMapper;
+import com.project.spar.model.DeviceSpecification;
+import com.project.spar.model.MetricRollup;
+import com.project.spar.repository.DeviceSpecificationRepository;
+import com.project.spar.shard.ShardRouter;
+import com.project.spar.timeseries.SeriesStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntSupplier;
+import java.util.stream.Collectors;
+
+/**
+ * Background retention for everything the write path never deletes by itself:
+ * expired tokens, the data of devices that stopped reporting, metric history
+ * past its retention and, in the wide layout, superseded device samples.
+ * <p>
+ * Each policy deletes in bounded chunks, one statement per chunk and each in
+ * its own implicit transaction, so no run holds row locks across a whole
+ * table. A failing policy is logged and the others still run. What each
+ * policy removed is kept for {@link #getStats()}.
+ * <p>
+ * Tokens live on the primary; every metric policy runs on all shards at once
+ * and reports their summed count.
+ * <p>
+ * Reclaimed devices leave the latest-metrics cache. Those left with no
+ * latest values at all have stopped reporting, so their in-memory series and
+ * registry entries go as well.
+ */
+@Service
+public class RetentionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(RetentionService.class);
+
+    /**
+     * Per-device reclaim: drop a device's rows once its newest row is older
+     * than {@code maxAge}; {@code silent} marks the tables every reporting
+     * device keeps writing to.
+     */
+    private record DevicePolicy(String table, String tsColumn, Duration maxAge, boolean silent) {}
+
+    @Value("${retention.enabled:true}") private boolean enabled;
+    @Value("${retention.deleteChunkSize:5000}") private int chunkSize;
+    @Value("${retention.deviceChunkSize:50}") private int deviceChunkSize;
+    @Value("${retention.expiredTokenGraceMinutes:60}") private long expiredTokenGraceMinutes;
+    @Value("${retention.processStatusMaxAgeHours:24}") private long processStatusMaxAgeHours;
+    @Value("${retention.silentDeviceDays:30}") private long silentDeviceDays;
+
+    @Value("${history.rawRetentionDays:7}") private int rawRetentionDays;
+    @Value("${history.minuteRetentionDays:30}") private int minuteRetentionDays;
+    @Value("${history.hourRetentionDays:730}") private int hourRetentionDays;
+
+    @Autowired
+    private RetentionMapper retentionMapper;
+
+    @Autowired
+    private MetricHistoryMapper metricHistoryMapper;
+
+    @Autowired
+    private MetricHistoryService metricHistoryService;
+
+    @Autowired
+    private MetricSamplePartitions metricSamplePartitions;
+
+    @Autowired
+    private DeviceSampleService deviceSampleService;
+
+    @Autowired
+    private ResourceVersions resourceVersions;
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    @Autowired
+    private LatestMetricsCache latestMetricsCache;
+
+    @Autowired
+    private SeriesStore seriesStore;
+
+    @Autowired
+    private DeviceRegistry deviceRegistry;
+
+    @Autowired
+    private DeviceSpecificationRepository deviceRepo;
+
+    private final Map<String, Long> totalDeleted = new ConcurrentHashMap<>();
+    private volatile Map<String, Long> lastRunDeleted = Map.of();
+    private volatile Instant lastRunAt;
+    private volatile long lastRunMillis;
+
+    @Scheduled(initialDelayString = "${retention.intervalMs:3600000}",
+               fixedDelayString = "${retention.intervalMs:3600000}")
+    public void scheduledPurge() {
+        if (enabled) {
+            purge();
+        }
+    }
+
+    /** Runs every policy once and returns the rows each removed. */
+    public Map<String, Long> purge() {
+        long started = System.currentTimeMillis();
+        LocalDateTime now = LocalDateTime.now();
+        Map<String, Long> deleted = new LinkedHashMap<>();
+
+        run(deleted, "tokens", () -> deleteInChunks(() -> retentionMapper.deleteExpiredTokens(
+                Instant.now().minus(Duration.ofMinutes(expiredTokenGraceMinutes)), chunkSize)));
+
+        Set<Long> reclaimed = ConcurrentHashMap.newKeySet();
+        Set<Long> silent = ConcurrentHashMap.newKeySet();
+        for (DevicePolicy policy : devicePolicies()) {
+            run(deleted, policy.table(), () -> onEveryShard(() ->
+                    reclaimStaleDevices(policy, now.minus(policy.maxAge()), policy.silent() ? silent : reclaimed)));
+        }
+        reclaimed.addAll(silent);
+        // latest values may have gone; the deletes are not tracked per device, so drop every validator
+        if (devicePolicies().stream().anyMatch(p -> deleted.getOrDefault(p.table(), 0L) > 0)) {
+            resourceVersions.touchAll();
+        }
+        if (!reclaimed.isEmpty()) {
+            try {
+                evictReclaimed(reclaimed, silent);
+            } catch (RuntimeException e) {
+                logger.warn("Evicting {} reclaimed devices failed", reclaimed.size(), e);
+            }
+        }
+
+        if (metricHistoryService.isEnabled()) {
+            // whole expired days go first; the chunked delete then only trims the cutoff day
+            run(deleted, "metric_samples.partitions", () -> onEveryShard(() ->
+                    metricSamplePartitions.maintain(now.toLocalDate())));
+            run(deleted, "metric_samples", () -> onEveryShard(() -> deleteInChunks(() ->
+                    metricHistoryMapper.deleteSamplesBefore(now.minusDays(rawRetentionDays), chunkSize))));
+            run(deleted, "metric_rollups.minute", () -> onEveryShard(() -> deleteInChunks(() ->
+                    metricHistoryMapper.deleteRollupsBefore(
+                            MetricRollup.Resolution.MINUTE, now.minusDays(minuteRetentionDays), chunkSize))));
+            run(deleted, "metric_rollups.hour", () -> onEveryShard(() -> deleteInChunks(() ->
+                    metricHistoryMapper.deleteRollupsBefore(
+                            MetricRollup.Resolution.HOUR, now.minusDays(hourRetentionDays), chunkSize))));
+        }
+        if (deviceSampleService.isEnabled()) {
+            run(deleted, "device_samples.superseded", () -> onEveryShard(() -> deleteInChunks(() ->
+                    deviceSampleService.deleteSupersededBefore(now.minusDays(rawRetentionDays), chunkSize))));
+        }
+
+        deleted.forEach((name, count) -> totalDeleted.merge(name, count, Long::sum));
+        lastRunDeleted = deleted;
+        lastRunAt = Instant.ofEpochMilli(started);
+        lastRunMillis = System.currentTimeMillis() - started;
+        logger.info("Retention run took {} ms, removed {}", lastRunMillis, deleted);
+        return deleted;
+    }
+
+    public RetentionStatsDTO getStats() {
+        return new RetentionStatsDTO(lastRunAt, lastRunMillis,
+                new LinkedHashMap<>(lastRunDeleted), new TreeMap<>(totalDeleted));
+    }
+
+    private List<DevicePolicy> devicePolicies() {
+        Duration silent = Duration.ofDays(silentDeviceDays);
+        return List.of(
+                new DevicePolicy("process_status", "timestamp", Duration.ofHours(processStatusMaxAgeHours), false),
+                new DevicePolicy("disk_usage", "timestamp", silent, true),
+                new DevicePolicy("battery_info", "timestamp", silent, true),
+                new DevicePolicy("cpu_usage", "timestamp", silent, true),
+                new DevicePolicy("ram_usage", "timestamp", silent, true),
+                new DevicePolicy("disk_io", "timestamp", silent, true),
+                new DevicePolicy("device_samples", "ts", silent, true));
+    }
+
+    // one pass over the table's devices in key order; each chunk's staleness check reads only their own rows
+    private int reclaimStaleDevices(DevicePolicy policy, LocalDateTime cutoff, Set<Long> reclaimed) {
+        int total = 0;
+        long after = 0;
+        List<Long> devices;
+        do {
+            devices = retentionMapper.selectDevicesAfter(policy.table(), after, deviceChunkSize);
+            if (devices.isEmpty()) {
+                break;
+            }
+            after = devices.get(devices.size() - 1);
+            List<Long> stale = retentionMapper.selectStaleDevices(policy.table(), policy.tsColumn(), cutoff, devices);
+            if (!stale.isEmpty()) {
+                total += retentionMapper.deleteForDevices(policy.table(), policy.tsColumn(), cutoff, stale);
+                reclaimed.addAll(stale);
+            }
+        } while (devices.size() >= deviceChunkSize);
+        return total;
+    }
+
+    private void evictReclaimed(Set<Long> reclaimed, Set<Long> silent) {
+        // a device that lost one type's rows but still reports others keeps its series
+        List<Long> candidates = List.copyOf(silent);
+        Set<Long> stillReporting = candidates.isEmpty() ? Set.of() : shardRouter.onEveryShard(() ->
+                        devicePolicies().stream()
+                                .filter(DevicePolicy::silent)
+                                .flatMap(p -> retentionMapper.selectDevicesWithRows(p.table(), candidates).stream())
+                                .toList())
+                .stream().flatMap(List::stream).collect(Collectors.toSet());
+
+        int gone = 0;
+        for (DeviceSpecification device : deviceRepo.findAllById(reclaimed)) {
+            latestMetricsCache.evict(device.getDeviceId());
+            if (silent.contains(device.getId()) && !stillReporting.contains(device.getId())) {
+                deviceRegistry.evict(device.getDeviceId());
+            }
+        }
+        for (Long deviceSpecId : candidates) {
+            if (!stillReporting.contains(deviceSpecId)) {
+                seriesStore.evictDevice(deviceSpecId);
+                gone++;
+            }
+        }
+        logger.info("Evicted {} reclaimed devices from the caches, {} of them silent", reclaimed.size(), gone);
+    }
+
+    private static void run(Map<String, Long> deleted, String name, IntSupplier policy) {
+        try {
+            deleted.put(name, (long) policy.getAsInt());
+        } catch (RuntimeException e) {
+            logger.warn("Retention policy {} failed", name, e);
+        }
+    }
+
+    private int onEveryShard(IntSupplier policy) {
+        return shardRouter.onEveryShard(policy::getAsInt).stream().mapToInt(Integer::intValue).sum();
+    }
+
+    private int deleteInChunks(IntSupplier deleteChunk) {
+        int total = 0;
+        int deleted;
+        do {
+            deleted = deleteChunk.getAsInt();
+            total += deleted;
+        } while (deleted >= chunkSize);
+        return total;
+    }
+}
@@ -3,31 +3,89 @@ package com.project.spar.service;
 import com.project.spar.model.Token;
 import com.project.spar.repository.TokenRepository;
 import com.project.spar.security.JwtUtils;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * Issues and revokes JWTs.
+ * <p>
+ * The {@code tokens} table is the authority for which tokens are live, so a
+ * token issued or revoked on another instance counts here too. Lookups are
+ * cached per JTI: a live answer is trusted for {@code jwt.tokenRecheckMs}
+ * before it is confirmed against the table again, a missing one for
+ * {@code jwt.tokenNegativeCacheMs}. Revoking on this instance takes effect
+ * here at once; on other instances within the recheck interval.
+ * <p>
+ * If the table cannot be read, a token is rejected unless it was confirmed
+ * live no longer than {@code jwt.tokenRecheckMs + jwt.tokenOutageGraceMs}
+ * ago. The grace defaults to 0, so an outage fails closed; a non-zero grace
+ * is also how long a revocation on another instance can go unnoticed.
+ */
 @Service
 public class TokenService {
+    private static final Logger logger = LoggerFactory.getLogger(TokenService.class);
+
+    // sweep stale cache entries once every this many issued or looked-up tokens
+    private static final int PURGE_INTERVAL = 256;
+
     private final TokenRepository tokenRepo;
     private final JwtUtils jwtUtils;
 
+    @Value("${jwt.tokenRecheckMs:30000}") private long recheckMs;
+    @Value("${jwt.tokenNegativeCacheMs:5000}") private long negativeCacheMs;
+    @Value("${jwt.tokenOutageGraceMs:0}") private long outageGraceMs;
+
+    /** One answer from the table; {@code username == null} means the JTI was not (or no longer) live. */
+    private record TokenCheck(String username, Instant expiresAt, long checkedAtMs) {
+        boolean live() {
+            return username != null;
+        }
+    }
+
+    private final ConcurrentHashMap<String, TokenCheck> checks = new ConcurrentHashMap<>();
+    private final AtomicInteger sincePurge = new AtomicInteger();
+
     public TokenService(TokenRepository tokenRepo, JwtUtils jwtUtils) {
         this.tokenRepo = tokenRepo;
         this.jwtUtils = jwtUtils;
     }
 
     /**
-     * Generate a new JWT for the given username, extract its JTI,
+     * Preloads every unexpired token, so requests right after startup do not
+     * each query the table. Best effort: lookups fall back to the table anyway.
+     */
+    @PostConstruct
+    void loadIndex() {
+        try {
+            long now = System.currentTimeMillis();
+            List<Token> live = tokenRepo.findByExpiresAtAfter(Instant.now());
+            live.forEach(t -> checks.put(t.getJti(), new TokenCheck(t.getUsername(), t.getExpiresAt(), now)));
+            logger.info("Loaded {} live tokens into token cache", live.size());
+        } catch (RuntimeException e) {
+            logger.warn("Could not preload tokens, checking them on first use: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Generate a new JWT for the given user, extract its JTI,
      * persist it, and return the raw token string.
      */
     @Transactional
-    public String createTokenForUser(String username) {
+    public String createTokenForUser(Long userId, String username, Collection<String> roles) {
         // 1) generate JWT
-        String token = jwtUtils.generateToken(username);
+        String token = jwtUtils.generateToken(userId, username, roles);
 
         // 2) pull out the JTI and compute issued/expires
         String jti = jwtUtils.getJtiFromToken(token);
@@ -41,18 +99,60 @@ public class TokenService {
         t.setIssuedAt(issuedAt);
         t.setExpiresAt(expiresAt);
         tokenRepo.save(t);
-
+        checks.put(jti, new TokenCheck(username, expiresAt, System.currentTimeMillis()));
+        maybePurge();
         return token;
     }
 
     /**
-     * Returns true if we have an unexpired Token record for that jti.
+     * Returns true if we have an unexpired Token record for that jti. May
+     * query the database; see {@link #cachedValidity} for a lookup that never does.
+     * False while the table is unreachable, unless the outage grace still covers the token.
      */
-    @Transactional(readOnly = true)
     public boolean isJtiValid(String jti) {
-        return tokenRepo.findByJti(jti)
-                .filter(t -> t.getExpiresAt().isAfter(Instant.now()))
-                .isPresent();
+        if (jti == null) {
+            return false;
+        }
+        Optional<Boolean> cached = cachedValidity(jti);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
+        TokenCheck previous = checks.get(jti);
+        TokenCheck check;
+        try {
+            check = tokenRepo.findByJti(jti)
+                    .filter(t -> t.getExpiresAt().isAfter(Instant.now()))
+                    .map(t -> new TokenCheck(t.getUsername(), t.getExpiresAt(), System.currentTimeMillis()))
+                    .orElseGet(() -> new TokenCheck(null, null, System.currentTimeMillis()));
+        } catch (DataAccessException e) {
+            boolean graced = previous != null && previous.live()
+                    && previous.expiresAt().isAfter(Instant.now())
+                    && System.currentTimeMillis() - previous.checkedAtMs() < recheckMs + outageGraceMs;
+            logger.warn("Could not check token, {}: {}", graced ? "within outage grace" : "rejecting it", e.getMessage());
+            return graced;
+        }
+        checks.put(jti, check);
+        maybePurge();
+        return check.live();
+    }
+
+    /** The cached answer for {@code jti}, or empty if the table has to be asked. */
+    public Optional<Boolean> cachedValidity(String jti) {
+        if (jti == null) {
+            return Optional.of(false);
+        }
+        TokenCheck check = checks.get(jti);
+        if (check == null) {
+            return Optional.empty();
+        }
+        long age = System.currentTimeMillis() - check.checkedAtMs();
+        if (!check.live()) {
+            return age < negativeCacheMs ? Optional.of(false) : Optional.empty();
+        }
+        if (!check.expiresAt().isAfter(Instant.now())) {
+            return Optional.of(false);
+        }
+        return age < recheckMs ? Optional.of(true) : Optional.empty();
     }
 
     /**
@@ -61,6 +161,7 @@ public class TokenService {
     @Transactional
     public void revokeToken(String jti) {
         tokenRepo.deleteByJti(jti);
+        checks.put(jti, new TokenCheck(null, null, System.currentTimeMillis()));
     }
 
     /**
@@ -69,6 +170,7 @@ public class TokenService {
     @Transactional
     public void revokeAllTokensForUser(String username) {
         tokenRepo.deleteByUsername(username);
+        checks.values().removeIf(t -> username.equals(t.username()));
     }
 
     /**
@@ -83,4 +185,20 @@ public class TokenService {
         return tokenRepo.existsByJti(jti);
     }
 
+    public int getCachedTokenCount() {
+        return checks.size();
+    }
+
+    private void maybePurge() {
+        if (sincePurge.incrementAndGet() < PURGE_INTERVAL) {
+            return;
+        }
+        sincePurge.set(0);
+        Instant now = Instant.now();
+        long nowMs = System.currentTimeMillis();
+        checks.values().removeIf(t -> t.live()
+                ? !t.expiresAt().isAfter(now)
+                : nowMs - t.checkedAtMs() >= negativeCacheMs);
+    }
+
 }
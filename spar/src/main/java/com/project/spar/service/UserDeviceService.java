@@ -1,5 +1,6 @@
 package com.project.spar.service;
 
+import com.project.spar.cache.DeviceRegistry;
 import com.project.spar.constants.AppConstants;
 import com.project.spar.dto.DeviceSpecificationDTO;
 import com.project.spar.model.DeviceSpecification;
@@ -32,6 +33,9 @@ public class UserDeviceService {
     @Autowired
     private MetricsService metricsService;
 
+    @Autowired
+    private DeviceRegistry deviceRegistry;
+
     /**
      * Loads the User, checks for existing deviceName, creates one if needed,
      * persists via metricsService, then returns the full list of DTOs.
@@ -83,6 +87,7 @@ public class UserDeviceService {
 
             // 4) Re-fetch & map to DTO
             List<DeviceSpecification> devices = deviceRepo.findAllByUser(user);
+            devices.forEach(deviceRegistry::register);
             List<DeviceSpecificationDTO> dtos = devices.stream()
                     .map(ds -> new DeviceSpecificationDTO(
                             ds.getId(),
@@ -0,0 +1,26 @@
+package com.project.spar.shard;
+
+/**
+ * The shard the current thread's metric statements go to; unset means the
+ * primary. Only {@link ShardRouter} changes it, always before a transaction
+ * starts, because a connection stays on the shard it was taken from.
+ */
+final class ShardContext {
+
+    private static final ThreadLocal<Integer> CURRENT = new ThreadLocal<>();
+
+    private ShardContext() {
+    }
+
+    static Integer get() {
+        return CURRENT.get();
+    }
+
+    static void set(Integer shard) {
+        if (shard == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(shard);
+        }
+    }
+}
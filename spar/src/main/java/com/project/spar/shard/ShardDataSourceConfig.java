@@ -0,0 +1,90 @@
+package com.project.spar.shard;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.flywaydb.core.Flyway;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Replaces Boot's single DataSource with a {@link ShardRoutingDataSource} when
+ * {@code shard.enabled}: the primary from {@code spring.datasource.*} plus one
+ * pool per {@code shard.urls} entry, all with the {@code spring.datasource.hikari.*}
+ * settings. JPA, MyBatis and Flyway keep using the one DataSource bean; outside
+ * {@link ShardRouter#onShard} it is the primary.
+ * <p>
+ * Shards hold only the metric tables and are migrated from
+ * {@code shard.migrationLocations} at startup.
+ */
+@Configuration
+@ConditionalOnProperty(name = "shard.enabled", havingValue = "true")
+public class ShardDataSourceConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(ShardDataSourceConfig.class);
+
+    @Value("${shard.urls}") private String urls;
+    @Value("${shard.username:${spring.datasource.username:}}") private String username;
+    @Value("${shard.password:${spring.datasource.password:}}") private String password;
+    @Value("${shard.migrate:true}") private boolean migrate;
+    @Value("${shard.migrationLocations:classpath:db/migration/shard}") private String migrationLocations;
+
+    @Bean
+    @Primary
+    public DataSource dataSource(DataSourceProperties properties, Environment environment) {
+        HikariDataSource primary = pool(environment, properties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .build(), "spar-primary");
+
+        Map<Object, Object> shards = new HashMap<>();
+        List<String> shardUrls = ShardRouter.parseUrls(urls);
+        for (int i = 0; i < shardUrls.size(); i++) {
+            HikariDataSource shard = pool(environment, properties.initializeDataSourceBuilder()
+                    .type(HikariDataSource.class)
+                    .url(shardUrls.get(i))
+                    .username(username)
+                    .password(password)
+                    .build(), "spar-shard-" + i);
+            if (migrate) {
+                migrate(shard, i);
+            }
+            shards.put(i, shard);
+        }
+
+        ShardRoutingDataSource routing = new ShardRoutingDataSource();
+        routing.setDefaultTargetDataSource(primary);
+        routing.setTargetDataSources(shards);
+        routing.afterPropertiesSet();
+        logger.info("Routing metric tables to {} shards", shards.size());
+        return routing;
+    }
+
+    private static HikariDataSource pool(Environment environment, HikariDataSource dataSource, String name) {
+        Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(dataSource));
+        dataSource.setPoolName(name);
+        return dataSource;
+    }
+
+    private void migrate(DataSource shard, int index) {
+        var result = Flyway.configure()
+                .dataSource(shard)
+                .locations(migrationLocations.split(","))
+                .baselineOnMigrate(true)
+                .baselineVersion("0")
+                .load()
+                .migrate();
+        logger.info("Shard {} migrated, {} scripts applied", index, result.migrationsExecuted);
+    }
+}
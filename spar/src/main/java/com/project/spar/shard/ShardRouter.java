@@ -0,0 +1,198 @@
+package com.project.spar.shard;
+
+import com.project.spar.config.SparThreads;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManagerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.zip.CRC32;
+
+/**
+ * Places every metric row on one of {@code shard.urls} by a hash of its
+ * {@code deviceId}; users, devices and tokens stay on the primary
+ * ({@code spring.datasource}).
+ * <p>
+ * Callers wrap each metric read or write in {@link #onShard}, outside any
+ * transaction, so that the transaction opened inside takes its connection
+ * from the device's shard. A transaction therefore never spans two shards.
+ * User-level views use {@link #fanOut} and maintenance uses
+ * {@link #onEveryShard}, which run one worker per shard in parallel.
+ * <p>
+ * With {@code shard.enabled=false} (the default) there is one database and
+ * every method simply runs its work on the calling thread.
+ */
+@Component
+public class ShardRouter {
+
+    private static final Logger logger = LoggerFactory.getLogger(ShardRouter.class);
+
+    @Value("${shard.enabled:false}") private boolean enabled;
+    @Value("${shard.urls:}") private String urls;
+
+    @Autowired
+    private SparThreads sparThreads;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private int shardCount = 1;
+    private Executor workers;
+
+    @PostConstruct
+    void init() {
+        if (!enabled) {
+            return;
+        }
+        shardCount = parseUrls(urls).size();
+        if (shardCount == 0) {
+            throw new IllegalStateException("shard.enabled requires at least one entry in shard.urls");
+        }
+        workers = sparThreads.executor("spar-shard-", shardCount);
+        logger.info("Metric tables sharded across {} databases", shardCount);
+    }
+
+    @PreDestroy
+    void stop() {
+        if (workers != null) {
+            SparThreads.shutdown(workers);
+        }
+    }
+
+    /** Splits the comma separated {@code shard.urls}; the position of a URL is its shard index. */
+    static List<String> parseUrls(String urls) {
+        return Arrays.stream(urls.split(","))
+                .map(String::trim)
+                .filter(url -> !url.isEmpty())
+                .toList();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int shardCount() {
+        return shardCount;
+    }
+
+    /** The shard holding the metrics of {@code deviceId}; stable as long as the shard count is. */
+    public int shardOf(String deviceId) {
+        if (!enabled) {
+            return 0;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(deviceId.getBytes(StandardCharsets.UTF_8));
+        return (int) (crc.getValue() % shardCount);
+    }
+
+    /** Runs {@code work} against the shard of {@code deviceId}. */
+    public <T> T onShard(String deviceId, Supplier<T> work) {
+        return onShard(shardOf(deviceId), work);
+    }
+
+    /**
+     * Runs {@code work} against {@code shard}. The request's open-in-view
+     * EntityManager, which may already hold a primary connection, is set
+     * aside meanwhile so that the work opens its own on the shard.
+     *
+     * @throws IllegalStateException if called inside a transaction on another shard
+     */
+    public <T> T onShard(int shard, Supplier<T> work) {
+        Integer current = ShardContext.get();
+        if (!enabled || Objects.equals(current, shard)) {
+            return work.get();
+        }
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("Cannot switch to shard " + shard + " inside a transaction");
+        }
+        Object requestEntityManager = TransactionSynchronizationManager.unbindResourceIfPossible(entityManagerFactory);
+        ShardContext.set(shard);
+        try {
+            return work.get();
+        } finally {
+            ShardContext.set(current);
+            if (requestEntityManager != null) {
+                TransactionSynchronizationManager.bindResource(entityManagerFactory, requestEntityManager);
+            }
+        }
+    }
+
+    /** Groups {@code items} by the shard of their device, in shard order. */
+    public <T> Map<Integer, List<T>> groupByShard(Collection<T> items, Function<T, String> deviceIdOf) {
+        Map<Integer, List<T>> groups = new TreeMap<>();
+        for (T item : items) {
+            groups.computeIfAbsent(shardOf(deviceIdOf.apply(item)), s -> new ArrayList<>()).add(item);
+        }
+        return groups;
+    }
+
+    /**
+     * Applies {@code work} to every item on its device's shard, the shards in
+     * parallel and the items of one shard in order; results keep the order of
+     * {@code items}.
+     */
+    @SuppressWarnings("unchecked")
+    public <T, R> List<R> fanOut(List<T> items, Function<T, String> deviceIdOf, Function<T, R> work) {
+        if (!enabled) {
+            return items.stream().map(work).toList();
+        }
+        Map<Integer, List<Integer>> positions = new TreeMap<>();
+        for (int i = 0; i < items.size(); i++) {
+            positions.computeIfAbsent(shardOf(deviceIdOf.apply(items.get(i))), s -> new ArrayList<>()).add(i);
+        }
+        Object[] results = new Object[items.size()];
+        List<CompletableFuture<?>> pending = new ArrayList<>(positions.size());
+        positions.forEach((shard, indexes) -> pending.add(CompletableFuture.runAsync(() -> onShard(shard, () -> {
+            for (int i : indexes) {
+                results[i] = work.apply(items.get(i));
+            }
+            return null;
+        }), workers)));
+        awaitAll(pending);
+        return Arrays.stream(results).map(r -> (R) r).toList();
+    }
+
+    /** Runs {@code work} once on every shard in parallel; results are in shard order. */
+    public <T> List<T> onEveryShard(Supplier<T> work) {
+        if (!enabled) {
+            return List.of(work.get());
+        }
+        List<CompletableFuture<T>> pending = new ArrayList<>(shardCount);
+        for (int shard = 0; shard < shardCount; shard++) {
+            int target = shard;
+            pending.add(CompletableFuture.supplyAsync(() -> onShard(target, work), workers));
+        }
+        awaitAll(pending);
+        return pending.stream().map(CompletableFuture::join).toList();
+    }
+
+    // surface a worker's exception as if the caller had thrown it
+    private static void awaitAll(List<? extends CompletableFuture<?>> pending) {
+        try {
+            CompletableFuture.allOf(pending.toArray(CompletableFuture[]::new)).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
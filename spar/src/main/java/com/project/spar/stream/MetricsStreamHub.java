@@ -0,0 +1,309 @@
+package com.project.spar.stream;
+
+import com.project.spar.config.SparThreads;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+
+/**
+ * Fan-out of live metric updates to Server-Sent Events subscribers, keyed by
+ * device.
+ * <p>
+ * Every subscriber has its own bounded buffer. When a client reads slower
+ * than its device reports, the oldest pending update is dropped: each update
+ * is a full snapshot, so the newest one supersedes the rest. Buffers are sent
+ * by a small pool of sender threads, never on the ingest thread. Payloads
+ * arrive already serialized, so a tick is encoded once however many clients
+ * watch it.
+ * <p>
+ * A send blocks while the client's socket is full. One that is still blocked
+ * after {@code stream.sendTimeoutMs} counts as stalled: the subscriber is
+ * dropped from the fan-out and the pool gets a replacement thread until the
+ * container gives up on the write, so a few dead clients cannot hold every
+ * sender.
+ */
+@Component
+public class MetricsStreamHub {
+
+    private static final Logger logger = LoggerFactory.getLogger(MetricsStreamHub.class);
+
+    static final String EVENT_METRICS = "metrics";
+
+    @Autowired
+    private SparThreads sparThreads;
+
+    @Value("${stream.bufferSize:16}") private int bufferSize;
+    @Value("${stream.maxSubscribers:1000}") private int maxSubscribers;
+    @Value("${stream.maxSubscribersPerDevice:8}") private int maxSubscribersPerDevice;
+    @Value("${stream.timeoutMs:1800000}") private long timeoutMs;
+    @Value("${stream.senderThreads:2}") private int senderThreads; // platform threads only
+    @Value("${stream.sendTimeoutMs:5000}") private long sendTimeoutMs;
+
+    private final Map<String, List<Subscriber>> subscribers = new ConcurrentHashMap<>();
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicLong droppedEvents = new AtomicLong();
+    private final AtomicLong stalledSends = new AtomicLong();
+    private Executor sender;
+
+    /** One pending SSE event; {@code data == null} is a keep-alive comment. */
+    private record Event(long id, String data) {}
+
+    // Subscriber.sendStartedNanos when no send is in progress, or when the watchdog took it over
+    private static final long IDLE = 0;
+    private static final long STALLED = Long.MIN_VALUE;
+
+    @PostConstruct
+    void start() {
+        sender = sparThreads.executor("spar-stream-", senderThreads);
+    }
+
+    @PreDestroy
+    void stop() {
+        SparThreads.shutdown(sender);
+        subscribers.values().forEach(list -> list.forEach(s -> s.emitter.complete()));
+    }
+
+    /**
+     * Opens a stream for the device, first sending {@code initialJson} if given.
+     *
+     * @throws IllegalStateException if the global or per-device limit is reached
+     */
+    public SseEmitter subscribe(Long userId, String deviceId, String initialJson) {
+        if (subscriberCount.incrementAndGet() > maxSubscribers) {
+            subscriberCount.decrementAndGet();
+            throw new IllegalStateException("subscriber limit reached");
+        }
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        Subscriber subscriber = new Subscriber(userId, deviceId, emitter);
+        // check and add under the device's entry, so neither a concurrent subscribe nor remove can interleave
+        List<Subscriber> forDevice = subscribers.compute(deviceId, (k, list) -> {
+            List<Subscriber> current = list != null ? list : new CopyOnWriteArrayList<>();
+            if (current.size() < maxSubscribersPerDevice) {
+                current.add(subscriber);
+            }
+            return current.isEmpty() ? null : current;
+        });
+        if (forDevice == null || !forDevice.contains(subscriber)) {
+            subscriberCount.decrementAndGet();
+            throw new IllegalStateException("per-device subscriber limit reached");
+        }
+
+        emitter.onCompletion(() -> remove(subscriber));
+        emitter.onTimeout(() -> remove(subscriber));
+        emitter.onError(e -> remove(subscriber));
+        logger.debug("Stream opened for userId={} deviceId={}", userId, deviceId);
+
+        if (initialJson != null) {
+            subscriber.offer(new Event(sequence.incrementAndGet(), initialJson));
+        }
+        return emitter;
+    }
+
+    /** Queues an update for every subscriber of the device owned by {@code userId}. */
+    public void publish(Long userId, String deviceId, String json) {
+        List<Subscriber> forDevice = subscribers.get(deviceId);
+        if (forDevice == null || forDevice.isEmpty()) {
+            return;
+        }
+        Event event = new Event(sequence.incrementAndGet(), json);
+        for (Subscriber s : forDevice) {
+            if (s.userId.equals(userId)) {
+                s.offer(event);
+            }
+        }
+    }
+
+    /**
+     * Ends the streams of every device whose id matches, e.g. devices now
+     * owned by another node; clients reconnect and land on the new owner.
+     */
+    public int closeWhere(Predicate<String> deviceIdMatches) {
+        int closed = 0;
+        for (Map.Entry<String, List<Subscriber>> entry : subscribers.entrySet()) {
+            if (deviceIdMatches.test(entry.getKey())) {
+                for (Subscriber s : entry.getValue()) {
+                    s.emitter.complete();
+                    closed++;
+                }
+            }
+        }
+        return closed;
+    }
+
+    public boolean hasSubscribers(String deviceId) {
+        List<Subscriber> forDevice = subscribers.get(deviceId);
+        return forDevice != null && !forDevice.isEmpty();
+    }
+
+    public int subscriberCount() {
+        return subscriberCount.get();
+    }
+
+    public long droppedEvents() {
+        return droppedEvents.get();
+    }
+
+    public long stalledSends() {
+        return stalledSends.get();
+    }
+
+    // keeps idle connections open through proxies and finds clients that went away
+    @Scheduled(fixedDelayString = "${stream.heartbeatMs:15000}")
+    public void heartbeat() {
+        subscribers.values().forEach(list -> list.forEach(s -> s.offerIfIdle(new Event(0, null))));
+    }
+
+    // the write timeout: a send blocked for too long takes its subscriber out of the fan-out
+    @Scheduled(fixedDelayString = "${stream.stallCheckMs:1000}")
+    public void dropStalled() {
+        long now = System.nanoTime();
+        long timeout = TimeUnit.MILLISECONDS.toNanos(sendTimeoutMs);
+        subscribers.values().forEach(list -> list.forEach(s -> {
+            long started = s.sendStartedNanos.get();
+            if (started != IDLE && started != STALLED && now - started > timeout
+                    && s.sendStartedNanos.compareAndSet(started, STALLED)) {
+                stalledSends.incrementAndGet();
+                resizeSender(1);
+                remove(s);
+                logger.warn("Stream send stalled for {} ms, dropping userId={} deviceId={}",
+                        TimeUnit.NANOSECONDS.toMillis(now - started), s.userId, s.deviceId);
+            }
+        }));
+    }
+
+    // lends the pool a thread for each send stuck in a stalled client's socket
+    private synchronized void resizeSender(int delta) {
+        if (sender instanceof ThreadPoolExecutor pool) {
+            if (delta > 0) {
+                pool.setMaximumPoolSize(pool.getMaximumPoolSize() + delta);
+                pool.setCorePoolSize(pool.getCorePoolSize() + delta);
+            } else {
+                pool.setCorePoolSize(pool.getCorePoolSize() + delta);
+                pool.setMaximumPoolSize(pool.getMaximumPoolSize() + delta);
+            }
+        }
+    }
+
+    private void remove(Subscriber subscriber) {
+        if (!subscriber.removed.compareAndSet(false, true)) {
+            return;
+        }
+        subscribers.computeIfPresent(subscriber.deviceId, (k, list) -> {
+            list.remove(subscriber);
+            return list.isEmpty() ? null : list;
+        });
+        subscriberCount.decrementAndGet();
+        logger.debug("Stream closed for userId={} deviceId={}", subscriber.userId, subscriber.deviceId);
+    }
+
+    private final class Subscriber {
+        private final Long userId;
+        private final String deviceId;
+        private final SseEmitter emitter;
+
+        private final ReentrantLock lock = new ReentrantLock();
+        private final ArrayDeque<Event> buffer = new ArrayDeque<>();
+        private boolean draining; // guarded by lock
+        private final AtomicLong sendStartedNanos = new AtomicLong(IDLE);
+        private final AtomicBoolean removed = new AtomicBoolean();
+
+        Subscriber(Long userId, String deviceId, SseEmitter emitter) {
+            this.userId = userId;
+            this.deviceId = deviceId;
+            this.emitter = emitter;
+        }
+
+        void offer(Event event) {
+            lock.lock();
+            try {
+                if (buffer.size() >= bufferSize) {
+                    buffer.pollFirst();
+                    droppedEvents.incrementAndGet();
+                }
+                buffer.addLast(event);
+                if (draining) {
+                    return;
+                }
+                draining = true;
+            } finally {
+                lock.unlock();
+            }
+            sender.execute(this::drain);
+        }
+
+        void offerIfIdle(Event event) {
+            lock.lock();
+            try {
+                if (draining || !buffer.isEmpty()) {
+                    return;
+                }
+            } finally {
+                lock.unlock();
+            }
+            offer(event);
+        }
+
+        private void drain() {
+            while (true) {
+                Event next;
+                lock.lock();
+                try {
+                    next = buffer.pollFirst();
+                    if (next == null) {
+                        draining = false;
+                        return;
+                    }
+                } finally {
+                    lock.unlock();
+                }
+                long started = System.nanoTime();
+                sendStartedNanos.set(started);
+                try {
+                    emitter.send(next.data() == null
+                            ? SseEmitter.event().comment("keep-alive")
+                            : SseEmitter.event()
+                                    .id(Long.toString(next.id()))
+                                    .name(EVENT_METRICS)
+                                    .data(next.data(), MediaType.APPLICATION_JSON));
+                } catch (IOException | IllegalStateException e) {
+                    // the client went away; the emitter callbacks may not fire for a broken pipe
+                    if (!sendStartedNanos.compareAndSet(started, IDLE)) {
+                        resizeSender(-1);
+                    }
+                    remove(this);
+                    emitter.completeWithError(e);
+                    return;
+                }
+                if (!sendStartedNanos.compareAndSet(started, IDLE)) {
+                    // the watchdog gave up on this send and already replaced this thread
+                    resizeSender(-1);
+                    emitter.complete();
+                    return;
+                }
+            }
+        }
+    }
+}
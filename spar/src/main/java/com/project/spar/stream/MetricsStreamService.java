@@ -0,0 +1,112 @@
+package com.project.spar.stream;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.project.spar.cache.DeviceMetrics;
+import com.project.spar.cache.LatestMetricsCache;
+import com.project.spar.constants.AppConstants;
+import com.project.spar.dto.*;
+import com.project.spar.event.MetricsIngestedEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Feeds the {@link MetricsStreamHub} from the ingest path.
+ * <p>
+ * Every committed batch becomes one {@code metrics} event carrying a
+ * {@link DeviceSnapshotDTO} of the types the batch contained. A new stream
+ * starts with the cached snapshot, when there is one, so the client does not
+ * wait a full reporting interval for its first frame.
+ */
+@Service
+public class MetricsStreamService {
+
+    private static final Logger logger = LoggerFactory.getLogger(MetricsStreamService.class);
+
+    @Autowired
+    private MetricsStreamHub hub;
+
+    @Autowired
+    private LatestMetricsCache latestMetricsCache;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * Opens a live stream for a device the caller has already resolved.
+     *
+     * @throws IllegalStateException if too many streams are open
+     */
+    public SseEmitter open(Long userId, String deviceId) {
+        String initial = latestMetricsCache.get(userId, deviceId)
+                .map(m -> toJson(toSnapshot(m)))
+                .orElse(null);
+        return hub.subscribe(userId, deviceId, initial);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onMetricsIngested(MetricsIngestedEvent event) {
+        if (!hub.hasSubscribers(event.deviceId())) {
+            return; // nobody is watching, skip the serialization
+        }
+        String json = toJson(fromBatch(event));
+        if (json != null) {
+            hub.publish(event.userId(), event.deviceId(), json);
+        }
+    }
+
+    private String toJson(DeviceSnapshotDTO snapshot) {
+        try {
+            return objectMapper.writeValueAsString(snapshot);
+        } catch (JsonProcessingException e) {
+            logger.error("Could not serialize stream event for deviceId={}", snapshot.getDeviceId(), e);
+            return null;
+        }
+    }
+
+    private static DeviceSnapshotDTO toSnapshot(DeviceMetrics m) {
+        return new DeviceSnapshotDTO(m.getUserId(), m.getDeviceId(), m.getBatteryInfo(), m.getCpuUsage(),
+                m.getRamUsage(), m.getDiskIO(), m.getDiskUsage(), m.getProcessStatuses());
+    }
+
+    // rows are stamped with the batch time the same way the cache updater does
+    private static DeviceSnapshotDTO fromBatch(MetricsIngestedEvent event) {
+        Long userId = event.userId();
+        String deviceId = event.deviceId();
+        MetricsBatchDTO batch = event.batch();
+        LocalDateTime ts = event.timestamp();
+
+        BatteryInfoDTO bi = batch.getBatteryInfo();
+        CpuUsageDTO cu = batch.getCpuUsage();
+        RamUsageDTO ru = batch.getRamUsage();
+        DiskIODTO dio = batch.getDiskIO();
+        return new DeviceSnapshotDTO(
+                userId,
+                deviceId,
+                bi == null ? null : new BatteryInfoDTO(bi.getId(), bi.isHasBattery(), bi.getBatteryPercentage(),
+                        bi.isCharging(), bi.getPowerConsumption(), userId, deviceId, ts),
+                cu == null ? null : new CpuUsageDTO(cu.getId(), cu.getTotalCpuLoad(), cu.getPerCoreUsage(),
+                        userId, deviceId, ts),
+                ru == null ? null : new RamUsageDTO(ru.getId(), ru.getTotalMemory(), ru.getUsedMemory(),
+                        ru.getAvailableMemory(), userId, deviceId, ts),
+                dio == null ? null : new DiskIODTO(dio.getId(), dio.getReadSpeedMBps(), dio.getWriteSpeedMBps(),
+                        userId, deviceId, ts),
+                batch.getDiskUsage() == null ? null : batch.getDiskUsage().stream()
+                        .map(du -> new DiskUsageDTO(du.getId(), du.getFilesystem(), du.getSizeGB(),
+                                du.getUsedGB(), du.getAvailableGB(), userId, deviceId, ts))
+                        .toList(),
+                batch.getProcessStatuses() == null ? null : batch.getProcessStatuses().stream()
+                        .limit(AppConstants.MAX_PROCESSES)
+                        .map(ps -> new ProcessStatusDTO(ps.getId(), ps.getPid(), ps.getName(),
+                                ps.getCpuUsage(), ps.getMemoryMB(), userId, deviceId, ts))
+                        .toList()
+        );
+    }
+}
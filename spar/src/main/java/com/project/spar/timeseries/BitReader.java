@@ -0,0 +1,40 @@
+package com.project.spar.timeseries;
+
+/** Sequential reader over a stream produced by {@link BitWriter}. */
+final class BitReader {
+
+    private final long[] words;
+    private int pos;
+
+    BitReader(long[] words) {
+        this.words = words;
+    }
+
+    /** Reads the next {@code n} bits as an unsigned value, 0 &lt;= n &lt;= 64. */
+    long read(int n) {
+        if (n == 0) {
+            return 0;
+        }
+        int idx = pos >>> 6;
+        int free = 64 - (pos & 63);
+        long result;
+        if (n <= free) {
+            result = (words[idx] >>> (free - n)) & BitWriter.mask(n);
+        } else {
+            int spill = n - free;
+            result = ((words[idx] & BitWriter.mask(free)) << spill) | (words[idx + 1] >>> (64 - spill));
+        }
+        pos += n;
+        return result;
+    }
+
+    boolean readBit() {
+        return read(1) == 1;
+    }
+
+    /** Reads {@code n} bits as a two's complement signed value. */
+    long readSigned(int n) {
+        long v = read(n);
+        return (v << (64 - n)) >> (64 - n);
+    }
+}
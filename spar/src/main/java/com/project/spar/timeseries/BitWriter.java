@@ -0,0 +1,68 @@
+package com.project.spar.timeseries;
+
+import java.util.Arrays;
+
+/**
+ * Append-only bit stream packed most significant bit first into longs.
+ * Not thread-safe; callers guard it with the owning series' lock.
+ */
+final class BitWriter {
+
+    private long[] words;
+    private int bits;
+
+    BitWriter(int initialWords) {
+        words = new long[Math.max(1, initialWords)];
+    }
+
+    /** Writes the low {@code n} bits of {@code value}, 0 &lt;= n &lt;= 64. */
+    void write(long value, int n) {
+        if (n == 0) {
+            return;
+        }
+        ensureCapacity(bits + n);
+        long masked = value & mask(n);
+        int idx = bits >>> 6;
+        int free = 64 - (bits & 63);
+        if (n <= free) {
+            words[idx] |= masked << (free - n);
+        } else {
+            int spill = n - free;
+            words[idx] |= masked >>> spill;
+            words[idx + 1] |= masked << (64 - spill);
+        }
+        bits += n;
+    }
+
+    void writeBit(boolean bit) {
+        write(bit ? 1 : 0, 1);
+    }
+
+    int bitLength() {
+        return bits;
+    }
+
+    /** The backing words; only the first {@link #bitLength()} bits are meaningful. */
+    long[] words() {
+        return words;
+    }
+
+    /** Shrinks the buffer to the written length, used when a chunk is sealed. */
+    void trim() {
+        int used = (bits + 63) >>> 6;
+        if (used < words.length) {
+            words = Arrays.copyOf(words, Math.max(1, used));
+        }
+    }
+
+    private void ensureCapacity(int totalBits) {
+        int needed = (totalBits + 63) >>> 6;
+        if (needed > words.length) {
+            words = Arrays.copyOf(words, Math.max(needed, words.length * 2));
+        }
+    }
+
+    static long mask(int n) {
+        return n == 64 ? -1L : (1L << n) - 1;
+    }
+}
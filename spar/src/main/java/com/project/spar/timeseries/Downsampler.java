@@ -0,0 +1,67 @@
+package com.project.spar.timeseries;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Largest-Triangle-Three-Buckets downsampling (Steinarsson, 2013). Keeps the
+ * first and last point and, per bucket, the point forming the largest triangle
+ * with the previously kept point and the next bucket's average, which
+ * preserves the visual shape of a line chart far better than averaging.
+ */
+public final class Downsampler {
+
+    private Downsampler() {}
+
+    /**
+     * Reduces {@code points} (time ordered) to {@code threshold} points; the
+     * input is returned as is if it is already small enough or the threshold
+     * is below three.
+     */
+    public static List<SeriesPoint> lttb(List<SeriesPoint> points, int threshold) {
+        int n = points.size();
+        if (threshold >= n || threshold < 3) {
+            return points;
+        }
+
+        List<SeriesPoint> sampled = new ArrayList<>(threshold);
+        double bucketSize = (double) (n - 2) / (threshold - 2);
+        int a = 0;
+        sampled.add(points.get(0));
+
+        for (int i = 0; i < threshold - 2; i++) {
+            // average of the next bucket is the third triangle vertex
+            int nextStart = (int) Math.floor((i + 1) * bucketSize) + 1;
+            int nextEnd = Math.min((int) Math.floor((i + 2) * bucketSize) + 1, n);
+            double avgX = 0;
+            double avgY = 0;
+            for (int j = nextStart; j < nextEnd; j++) {
+                avgX += points.get(j).timestamp();
+                avgY += points.get(j).value();
+            }
+            int nextCount = nextEnd - nextStart;
+            avgX /= nextCount;
+            avgY /= nextCount;
+
+            int start = (int) Math.floor(i * bucketSize) + 1;
+            int end = (int) Math.floor((i + 1) * bucketSize) + 1;
+            SeriesPoint pa = points.get(a);
+            double maxArea = -1;
+            int chosen = start;
+            for (int j = start; j < end; j++) {
+                SeriesPoint p = points.get(j);
+                double area = Math.abs((pa.timestamp() - avgX) * (p.value() - pa.value())
+                        - (pa.timestamp() - p.timestamp()) * (avgY - pa.value()));
+                if (area > maxArea) {
+                    maxArea = area;
+                    chosen = j;
+                }
+            }
+            sampled.add(points.get(chosen));
+            a = chosen;
+        }
+
+        sampled.add(points.get(n - 1));
+        return sampled;
+    }
+}
@@ -0,0 +1,174 @@
+package com.project.spar.timeseries;
+
+import java.util.function.BiConsumer;
+
+/**
+ * A run of up to a fixed number of samples compressed as in Facebook's
+ * Gorilla: timestamps as delta-of-delta with variable-width buckets and values
+ * XOR-ed against their predecessor, storing only the meaningful bits. Regular
+ * second-level samples of a slowly moving metric take one to two bytes each.
+ * <p>
+ * Not thread-safe; access is serialized by the owning series.
+ */
+final class GorillaChunk {
+
+    private final int capacity;
+    private final BitWriter out;
+
+    private int count;
+    private long firstTs;
+    private long lastTs;
+    private long lastDelta;
+    private long lastValueBits;
+    private int lastLeading = -1;
+    private int lastTrailing;
+
+    GorillaChunk(int capacity) {
+        this.capacity = capacity;
+        // ~1.5 bytes per sample is typical, grown on demand
+        this.out = new BitWriter(Math.max(2, capacity * 12 / 64));
+    }
+
+    boolean isFull() {
+        return count >= capacity;
+    }
+
+    int count() {
+        return count;
+    }
+
+    long firstTimestamp() {
+        return firstTs;
+    }
+
+    long lastTimestamp() {
+        return lastTs;
+    }
+
+    /**
+     * Appends a sample; timestamps must be strictly increasing.
+     *
+     * @return false if the sample is older than the last one and was dropped
+     */
+    boolean append(long ts, double value) {
+        long valueBits = Double.doubleToRawLongBits(value);
+        if (count == 0) {
+            firstTs = ts;
+            out.write(valueBits, 64);
+        } else {
+            if (ts <= lastTs) {
+                return false;
+            }
+            long delta = ts - lastTs;
+            writeDeltaOfDelta(delta - lastDelta);
+            writeValue(valueBits);
+            lastDelta = delta;
+        }
+        lastTs = ts;
+        lastValueBits = valueBits;
+        count++;
+        return true;
+    }
+
+    /** Releases the unused tail of the buffer once no more samples will be added. */
+    void seal() {
+        out.trim();
+    }
+
+    long estimatedBytes() {
+        return 64 + 8L * out.words().length;
+    }
+
+    /** Decodes every sample with {@code from <= ts <= to}, in time order. */
+    void forEach(long from, long to, BiConsumer<Long, Double> sink) {
+        if (count == 0 || lastTs < from || firstTs > to) {
+            return;
+        }
+        BitReader in = new BitReader(out.words());
+        long ts = firstTs;
+        long delta = 0;
+        long valueBits = in.read(64);
+        int leading = -1;
+        int trailing = 0;
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                delta += readDeltaOfDelta(in);
+                ts += delta;
+                if (in.readBit()) {
+                    if (in.readBit()) {
+                        leading = (int) in.read(5);
+                        int length = (int) in.read(6) + 1;
+                        trailing = 64 - leading - length;
+                    }
+                    int length = 64 - leading - trailing;
+                    valueBits ^= in.read(length) << trailing;
+                }
+            }
+            if (ts > to) {
+                return;
+            }
+            if (ts >= from) {
+                sink.accept(ts, Double.longBitsToDouble(valueBits));
+            }
+        }
+    }
+
+    // '0' | '10'+7 | '110'+9 | '1110'+12 | '1111'+64 bits
+    private void writeDeltaOfDelta(long dod) {
+        if (dod == 0) {
+            out.writeBit(false);
+        } else if (dod >= -64 && dod <= 63) {
+            out.write(0b10, 2);
+            out.write(dod, 7);
+        } else if (dod >= -256 && dod <= 255) {
+            out.write(0b110, 3);
+            out.write(dod, 9);
+        } else if (dod >= -2048 && dod <= 2047) {
+            out.write(0b1110, 4);
+            out.write(dod, 12);
+        } else {
+            out.write(0b1111, 4);
+            out.write(dod, 64);
+        }
+    }
+
+    private static long readDeltaOfDelta(BitReader in) {
+        if (!in.readBit()) {
+            return 0;
+        }
+        if (!in.readBit()) {
+            return in.readSigned(7);
+        }
+        if (!in.readBit()) {
+            return in.readSigned(9);
+        }
+        if (!in.readBit()) {
+            return in.readSigned(12);
+        }
+        return in.read(64);
+    }
+
+    // '0' same value | '10' + bits inside the previous window | '11' + 5 leading + 6 length + bits
+    private void writeValue(long valueBits) {
+        long xor = valueBits ^ lastValueBits;
+        if (xor == 0) {
+            out.writeBit(false);
+            return;
+        }
+        out.writeBit(true);
+        int leading = Math.min(Long.numberOfLeadingZeros(xor), 31);
+        int trailing = Long.numberOfTrailingZeros(xor);
+        if (lastLeading >= 0 && leading >= lastLeading && trailing >= lastTrailing) {
+            out.writeBit(false);
+            out.write(xor >>> lastTrailing, 64 - lastLeading - lastTrailing);
+        } else {
+            int length = 64 - leading - trailing;
+            out.writeBit(true);
+            out.write(leading, 5);
+            out.write(length - 1, 6);
+            out.write(xor >>> trailing, length);
+            lastLeading = leading;
+            lastTrailing = trailing;
+        }
+    }
+}
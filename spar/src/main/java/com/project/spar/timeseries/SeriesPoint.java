@@ -0,0 +1,4 @@
+package com.project.spar.timeseries;
+
+/** One decoded sample: epoch milliseconds and value. */
+public record SeriesPoint(long timestamp, double value) {}
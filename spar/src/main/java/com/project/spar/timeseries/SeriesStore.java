@@ -0,0 +1,142 @@
+package com.project.spar.timeseries;
+
+import com.project.spar.model.SeriesMetric;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Embedded store of recent samples per (device, metric), compressed into
+ * fixed-size {@link GorillaChunk}s. Holds roughly the last
+ * {@code series.retentionMinutes} of data so short-range charts never touch
+ * the database; older chunks are dropped whole as new samples arrive.
+ */
+@Component
+public class SeriesStore {
+
+    @Value("${series.enabled:true}") private boolean enabled;
+    @Value("${series.chunkSamples:256}") private int chunkSamples;
+    @Value("${series.retentionMinutes:360}") private long retentionMinutes;
+
+    private record SeriesKey(Long deviceSpecId, SeriesMetric metric) {}
+
+    private final ConcurrentHashMap<SeriesKey, Series> series = new ConcurrentHashMap<>();
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Appends a sample to its series. Samples not newer than the last one in
+     * the series are dropped.
+     */
+    public boolean append(Long deviceSpecId, SeriesMetric metric, long timestamp, double value) {
+        if (!enabled) {
+            return false;
+        }
+        Series s = series.computeIfAbsent(new SeriesKey(deviceSpecId, metric), k -> new Series());
+        return s.append(timestamp, value, timestamp - retentionMinutes * 60_000);
+    }
+
+    /** All retained samples with {@code from <= timestamp <= to}, oldest first. */
+    public List<SeriesPoint> query(Long deviceSpecId, SeriesMetric metric, long from, long to) {
+        Series s = series.get(new SeriesKey(deviceSpecId, metric));
+        return s == null ? List.of() : s.query(from, to);
+    }
+
+    /** Timestamp of the oldest retained sample, if the series exists. */
+    public OptionalLong earliest(Long deviceSpecId, SeriesMetric metric) {
+        Series s = series.get(new SeriesKey(deviceSpecId, metric));
+        return s == null ? OptionalLong.empty() : s.earliest();
+    }
+
+    public void evictDevice(Long deviceSpecId) {
+        series.keySet().removeIf(k -> k.deviceSpecId().equals(deviceSpecId));
+    }
+
+    public int seriesCount() {
+        return series.size();
+    }
+
+    public long estimatedBytes() {
+        long bytes = 0;
+        for (Series s : series.values()) {
+            bytes += s.estimatedBytes();
+        }
+        return bytes;
+    }
+
+    private final class Series {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final ArrayDeque<GorillaChunk> chunks = new ArrayDeque<>();
+
+        boolean append(long timestamp, double value, long cutoff) {
+            lock.lock();
+            try {
+                GorillaChunk active = chunks.peekLast();
+                if (active == null || active.isFull()) {
+                    if (active != null) {
+                        if (timestamp <= active.lastTimestamp()) {
+                            return false;
+                        }
+                        active.seal();
+                    }
+                    active = new GorillaChunk(chunkSamples);
+                    chunks.addLast(active);
+                }
+                boolean added = active.append(timestamp, value);
+                // drop whole chunks once their newest sample is out of the window
+                while (chunks.size() > 1 && chunks.peekFirst().lastTimestamp() < cutoff) {
+                    chunks.removeFirst();
+                }
+                return added;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        List<SeriesPoint> query(long from, long to) {
+            List<SeriesPoint> points = new ArrayList<>();
+            lock.lock();
+            try {
+                for (GorillaChunk chunk : chunks) {
+                    chunk.forEach(from, to, (ts, v) -> points.add(new SeriesPoint(ts, v)));
+                }
+            } finally {
+                lock.unlock();
+            }
+            return points;
+        }
+
+        OptionalLong earliest() {
+            lock.lock();
+            try {
+                GorillaChunk first = chunks.peekFirst();
+                return first == null || first.count() == 0
+                        ? OptionalLong.empty()
+                        : OptionalLong.of(first.firstTimestamp());
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        long estimatedBytes() {
+            lock.lock();
+            try {
+                long bytes = 96;
+                for (GorillaChunk chunk : chunks) {
+                    bytes += chunk.estimatedBytes();
+                }
+                return bytes;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
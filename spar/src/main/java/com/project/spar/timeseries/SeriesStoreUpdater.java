@@ -0,0 +1,28 @@
+package com.project.spar.timeseries;
+
+import com.project.spar.event.MetricsIngestedEvent;
+import com.project.spar.service.MetricHistoryService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.ZoneId;
+
+/** Appends every committed batch to the {@link SeriesStore}. */
+@Component
+public class SeriesStoreUpdater {
+
+    @Autowired
+    private SeriesStore seriesStore;
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onMetricsIngested(MetricsIngestedEvent event) {
+        if (!seriesStore.isEnabled()) {
+            return;
+        }
+        long ts = event.timestamp().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        MetricHistoryService.valuesOf(event.batch()).forEach((metric, value) ->
+                seriesStore.append(event.deviceSpecId(), metric, ts, value));
+    }
+}
@@ -0,0 +1,177 @@
+-- Baseline schema, equal to what the JPA mappings describe.
+-- Tables use IF NOT EXISTS so databases that Hibernate's ddl-auto=update
+-- created can take this baseline as-is. V2 then brings their indexes and
+-- columns up to date.
+-- Column names are the Java field names (PhysicalNamingStrategyStandardImpl).
+
+CREATE TABLE IF NOT EXISTS users (
+    id       BIGINT       NOT NULL AUTO_INCREMENT,
+    username VARCHAR(255) NOT NULL,
+    password VARCHAR(255) NOT NULL,
+    email    VARCHAR(255) NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT uk_users_username UNIQUE (username),
+    CONSTRAINT uk_users_email UNIQUE (email)
+) ENGINE=InnoDB;
+
+CREATE TABLE IF NOT EXISTS tokens (
+    id        BIGINT       NOT NULL AUTO_INCREMENT,
+    jti       VARCHAR(255) NOT NULL,
+    username  VARCHAR(255) NOT NULL,
+    issuedAt  DATETIME(6)  NOT NULL,
+    expiresAt DATETIME(6)  NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT uk_tokens_jti UNIQUE (jti),
+    INDEX idx_tokens_username (username),
+    INDEX idx_tokens_expires_at (expiresAt)
+) ENGINE=InnoDB;
+
+CREATE TABLE IF NOT EXISTS device_specifications (
+    id               BIGINT       NOT NULL AUTO_INCREMENT,
+    deviceId         VARCHAR(255) NOT NULL,
+    deviceName       VARCHAR(255),
+    manufacturer     VARCHAR(255),
+    model            VARCHAR(255),
+    processor        VARCHAR(255),
+    cpuPhysicalCores INT          NOT NULL,
+    cpuLogicalCores  INT          NOT NULL,
+    installedRam     DOUBLE       NOT NULL,
+    graphics         VARCHAR(255),
+    operatingSystem  VARCHAR(255),
+    systemType       VARCHAR(255),
+    registeredAt     DATETIME(6),
+    user_id          BIGINT       NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT uk_device_specifications_device_id UNIQUE (deviceId),
+    CONSTRAINT fk_device_specifications_user FOREIGN KEY (user_id) REFERENCES users (id)
+) ENGINE=InnoDB;
+
+-- ---------------------------------------------------------------------------
+-- Latest-value tables: one row per device (unique device_spec_id), so the
+-- latest lookup is a single unique-key read.
+-- ---------------------------------------------------------------------------
+
+CREATE TABLE IF NOT EXISTS battery_info (
+    id                BIGINT      NOT NULL AUTO_INCREMENT,
+    hasBattery        BIT         NOT NULL,
+    batteryPercentage INT         NOT NULL,
+    isCharging        BIT         NOT NULL,
+    powerConsumption  DOUBLE,
+    timestamp         DATETIME(6),
+    device_spec_id    BIGINT      NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT uk_battery_info_device UNIQUE (device_spec_id),
+    CONSTRAINT fk_battery_info_device FOREIGN KEY (device_spec_id) REFERENCES device_specifications (id)
+) ENGINE=InnoDB;
+
+CREATE TABLE IF NOT EXISTS cpu_usage (
+    id                 BIGINT      NOT NULL AUTO_INCREMENT,
+    totalCpuLoad       DOUBLE      NOT NULL,
+    perCoreUsagePacked VARBINARY(2048),
+    timestamp          DATETIME(6),
+    device_spec_id     BIGINT      NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT uk_cpu_usage_device UNIQUE (device_spec_id),
+    CONSTRAINT fk_cpu_usage_device FOREIGN KEY (device_spec_id) REFERENCES device_specifications (id)
+) ENGINE=InnoDB;
+
+CREATE TABLE IF NOT EXISTS ram_usage (
+    id              BIGINT      NOT NULL AUTO_INCREMENT,
+    totalMemory     DOUBLE      NOT NULL,
+    usedMemory      DOUBLE      NOT NULL,
+    availableMemory DOUBLE      NOT NULL,
+    timestamp       DATETIME(6),
+    device_spec_id  BIGINT      NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT uk_ram_usage_device UNIQUE (device_spec_id),
+    CONSTRAINT fk_ram_usage_device FOREIGN KEY (device_spec_id) REFERENCES device_specifications (id)
+) ENGINE=InnoDB;
+
+CREATE TABLE IF NOT EXISTS disk_io (
+    id             BIGINT      NOT NULL AUTO_INCREMENT,
+    readSpeedMBps  DOUBLE      NOT NULL,
+    writeSpeedMBps DOUBLE      NOT NULL,
+    timestamp      DATETIME(6),
+    device_spec_id BIGINT      NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT uk_disk_io_device UNIQUE (device_spec_id),
+    CONSTRAINT fk_disk_io_device FOREIGN KEY (device_spec_id) REFERENCES device_specifications (id)
+) ENGINE=InnoDB;
+
+-- ---------------------------------------------------------------------------
+-- Snapshot tables: many rows per device, read newest first
+-- ---------------------------------------------------------------------------
+
+CREATE TABLE IF NOT EXISTS disk_usage (
+    id             BIGINT       NOT NULL AUTO_INCREMENT,
+    filesystem     VARCHAR(255),
+    sizeGB         DOUBLE       NOT NULL,
+    usedGB         DOUBLE       NOT NULL,
+    availableGB    DOUBLE       NOT NULL,
+    timestamp      DATETIME(6),
+    device_spec_id BIGINT       NOT NULL,
+    PRIMARY KEY (id),
+    INDEX idx_disk_usage_device_ts (device_spec_id, timestamp DESC),
+    CONSTRAINT fk_disk_usage_device FOREIGN KEY (device_spec_id) REFERENCES device_specifications (id)
+) ENGINE=InnoDB;
+
+CREATE TABLE IF NOT EXISTS process_status (
+    id             BIGINT       NOT NULL AUTO_INCREMENT,
+    pid            BIGINT       NOT NULL,
+    name           VARCHAR(255),
+    cpuUsage       DOUBLE       NOT NULL,
+    memoryMB       DOUBLE       NOT NULL,
+    timestamp      DATETIME(6),
+    device_spec_id BIGINT       NOT NULL,
+    PRIMARY KEY (id),
+    INDEX idx_process_status_device_ts (device_spec_id, timestamp DESC),
+    CONSTRAINT fk_process_status_device FOREIGN KEY (device_spec_id) REFERENCES device_specifications (id)
+) ENGINE=InnoDB;
+
+-- ---------------------------------------------------------------------------
+-- Wide per-tick samples (storage.layout=wide)
+-- ---------------------------------------------------------------------------
+
+CREATE TABLE IF NOT EXISTS device_samples (
+    device_spec_id     BIGINT      NOT NULL,
+    ts                 DATETIME(6) NOT NULL,
+    hasBattery         BIT,
+    batteryPercentage  INT,
+    isCharging         BIT,
+    powerConsumption   DOUBLE,
+    totalCpuLoad       DOUBLE,
+    perCoreUsagePacked VARBINARY(2048),
+    totalMemory        DOUBLE,
+    usedMemory         DOUBLE,
+    availableMemory    DOUBLE,
+    readSpeedMBps      DOUBLE,
+    writeSpeedMBps     DOUBLE,
+    PRIMARY KEY (device_spec_id, ts),
+    INDEX idx_device_samples_ts (ts)
+) ENGINE=InnoDB;
+
+-- ---------------------------------------------------------------------------
+-- Metric history; no foreign keys so metric_samples can be partitioned (V3)
+-- ---------------------------------------------------------------------------
+
+CREATE TABLE IF NOT EXISTS metric_samples (
+    device_spec_id BIGINT      NOT NULL,
+    metric         TINYINT     NOT NULL,
+    ts             DATETIME(6) NOT NULL,
+    sampleValue    DOUBLE      NOT NULL,
+    PRIMARY KEY (device_spec_id, metric, ts),
+    INDEX idx_metric_samples_ts (ts)
+) ENGINE=InnoDB;
+
+CREATE TABLE IF NOT EXISTS metric_rollups (
+    device_spec_id BIGINT      NOT NULL,
+    metric         TINYINT     NOT NULL,
+    resolution     TINYINT     NOT NULL,
+    bucketStart    DATETIME(6) NOT NULL,
+    minVal         DOUBLE      NOT NULL,
+    maxVal         DOUBLE      NOT NULL,
+    sumVal         DOUBLE      NOT NULL,
+    sampleCount    BIGINT      NOT NULL,
+    PRIMARY KEY (device_spec_id, metric, resolution, bucketStart),
+    INDEX idx_metric_rollups_bucket (resolution, bucketStart)
+) ENGINE=InnoDB;
@@ -0,0 +1,168 @@
+-- Brings databases that were created by Hibernate's ddl-auto=update in line
+-- with V1. On a fresh V1 schema every statement below is a no-op.
+--
+-- MySQL has no IF [NOT] EXISTS for columns, indexes or foreign keys, so each
+-- change is built as a string from information_schema and run as a
+-- prepared statement; 'DO 0' stands in when there is nothing to do.
+
+-- ---------------------------------------------------------------------------
+-- Metric rows are keyed by device only: drop the legacy user_id foreign keys
+-- and columns
+-- ---------------------------------------------------------------------------
+
+SET @fk = (SELECT constraint_name FROM information_schema.key_column_usage
+           WHERE table_schema = DATABASE() AND table_name = 'battery_info'
+             AND column_name = 'user_id' AND referenced_table_name IS NOT NULL LIMIT 1);
+SET @ddl = IF(@fk IS NULL, 'DO 0', CONCAT('ALTER TABLE battery_info DROP FOREIGN KEY ', @fk));
+PREPARE stmt FROM @ddl; EXECUTE stmt; DEALLOCATE PREPARE stmt;
+SET @ddl = IF((SELECT COUNT(*) FROM information_schema.columns
+               WHERE table_schema = DATABASE() AND table_name = 'battery_info' AND column_name = 'user_id') = 0,
+              'DO 0', 'ALTER TABLE battery_info DROP COLUMN user_id');
+PREPARE stmt FROM @ddl; EXECUTE stmt; DEALLOCATE PREPARE stmt;
+
+SET @fk = (SELECT constraint_name FROM information_schema.key_column_usage
+           WHERE table_schema = DATABASE() AND table_name = 'cpu_usage'
+             AND column_name = 'user_id' AND referenced_table_name IS NOT NULL LIMIT 1);
+SET @ddl = IF(@fk IS NULL, 'DO 0', CONCAT('ALTER TABLE cpu_usage DROP FOREIGN KEY ', @fk));
+PREPARE stmt FROM @ddl; EXECUTE stmt; DEALLOCATE PREPARE stmt;
+SET @ddl = IF((SELECT COUNT(*) FROM information_schema.columns
+               WHERE table_schema = DATABASE() AND table_name = 'cpu_usage' AND column_name = 'user_id') = 0,
+              'DO 0', 'ALTER TABLE cpu_usage DROP COLUMN user_id');
+PREPARE stmt FROM @ddl; EXECUTE stmt; DEALLOCATE PREPARE stmt;
+
+SET @fk = (SELECT constraint_name FROM information_schema.key_column_usage
+           WHERE table_schema = DATABASE() AND table_name = 'ram_usage'
+             AND column_name = 'user_id' AND referenced_table_name IS NOT NULL LIMIT 1);
+SET @ddl = IF(@fk IS NULL, 'DO 0', CONCAT('ALTER TABLE ram_usage DROP FOREIGN KEY ', @fk));
+PREPARE stmt FROM @ddl; EXECUTE stmt; DEALLOCATE PREPARE stmt;
+SET @ddl = IF((SELECT COUNT(*) FROM information_schema.columns
+               WHERE table_schema = DATABASE() AND table_name = 'ram_usage' AND column_name = 'user_id') = 0,
+              'DO 0', 'ALTER TABLE ram_usage DROP COLUMN user_id');
+PREPARE stmt FROM @ddl; EXECUTE stmt; DEALLOCATE PREPARE stmt;
+
+SET @fk = (SELECT constraint_name FROM information_schema.key_column_usage
+           WHERE table_schema = DATABASE() AND table_name = 'disk_io'
+             AND column_name = 'user_id' AND referenced_table_name IS NOT NULL LIMIT 1);
+SET @ddl = IF(@fk IS NULL, 'DO 0', CONCAT('ALTER TABLE disk_io DROP FOREIGN KEY ', @fk));
+PREPARE stmt FROM @ddl; EXECUTE stmt; DEALLOCATE PREPARE stmt;
+SET @ddl = IF((SELECT COUNT(*) FROM information_schema.columns
+               WHERE table_schema = DATABASE() AND table_name = 'disk_io' AND column_name = 'user_id') = 0,
+              'DO 0', 'ALTER TABLE disk_io DROP COLUMN user_id');
+PREPARE stmt FROM @ddl; EXECUTE stmt; DEALLOCATE PREPARE stmt;
+
+SET @fk = (SELECT constraint_name FROM information_schema.key_column_usage
+           WHERE table_schema = DATABASE() AND table_name = 'disk_usage'
+             AND column_name = 'user_id' AND referenced_table_name IS NOT NULL LIMIT 1);
+SET @ddl = IF(@fk IS NULL, 'DO 0', CONCAT('ALTER TABLE disk_usage DROP FOREIGN KEY ', @fk));
+PREPARE stmt FROM @ddl; EXECUTE stmt; DEALLOCATE PREPARE stmt;
+SET @ddl = IF((SELECT COUNT(*) FROM information_schema.columns
+               WHERE table_schema = DATABASE() AND table_name = 'disk_usage' AND column_name = 'user_id') = 0,
+              'DO 0', 'ALTER TABLE disk_usage DROP COLUMN user_id');
+PREPARE stmt FROM @ddl; EXECUTE stmt; DEALLOCATE PREPARE stmt;
+
+SET @fk = (SELECT constraint_name FROM information_schema.key_column_usage
+           WHERE table_schema = DATABASE() AND table_name = 'process_status'
+             AND column_name = 'user_id' AND referenced_table_name IS NOT NULL LIMIT 1);
+SET @ddl = IF(@fk IS NULL, 'DO 0', CONCAT('ALTER TABLE process_status DROP FOREIGN KEY ', @fk));
+PREPARE stmt FROM @ddl; EXECUTE stmt; DEALLOCATE PREPARE stmt;
+SET @ddl = IF((SELECT COUNT(*) FROM information_schema.columns
+               WHERE table_schema = DATABASE() AND table_name = 'process_status' AND column_name = 'user_id') = 0,
+              'DO 0', 'ALTER TABLE process_status DROP COLUMN user_id');
+PREPARE stmt FROM @ddl; EXECUTE stmt; DEALLOCATE PREPARE stmt;
+
+-- per-core loads moved to cpu_usage.perCoreUsagePacked
+
+SET @ddl = IF((SELECT COUNT(*) FROM information_schema.columns
+               WHERE table_schema = DATABASE() AND table_name = 'cpu_usage' AND column_name = 'perCoreUsageJson') = 0,
+              'DO 0', 'ALTER TABLE cpu_usage DROP COLUMN perCoreUsageJson');
+PREPARE stmt FROM @ddl; EXECUTE stmt; DEALLOCATE PREPARE stmt;
+
+-- ---------------------------------------------------------------------------
+-- Latest-value tables hold one row per device. Hibernate inserted a row per
+-- tick, so keep only the newest (highest id) per device, then add the unique
+-- key the upserts rely on. Skipped where a unique key on device_spec_id exists.
+-- ---------------------------------------------------------------------------
+
+SET @has_uk = (SELECT COUNT(*) FROM information_schema.statistics s
+               WHERE s.table_schema = DATABASE() AND s.table_name = 'battery_info' AND s.non_unique = 0
+                 AND s.column_name = 'device_spec_id'
+                 AND NOT EXISTS (SELECT 1 FROM information_schema.statistics o
+                                 WHERE o.table_schema = s.table_schema AND o.table_name = s.table_name
+                                   AND o.index_name = s.index_name AND o.column_name <> 'device_spec_id'));
+SET @ddl = IF(@has_uk > 0, 'DO 0',
+              'DELETE t FROM battery_info t
+               JOIN (SELECT device_spec_id, MAX(id) AS keep_id FROM battery_info GROUP BY device_spec_id) k
+                 ON k.device_spec_id = t.device_spec_id AND t.id < k.keep_id');
+PREPARE stmt FROM @ddl; EXECUTE stmt; DEALLOCATE PREPARE stmt;
+SET @ddl = IF(@has_uk > 0, 'DO 0',
+              'ALTER TABLE battery_info ADD CONSTRAINT uk_battery_info_device UNIQUE (device_spec_id)');
+PREPARE stmt FROM @ddl; EXECUTE stmt; DEALLOCATE PREPARE stmt;
+
+SET @has_uk = (SELECT COUNT(*) FROM information_schema.statistics s
+               WHERE s.table_schema = DATABASE() AND s.table_name = 'cpu_usage' AND s.non_unique = 0
+                 AND s.column_name = 'device_spec_id'
+                 AND NOT EXISTS (SELECT 1 FROM information_schema.statistics o
+                                 WHERE o.table_schema = s.table_schema AND o.table_name = s.table_name
+                                   AND o.index_name = s.index_name AND o.column_name <> 'device_spec_id'));
+SET @ddl = IF(@has_uk > 0, 'DO 0',
+              'DELETE t FROM cpu_usage t
+               JOIN (SELECT device_spec_id, MAX(id) AS keep_id FROM cpu_usage GROUP BY device_spec_id) k
+                 ON k.device_spec_id = t.device_spec_id AND t.id < k.keep_id');
+PREPARE stmt FROM @ddl; EXECUTE stmt; DEALLOCATE PREPARE stmt;
+SET @ddl = IF(@has_uk > 0, 'DO 0',
+              'ALTER TABLE cpu_usage ADD CONSTRAINT uk_cpu_usage_device UNIQUE (device_spec_id)');
+PREPARE stmt FROM @ddl; EXECUTE stmt; DEALLOCATE PREPARE stmt;
+
+SET @has_uk = (SELECT COUNT(*) FROM information_schema.statistics s
+               WHERE s.table_schema = DATABASE() AND s.table_name = 'ram_usage' AND s.non_unique = 0
+                 AND s.column_name = 'device_spec_id'
+                 AND NOT EXISTS (SELECT 1 FROM information_schema.statistics o
+                                 WHERE o.table_schema = s.table_schema AND o.table_name = s.table_name
+                                   AND o.index_name = s.index_name AND o.column_name <> 'device_spec_id'));
+SET @ddl = IF(@has_uk > 0, 'DO 0',
+              'DELETE t FROM ram_usage t
+               JOIN (SELECT device_spec_id, MAX(id) AS keep_id FROM ram_usage GROUP BY device_spec_id) k
+                 ON k.device_spec_id = t.device_spec_id AND t.id < k.keep_id');
+PREPARE stmt FROM @ddl; EXECUTE stmt; DEALLOCATE PREPARE stmt;
+SET @ddl = IF(@has_uk > 0, 'DO 0',
+              'ALTER TABLE ram_usage ADD CONSTRAINT uk_ram_usage_device UNIQUE (device_spec_id)');
+PREPARE stmt FROM @ddl; EXECUTE stmt; DEALLOCATE PREPARE stmt;
+
+SET @has_uk = (SELECT COUNT(*) FROM information_schema.statistics s
+               WHERE s.table_schema = DATABASE() AND s.table_name = 'disk_io' AND s.non_unique = 0
+                 AND s.column_name = 'device_spec_id'
+                 AND NOT EXISTS (SELECT 1 FROM information_schema.statistics o
+                                 WHERE o.table_schema = s.table_schema AND o.table_name = s.table_name
+                                   AND o.index_name = s.index_name AND o.column_name <> 'device_spec_id'));
+SET @ddl = IF(@has_uk > 0, 'DO 0',
+              'DELETE t FROM disk_io t
+               JOIN (SELECT device_spec_id, MAX(id) AS keep_id FROM disk_io GROUP BY device_spec_id) k
+                 ON k.device_spec_id = t.device_spec_id AND t.id < k.keep_id');
+PREPARE stmt FROM @ddl; EXECUTE stmt; DEALLOCATE PREPARE stmt;
+SET @ddl = IF(@has_uk > 0, 'DO 0',
+              'ALTER TABLE disk_io ADD CONSTRAINT uk_disk_io_device UNIQUE (device_spec_id)');
+PREPARE stmt FROM @ddl; EXECUTE stmt; DEALLOCATE PREPARE stmt;
+
+-- ---------------------------------------------------------------------------
+-- Indexes for the hot lookups
+-- ---------------------------------------------------------------------------
+
+SET @ddl = IF((SELECT COUNT(*) FROM information_schema.statistics
+               WHERE table_schema = DATABASE() AND table_name = 'disk_usage' AND index_name = 'idx_disk_usage_device_ts') > 0,
+              'DO 0', 'CREATE INDEX idx_disk_usage_device_ts ON disk_usage (device_spec_id, timestamp DESC)');
+PREPARE stmt FROM @ddl; EXECUTE stmt; DEALLOCATE PREPARE stmt;
+
+SET @ddl = IF((SELECT COUNT(*) FROM information_schema.statistics
+               WHERE table_schema = DATABASE() AND table_name = 'process_status' AND index_name = 'idx_process_status_device_ts') > 0,
+              'DO 0', 'CREATE INDEX idx_process_status_device_ts ON process_status (device_spec_id, timestamp DESC)');
+PREPARE stmt FROM @ddl; EXECUTE stmt; DEALLOCATE PREPARE stmt;
+
+SET @ddl = IF((SELECT COUNT(*) FROM information_schema.statistics
+               WHERE table_schema = DATABASE() AND table_name = 'tokens' AND index_name = 'idx_tokens_username') > 0,
+              'DO 0', 'CREATE INDEX idx_tokens_username ON tokens (username)');
+PREPARE stmt FROM @ddl; EXECUTE stmt; DEALLOCATE PREPARE stmt;
+
+SET @ddl = IF((SELECT COUNT(*) FROM information_schema.statistics
+               WHERE table_schema = DATABASE() AND table_name = 'tokens' AND index_name = 'idx_tokens_expires_at') > 0,
+              'DO 0', 'CREATE INDEX idx_tokens_expires_at ON tokens (expiresAt)');
+PREPARE stmt FROM @ddl; EXECUTE stmt; DEALLOCATE PREPARE stmt;
@@ -0,0 +1,11 @@
+-- Partition the raw metric history by day so that retention can drop whole
+-- partitions and range reads touch only the days they cover.
+-- It starts with one catch-all partition. MetricSamplePartitions then splits
+-- days off p_future ahead of time and drops the days past retention.
+-- MySQL requires every unique key to contain the partitioning column. The
+-- primary key (device_spec_id, metric, ts) does, and the table has no
+-- foreign keys, which partitioned tables cannot have.
+ALTER TABLE metric_samples
+    PARTITION BY RANGE (TO_DAYS(ts)) (
+        PARTITION p_future VALUES LESS THAN MAXVALUE
+    );
@@ -0,0 +1,134 @@
+-- Metric tables of one shard (shard.enabled). Same columns and keys as the
+-- primary schema (db/migration/mysql), minus what a shard cannot have:
+-- device_specifications lives on the primary, so there are no foreign keys,
+-- and metric_samples is not partitioned.
+-- Plain SQL that MySQL and H2 (MODE=MySQL) both accept, so tests can run
+-- shards as in-memory databases.
+
+-- ---------------------------------------------------------------------------
+-- Latest-value tables: one upserted row per device
+-- ---------------------------------------------------------------------------
+
+CREATE TABLE battery_info (
+    id                BIGINT      NOT NULL AUTO_INCREMENT,
+    hasBattery        BIT         NOT NULL,
+    batteryPercentage INT         NOT NULL,
+    isCharging        BIT         NOT NULL,
+    powerConsumption  DOUBLE,
+    timestamp         DATETIME(6),
+    device_spec_id    BIGINT      NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT uk_battery_info_device UNIQUE (device_spec_id)
+);
+
+CREATE TABLE cpu_usage (
+    id                 BIGINT      NOT NULL AUTO_INCREMENT,
+    totalCpuLoad       DOUBLE      NOT NULL,
+    perCoreUsagePacked VARBINARY(2048),
+    timestamp          DATETIME(6),
+    device_spec_id     BIGINT      NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT uk_cpu_usage_device UNIQUE (device_spec_id)
+);
+
+CREATE TABLE ram_usage (
+    id              BIGINT      NOT NULL AUTO_INCREMENT,
+    totalMemory     DOUBLE      NOT NULL,
+    usedMemory      DOUBLE      NOT NULL,
+    availableMemory DOUBLE      NOT NULL,
+    timestamp       DATETIME(6),
+    device_spec_id  BIGINT      NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT uk_ram_usage_device UNIQUE (device_spec_id)
+);
+
+CREATE TABLE disk_io (
+    id             BIGINT      NOT NULL AUTO_INCREMENT,
+    readSpeedMBps  DOUBLE      NOT NULL,
+    writeSpeedMBps DOUBLE      NOT NULL,
+    timestamp      DATETIME(6),
+    device_spec_id BIGINT      NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT uk_disk_io_device UNIQUE (device_spec_id)
+);
+
+-- ---------------------------------------------------------------------------
+-- Snapshot tables: many rows per device, read newest first
+-- ---------------------------------------------------------------------------
+
+CREATE TABLE disk_usage (
+    id             BIGINT       NOT NULL AUTO_INCREMENT,
+    filesystem     VARCHAR(255),
+    sizeGB         DOUBLE       NOT NULL,
+    usedGB         DOUBLE       NOT NULL,
+    availableGB    DOUBLE       NOT NULL,
+    timestamp      DATETIME(6),
+    device_spec_id BIGINT       NOT NULL,
+    PRIMARY KEY (id)
+);
+
+CREATE INDEX idx_disk_usage_device_ts ON disk_usage (device_spec_id, timestamp DESC);
+
+CREATE TABLE process_status (
+    id             BIGINT       NOT NULL AUTO_INCREMENT,
+    pid            BIGINT       NOT NULL,
+    name           VARCHAR(255),
+    cpuUsage       DOUBLE       NOT NULL,
+    memoryMB       DOUBLE       NOT NULL,
+    timestamp      DATETIME(6),
+    device_spec_id BIGINT       NOT NULL,
+    PRIMARY KEY (id)
+);
+
+CREATE INDEX idx_process_status_device_ts ON process_status (device_spec_id, timestamp DESC);
+
+-- ---------------------------------------------------------------------------
+-- Wide per-tick samples (storage.layout=wide)
+-- ---------------------------------------------------------------------------
+
+CREATE TABLE device_samples (
+    device_spec_id     BIGINT      NOT NULL,
+    ts                 DATETIME(6) NOT NULL,
+    hasBattery         BIT,
+    batteryPercentage  INT,
+    isCharging         BIT,
+    powerConsumption   DOUBLE,
+    totalCpuLoad       DOUBLE,
+    perCoreUsagePacked VARBINARY(2048),
+    totalMemory        DOUBLE,
+    usedMemory         DOUBLE,
+    availableMemory    DOUBLE,
+    readSpeedMBps      DOUBLE,
+    writeSpeedMBps     DOUBLE,
+    PRIMARY KEY (device_spec_id, ts)
+);
+
+CREATE INDEX idx_device_samples_ts ON device_samples (ts);
+
+-- ---------------------------------------------------------------------------
+-- Metric history
+-- ---------------------------------------------------------------------------
+
+CREATE TABLE metric_samples (
+    device_spec_id BIGINT      NOT NULL,
+    metric         TINYINT     NOT NULL,
+    ts             DATETIME(6) NOT NULL,
+    sampleValue    DOUBLE      NOT NULL,
+    PRIMARY KEY (device_spec_id, metric, ts)
+);
+
+CREATE INDEX idx_metric_samples_ts ON metric_samples (ts);
+
+CREATE TABLE metric_rollups (
+    device_spec_id BIGINT      NOT NULL,
+    metric         TINYINT     NOT NULL,
+    resolution     TINYINT     NOT NULL,
+    bucketStart    DATETIME(6) NOT NULL,
+    minVal         DOUBLE      NOT NULL,
+    maxVal         DOUBLE      NOT NULL,
+    sumVal         DOUBLE      NOT NULL,
+    sampleCount    BIGINT      NOT NULL,
+    PRIMARY KEY (device_spec_id, metric, resolution, bucketStart)
+);
+
+CREATE INDEX idx_metric_rollups_bucket ON metric_rollups (resolution, bucketStart);
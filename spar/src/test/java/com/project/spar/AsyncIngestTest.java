@@ -0,0 +1,241 @@
+package com.project.spar;
+
+import com.project.spar.model.User;
+import com.project.spar.repository.UserRepository;
+import com.project.spar.service.DeviceWriteLocks;
+import com.project.spar.service.MetricsIngestPipeline;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.Collection;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Batches accepted with 202 are persisted later by the pipeline's writer
+ * threads, so this test is not transactional: the user and device must be
+ * committed for the writers to see them, and everything is removed again
+ * afterwards.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(properties = "ingest.async=true")
+class AsyncIngestTest {
+
+    @Autowired MockMvc mockMvc;
+    @Autowired UserRepository userRepo;
+    @Autowired PasswordEncoder encoder;
+    @Autowired JdbcTemplate jdbc;
+    @Autowired MetricsIngestPipeline pipeline;
+    @Autowired DeviceWriteLocks deviceWriteLocks;
+
+    private Long userId;
+    private String jwt;
+    private String deviceId;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        User user = new User();
+        user.setUsername("frank");
+        user.setPassword(encoder.encode("password"));
+        user.setEmail("frank@example.com");
+        userRepo.save(user);
+        userId = user.getId();
+
+        var signIn = mockMvc.perform(post("/api/auth/signin")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                  {
+                    "username":"frank",
+                    "password":"password"
+                  }
+                  """))
+                .andExpect(status().isOk())
+                .andReturn();
+        jwt = com.fasterxml.jackson.databind.json.JsonMapper
+                .builder().build()
+                .readTree(signIn.getResponse().getContentAsString())
+                .get("token").asText();
+
+        deviceId = UUID.randomUUID().toString();
+        mockMvc.perform(post("/api/users/" + userId + "/devices")
+                        .header("Authorization","Bearer " + jwt)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                  {
+                    "deviceId":"%s",
+                    "deviceName":"Async Device",
+                    "manufacturer":"Acme",
+                    "model":"X1000",
+                    "processor":"Acme CPU",
+                    "cpuPhysicalCores":2,
+                    "cpuLogicalCores":4,
+                    "installedRam":8.0,
+                    "graphics":"Integrated",
+                    "operatingSystem":"TestOS 1.0",
+                    "systemType":"x64",
+                    "user":{"id":%d}
+                  }
+                  """.formatted(deviceId, userId)))
+                .andExpect(status().isOk());
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        awaitDrained();
+        for (String table : new String[]{"battery_info", "cpu_usage", "ram_usage", "disk_io", "disk_usage",
+                "process_status", "metric_samples", "metric_rollups", "device_specifications", "tokens"}) {
+            jdbc.update("DELETE FROM " + table);
+        }
+        userRepo.deleteAll();
+    }
+
+    @Test
+    void acceptedBatch_isPersistedByTheWriters() throws Exception {
+        assertTrue(pipeline.isAsync());
+        mockMvc.perform(post("/api/metrics/batch")
+                        .header("Authorization", "Bearer " + jwt)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                  {
+                    "userId": %d,
+                    "deviceId": "%s",
+                    "cpuUsage": {"totalCpuLoad": 42.0, "perCoreUsage": [40.0, 44.0]},
+                    "processStatuses": [{"pid": 1, "name": "init", "cpuUsage": 0.1, "memoryMB": 8.0}]
+                  }
+                  """.formatted(userId, deviceId)))
+                .andExpect(status().isAccepted());
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (count("cpu_usage") == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertEquals(42.0, jdbc.queryForObject("SELECT totalCpuLoad FROM cpu_usage", Double.class));
+        assertEquals(1, count("process_status"));
+    }
+
+    @Test
+    void batchTheWritersWouldFailOn_isRejectedBeforeItIsAccepted() throws Exception {
+        String cores = IntStream.range(0, 513).mapToObj(i -> "1.0").collect(Collectors.joining(","));
+        mockMvc.perform(post("/api/metrics/batch")
+                        .header("Authorization", "Bearer " + jwt)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                  {
+                    "userId": %d,
+                    "deviceId": "%s",
+                    "cpuUsage": {"totalCpuLoad": 42.0, "perCoreUsage": [%s]}
+                  }
+                  """.formatted(userId, deviceId, cores)))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().string("Too many CPU cores: 513"));
+
+        mockMvc.perform(post("/api/metrics/batch")
+                        .header("Authorization", "Bearer " + jwt)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                  {
+                    "userId": %d,
+                    "deviceId": "%s",
+                    "processStatuses": [{"pid": 1, "name": "%s", "cpuUsage": 0.1, "memoryMB": 8.0}]
+                  }
+                  """.formatted(userId, deviceId, "x".repeat(256))))
+                .andExpect(status().isBadRequest());
+
+        mockMvc.perform(post("/api/metrics/batch")
+                        .header("Authorization", "Bearer " + jwt)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"userId\": %d, \"deviceId\": \"unknown-device\"}".formatted(userId)))
+                .andExpect(status().isBadRequest());
+
+        assertEquals(0, pipeline.getQueueDepth());
+        assertEquals(0, count("cpu_usage"));
+        assertEquals(0, count("process_status"));
+    }
+
+    @Test
+    void writerSurvivesAGroupThatFailsBeforeItsTransaction() throws Exception {
+        AtomicBoolean failNext = new AtomicBoolean(true);
+        ReflectionTestUtils.setField(pipeline, "deviceWriteLocks", new DeviceWriteLocks() {
+            @Override
+            public int stripeOf(Long deviceSpecId) {
+                return deviceWriteLocks.stripeOf(deviceSpecId);
+            }
+
+            @Override
+            public <T> T withLocks(Collection<Long> deviceSpecIds, Supplier<T> work) {
+                if (failNext.getAndSet(false)) {
+                    throw new IllegalStateException("lock failure");
+                }
+                return deviceWriteLocks.withLocks(deviceSpecIds, work);
+            }
+        });
+        try {
+            postCpuLoad(10.0);
+            long deadline = System.currentTimeMillis() + 5000;
+            while (failNext.get() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+            assertEquals(0, count("cpu_usage"));
+
+            // the same writer picks up the next batch
+            postCpuLoad(20.0);
+            deadline = System.currentTimeMillis() + 5000;
+            while (count("cpu_usage") == 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+            assertEquals(20.0, jdbc.queryForObject("SELECT totalCpuLoad FROM cpu_usage", Double.class));
+        } finally {
+            ReflectionTestUtils.setField(pipeline, "deviceWriteLocks", deviceWriteLocks);
+        }
+    }
+
+    private void postCpuLoad(double load) throws Exception {
+        mockMvc.perform(post("/api/metrics/batch")
+                        .header("Authorization", "Bearer " + jwt)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                  {
+                    "userId": %d,
+                    "deviceId": "%s",
+                    "cpuUsage": {"totalCpuLoad": %s}
+                  }
+                  """.formatted(userId, deviceId, load)))
+                .andExpect(status().isAccepted());
+    }
+
+    private int count(String table) {
+        return jdbc.queryForObject("SELECT COUNT(*) FROM " + table, Integer.class);
+    }
+
+    // let the writers finish what they picked up before the rows are deleted
+    private void awaitDrained() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (pipeline.getQueueDepth() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        Thread.sleep(100);
+    }
+}
@@ -1,18 +1,33 @@
 package com.project.spar;
 
+import com.project.spar.model.Token;
 import com.project.spar.model.User;
+import com.project.spar.repository.TokenRepository;
 import com.project.spar.repository.UserRepository;
+import com.project.spar.security.JwtUtils;
+import com.project.spar.service.TokenService;
 import jakarta.transaction.Transactional;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
@@ -23,13 +38,16 @@ import org.springframework.test.context.ActiveProfiles;
 @SpringBootTest
 @AutoConfigureMockMvc
 @ActiveProfiles("test")
-@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.ANY)
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
 @Transactional
 class AuthControllerTest {
 
     @Autowired MockMvc mockMvc;
     @Autowired UserRepository userRepo;
     @Autowired PasswordEncoder encoder;
+    @Autowired TokenRepository tokenRepo;
+    @Autowired TokenService tokenService;
+    @Autowired JwtUtils jwtUtils;
 
     @BeforeEach
     void setUp() {
@@ -67,5 +85,107 @@ class AuthControllerTest {
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.token").isString());
     }
-}
 
+    @Test
+    void signoutRevokesToken() throws Exception {
+        User u = new User();
+        u.setUsername("bob");
+        u.setEmail("bob@example.com");
+        u.setPassword(encoder.encode("pass123"));
+        u = userRepo.save(u);
+
+        var signIn = mockMvc.perform(post("/api/auth/signin")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                    {
+                      "username": "bob",
+                      "password": "pass123"
+                    }
+                    """))
+                .andExpect(status().isOk())
+                .andReturn();
+        String token = com.fasterxml.jackson.databind.json.JsonMapper
+                .builder().build()
+                .readTree(signIn.getResponse().getContentAsString())
+                .get("token").asText();
+
+        mockMvc.perform(get("/api/users/" + u.getId() + "/getdevices")
+                        .header("Authorization", "Bearer " + token))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(post("/api/auth/signout")
+                        .header("Authorization", "Bearer " + token))
+                .andExpect(status().isOk());
+
+        // revoked tokens are rejected
+        mockMvc.perform(get("/api/users/" + u.getId() + "/getdevices")
+                        .header("Authorization", "Bearer " + token))
+                .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    void tokensIssuedAndRevokedByAnotherInstance_areHonoured() throws Exception {
+        User u = new User();
+        u.setUsername("carol");
+        u.setEmail("carol@example.com");
+        u.setPassword(encoder.encode("pass123"));
+        u = userRepo.save(u);
+
+        // another instance signs the user in: only the tokens table knows the JTI
+        String token = jwtUtils.generateToken(u.getId(), "carol", List.of());
+        Token row = new Token();
+        row.setJti(jwtUtils.getJtiFromToken(token));
+        row.setUsername("carol");
+        row.setIssuedAt(Instant.now());
+        row.setExpiresAt(Instant.now().plusSeconds(3600));
+        tokenRepo.save(row);
+
+        mockMvc.perform(get("/api/users/" + u.getId() + "/getdevices")
+                        .header("Authorization", "Bearer " + token))
+                .andExpect(status().isOk());
+
+        // ... and later signs it out there
+        tokenRepo.deleteByJti(row.getJti());
+        Object recheckMs = ReflectionTestUtils.getField(tokenService, "recheckMs");
+        ReflectionTestUtils.setField(tokenService, "recheckMs", 0L);
+        try {
+            mockMvc.perform(get("/api/users/" + u.getId() + "/getdevices")
+                            .header("Authorization", "Bearer " + token))
+                    .andExpect(status().isUnauthorized());
+        } finally {
+            ReflectionTestUtils.setField(tokenService, "recheckMs", recheckMs);
+        }
+    }
+
+    @Test
+    void unreachableTokensTable_failsClosedOutsideTheGrace() {
+        // the real repository until the "database" goes away
+        AtomicBoolean down = new AtomicBoolean();
+        TokenRepository flaky = (TokenRepository) Proxy.newProxyInstance(TokenRepository.class.getClassLoader(),
+                new Class<?>[]{TokenRepository.class}, (proxy, method, args) -> {
+                    if (down.get()) {
+                        throw new DataAccessResourceFailureException("tokens table unreachable");
+                    }
+                    try {
+                        return method.invoke(tokenRepo, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+        TokenService service = new TokenService(flaky, jwtUtils);
+        ReflectionTestUtils.setField(service, "recheckMs", 0L);
+        ReflectionTestUtils.setField(service, "negativeCacheMs", 0L);
+
+        String known = jwtUtils.getJtiFromToken(service.createTokenForUser(1L, "dave", List.of()));
+        assertTrue(service.isJtiValid(known));
+
+        down.set(true);
+        assertFalse(service.isJtiValid(known));
+        assertFalse(service.isJtiValid("never-seen"));
+
+        // a configured grace keeps a recently confirmed token, and only that one
+        ReflectionTestUtils.setField(service, "outageGraceMs", 60_000L);
+        assertTrue(service.isJtiValid(known));
+        assertFalse(service.isJtiValid("never-seen"));
+    }
+}
@@ -0,0 +1,217 @@
+package com.project.spar;
+
+import com.project.spar.cache.LatestMetricsCache;
+import com.project.spar.cluster.ClusterMembership;
+import com.project.spar.model.User;
+import com.project.spar.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Two SPAR nodes in one JVM: this test's context is node A, and node B is a
+ * second application started next to it that joins through A as its seed.
+ * Both share the in-memory test database, so like {@link ShardingTest} the
+ * test is not transactional and cleans up after itself. Heartbeats are
+ * driven by hand so the nodes converge deterministically.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@TestPropertySource(properties = {
+        "cluster.enabled=true",
+        "cluster.secret=test-cluster-secret",
+        "cluster.heartbeatMs=600000"
+})
+class ClusterTest {
+
+    @LocalServerPort int port;
+    @Autowired MockMvc mockMvc;
+    @Autowired UserRepository userRepo;
+    @Autowired PasswordEncoder encoder;
+    @Autowired JdbcTemplate jdbc;
+    @Autowired ClusterMembership membership;
+    @Autowired LatestMetricsCache latestMetricsCache;
+
+    private ConfigurableApplicationContext nodeB;
+    private ClusterMembership membershipB;
+    private Long userId;
+    private String jwt;
+    private String deviceOnB;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        nodeB = new SpringApplicationBuilder(SparApplication.class)
+                .profiles("test")
+                .run("--server.port=0",
+                        "--cluster.enabled=true",
+                        "--cluster.secret=test-cluster-secret",
+                        "--cluster.heartbeatMs=600000",
+                        "--cluster.nodes=http://localhost:" + port,
+                        // node A owns the schema
+                        "--spring.jpa.hibernate.ddl-auto=none");
+        membershipB = nodeB.getBean(ClusterMembership.class);
+        membershipB.heartbeat();
+        membership.heartbeat();
+        assertEquals(List.of(membership.self(), membershipB.self()).stream().sorted().toList(), membership.members());
+        assertEquals(membership.members(), membershipB.members());
+
+        User user = new User();
+        user.setUsername("grace");
+        user.setPassword(encoder.encode("password"));
+        user.setEmail("grace@example.com");
+        userRepo.save(user);
+        userId = user.getId();
+
+        var signIn = mockMvc.perform(post("/api/auth/signin")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                  {
+                    "username":"grace",
+                    "password":"password"
+                  }
+                  """))
+                .andExpect(status().isOk())
+                .andReturn();
+        jwt = com.fasterxml.jackson.databind.json.JsonMapper
+                .builder().build()
+                .readTree(signIn.getResponse().getContentAsString())
+                .get("token").asText();
+
+        for (int i = 0; deviceOnB == null; i++) {
+            if (!membership.isLocal("clustered-device-" + i)) {
+                deviceOnB = "clustered-device-" + i;
+            }
+        }
+        mockMvc.perform(post("/api/users/" + userId + "/devices")
+                        .header("Authorization","Bearer " + jwt)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                  {
+                    "deviceId":"%s",
+                    "deviceName":"Clustered Device",
+                    "manufacturer":"Acme",
+                    "model":"X1000",
+                    "processor":"Acme CPU",
+                    "cpuPhysicalCores":2,
+                    "cpuLogicalCores":4,
+                    "installedRam":8.0,
+                    "graphics":"Integrated",
+                    "operatingSystem":"TestOS 1.0",
+                    "systemType":"x64",
+                    "user":{"id":%d}
+                  }
+                  """.formatted(deviceOnB, userId)))
+                .andExpect(status().isOk());
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (nodeB.isActive()) {
+            nodeB.close();
+        }
+        for (String table : new String[]{"battery_info", "cpu_usage", "ram_usage", "disk_io", "disk_usage",
+                "process_status", "metric_samples", "metric_rollups", "device_specifications", "tokens"}) {
+            jdbc.update("DELETE FROM " + table);
+        }
+        userRepo.deleteAll();
+    }
+
+    @Test
+    void metricTraffic_isServedByTheOwner() throws Exception {
+        postBatch(30.0);
+
+        // the write went through node B's ingest path, not A's
+        assertTrue(nodeB.getBean(LatestMetricsCache.class).get(userId, deviceOnB).isPresent());
+        assertTrue(latestMetricsCache.get(userId, deviceOnB).isEmpty());
+
+        mockMvc.perform(get("/api/metrics/cpu-usage/" + userId + "/" + deviceOnB)
+                        .header("Authorization","Bearer " + jwt))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalCpuLoad").value(30.0));
+
+        // user-level reads stay local, but must not cache a device another node writes
+        mockMvc.perform(get("/api/users/" + userId + "/snapshots")
+                        .param("fields", "cpuUsage")
+                        .header("Authorization","Bearer " + jwt))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].cpuUsage.totalCpuLoad").value(30.0));
+        assertTrue(latestMetricsCache.get(userId, deviceOnB).isEmpty());
+
+        mockMvc.perform(get("/api/metrics/stream/" + userId + "/" + deviceOnB)
+                        .header("Authorization","Bearer " + jwt))
+                .andExpect(status().isTemporaryRedirect())
+                .andExpect(header().string("Location",
+                        membershipB.self() + "/api/metrics/stream/" + userId + "/" + deviceOnB));
+    }
+
+    @Test
+    void leavingNode_handsItsDevicesBack() throws Exception {
+        postBatch(30.0);
+
+        nodeB.close();
+
+        assertEquals(List.of(membership.self()), membership.members());
+        assertTrue(membership.isLocal(deviceOnB));
+        mockMvc.perform(get("/api/metrics/cpu-usage/" + userId + "/" + deviceOnB)
+                        .header("Authorization","Bearer " + jwt))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalCpuLoad").value(30.0));
+    }
+
+    @Test
+    void internalCalls_requireTheClusterSecret() throws Exception {
+        mockMvc.perform(get("/internal/cluster/ping"))
+                .andExpect(status().isForbidden());
+    }
+
+    @Test
+    void clusterMode_requiresASecret() {
+        SpringApplicationBuilder unsecured = new SpringApplicationBuilder(SparApplication.class).profiles("test");
+        Exception e = assertThrows(Exception.class, () -> unsecured.run("--server.port=0",
+                "--cluster.enabled=true", "--cluster.secret=", "--spring.jpa.hibernate.ddl-auto=none"));
+        assertTrue(hasCause(e, IllegalStateException.class, "cluster.secret"));
+    }
+
+    private static boolean hasCause(Throwable e, Class<? extends Throwable> type, String message) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (type.isInstance(t) && t.getMessage() != null && t.getMessage().contains(message)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void postBatch(double cpuLoad) throws Exception {
+        mockMvc.perform(post("/api/metrics/batch")
+                        .header("Authorization","Bearer " + jwt)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                  {
+                    "userId": %d,
+                    "deviceId": "%s",
+                    "cpuUsage": {"totalCpuLoad": %s, "perCoreUsage": [%s]}
+                  }
+                  """.formatted(userId, deviceOnB, cpuLoad, cpuLoad)))
+                .andExpect(status().isAccepted());
+    }
+}
@@ -2,9 +2,13 @@
 package com.project.spar;
 
 import com.project.spar.model.DeviceSpecification;
+import com.project.spar.model.SeriesMetric;
 import com.project.spar.model.User;
 import com.project.spar.repository.DeviceSpecificationRepository;
 import com.project.spar.repository.UserRepository;
+import com.project.spar.service.MetricHistoryService;
+import com.project.spar.stream.MetricsStreamHub;
+import com.project.spar.timeseries.SeriesStore;
 import jakarta.transaction.Transactional;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -12,11 +16,19 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.time.LocalDateTime;
+import java.util.Map;
 import java.util.UUID;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
@@ -27,7 +39,7 @@ import org.springframework.test.context.ActiveProfiles;
 @SpringBootTest
 @AutoConfigureMockMvc
 @ActiveProfiles("test")
-@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.ANY)
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
 @Transactional
 class MetricsControllerTest {
 
@@ -35,6 +47,10 @@ class MetricsControllerTest {
     @Autowired UserRepository userRepo;
     @Autowired DeviceSpecificationRepository deviceRepo;
     @Autowired PasswordEncoder encoder;
+    @Autowired MetricsStreamHub streamHub;
+    @Autowired MetricHistoryService metricHistoryService;
+    @Autowired SeriesStore seriesStore;
+    @Autowired JdbcTemplate jdbc;
 
     private Long userId;
     private String jwt;
@@ -133,11 +149,51 @@ class MetricsControllerTest {
                   """.formatted(userId, deviceId)))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.totalCpuLoad").value(55.5))
+                .andExpect(jsonPath("$.perCoreUsage[0]").value(50.0))
                 .andExpect(jsonPath("$.perCoreUsageJson").isString())
                 .andExpect(jsonPath("$.userId").value(userId))
                 .andExpect(jsonPath("$.deviceId").value(deviceId));
     }
 
+    @Test
+    void postCpuUsage_acceptsNumericPerCoreArray() throws Exception {
+        mockMvc.perform(post("/api/metrics/cpu-usage")
+                        .header("Authorization","Bearer " + jwt)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                  {
+                    "totalCpuLoad": 57.75,
+                    "perCoreUsage": [95.5, 20.0],
+                    "user": {"id": %d},
+                    "device": {"deviceId": "%s"}
+                  }
+                  """.formatted(userId, deviceId)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.perCoreUsage[0]").value(95.5))
+                .andExpect(jsonPath("$.perCoreUsage[1]").value(20.0))
+                .andExpect(jsonPath("$.perCoreUsageJson")
+                        .value("[{\"core\":1,\"usage\":95.5},{\"core\":2,\"usage\":20.0}]"))
+                .andExpect(jsonPath("$.hotCores[0]").value(1));
+    }
+
+    @Test
+    void postCpuUsage_rejectsTooManyCores() throws Exception {
+        String cores = java.util.stream.IntStream.range(0, 513).mapToObj(i -> "1.0")
+                .collect(java.util.stream.Collectors.joining(","));
+        mockMvc.perform(post("/api/metrics/cpu-usage")
+                        .header("Authorization","Bearer " + jwt)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                  {
+                    "totalCpuLoad": 57.75,
+                    "perCoreUsage": [%s],
+                    "user": {"id": %d},
+                    "device": {"deviceId": "%s"}
+                  }
+                  """.formatted(cores, userId, deviceId)))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     void postRamUsage() throws Exception {
         mockMvc.perform(post("/api/metrics/ram-usage")
@@ -158,4 +214,260 @@ class MetricsControllerTest {
                 .andExpect(jsonPath("$.userId").value(userId))
                 .andExpect(jsonPath("$.deviceId").value(deviceId));
     }
+
+    @Test
+    void postDiskUsage_returnsTheInsertedRow() throws Exception {
+        mockMvc.perform(post("/api/metrics/disk-usage")
+                        .header("Authorization","Bearer " + jwt)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                  {
+                    "filesystem": "/dev/sda1",
+                    "sizeGB": 100.0,
+                    "usedGB": 40.0,
+                    "availableGB": 60.0,
+                    "user": {"id": %d},
+                    "device": {"deviceId": "%s"}
+                  }
+                  """.formatted(userId, deviceId)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").isNumber())
+                .andExpect(jsonPath("$.usedGB").value(40.0));
+
+        mockMvc.perform(get("/api/metrics/disk-usage/" + userId + "/" + deviceId)
+                        .header("Authorization","Bearer " + jwt))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].filesystem").value("/dev/sda1"));
+    }
+
+    @Test
+    void postProcessStatus_rejectsEmptyOrOwnerlessLists() throws Exception {
+        mockMvc.perform(post("/api/metrics/process-status")
+                        .header("Authorization","Bearer " + jwt)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[]"))
+                .andExpect(status().isBadRequest());
+
+        mockMvc.perform(post("/api/metrics/process-status")
+                        .header("Authorization","Bearer " + jwt)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                  [{"pid": 1, "name": "init", "cpuUsage": 0.1, "memoryMB": 5.0,
+                    "device": {"deviceId": "%s"}}]
+                  """.formatted(deviceId)))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void postBatch_persistsEveryMetricType() throws Exception {
+        mockMvc.perform(post("/api/metrics/batch")
+                        .header("Authorization","Bearer " + jwt)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                  {
+                    "userId": %d,
+                    "deviceId": "%s",
+                    "batteryInfo": {"hasBattery": true, "batteryPercentage": 60, "isCharging": true, "powerConsumption": 4.2},
+                    "cpuUsage": {"totalCpuLoad": 12.5, "perCoreUsageJson": "[{\\"core\\":1,\\"usage\\":12.5}]"},
+                    "ramUsage": {"totalMemory": 16.0, "usedMemory": 4.0, "availableMemory": 12.0},
+                    "diskIO": {"readSpeedMBps": 1.5, "writeSpeedMBps": 0.5},
+                    "diskUsage": [
+                      {"filesystem": "/dev/sda1", "sizeGB": 100.0, "usedGB": 40.0, "availableGB": 60.0},
+                      {"filesystem": "/dev/sdb1", "sizeGB": 200.0, "usedGB": 10.0, "availableGB": 190.0}
+                    ],
+                    "processStatuses": [
+                      {"pid": 1, "name": "init", "cpuUsage": 0.1, "memoryMB": 5.0},
+                      {"pid": 42, "name": "java", "cpuUsage": 9.9, "memoryMB": 512.0}
+                    ]
+                  }
+                  """.formatted(userId, deviceId)))
+                .andExpect(status().isAccepted());
+
+        mockMvc.perform(get("/api/metrics/cpu-usage/" + userId + "/" + deviceId)
+                        .header("Authorization","Bearer " + jwt))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalCpuLoad").value(12.5));
+
+        mockMvc.perform(get("/api/metrics/disk-usage/" + userId + "/" + deviceId)
+                        .header("Authorization","Bearer " + jwt))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2));
+
+        mockMvc.perform(get("/api/metrics/process-status/" + userId + "/" + deviceId)
+                        .header("Authorization","Bearer " + jwt))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2));
+    }
+
+    @Test
+    void getSnapshot_returnsSelectedFields() throws Exception {
+        mockMvc.perform(post("/api/metrics/ram-usage")
+                        .header("Authorization","Bearer " + jwt)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                  {
+                    "totalMemory": 32.0,
+                    "usedMemory": 20.0,
+                    "availableMemory": 12.0,
+                    "user": {"id": %d},
+                    "device": {"deviceId": "%s"}
+                  }
+                  """.formatted(userId, deviceId)))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/api/metrics/snapshot/" + userId + "/" + deviceId)
+                        .param("fields", "ramUsage,batteryInfo")
+                        .header("Authorization","Bearer " + jwt))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.deviceId").value(deviceId))
+                .andExpect(jsonPath("$.ramUsage.usedMemory").value(20.0))
+                .andExpect(jsonPath("$.batteryInfo").doesNotExist())
+                .andExpect(jsonPath("$.processStatuses").doesNotExist());
+
+        mockMvc.perform(get("/api/metrics/snapshot/" + userId + "/" + deviceId)
+                        .param("fields", "bogus")
+                        .header("Authorization","Bearer " + jwt))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void getLatest_answersNotModifiedForCurrentETag() throws Exception {
+        mockMvc.perform(post("/api/metrics/ram-usage")
+                        .header("Authorization","Bearer " + jwt)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                  {
+                    "totalMemory": 16.0,
+                    "usedMemory": 4.0,
+                    "availableMemory": 12.0,
+                    "user": {"id": %d},
+                    "device": {"deviceId": "%s"}
+                  }
+                  """.formatted(userId, deviceId)))
+                .andExpect(status().isOk());
+
+        var first = mockMvc.perform(get("/api/metrics/ram-usage/" + userId + "/" + deviceId)
+                        .header("Authorization","Bearer " + jwt))
+                .andExpect(status().isOk())
+                .andExpect(header().exists("ETag"))
+                .andExpect(header().doesNotExist("Last-Modified"))
+                .andReturn();
+        String etag = first.getResponse().getHeader("ETag");
+
+        // seconds are too coarse to tell two writes apart, so dates alone never validate
+        mockMvc.perform(get("/api/metrics/ram-usage/" + userId + "/" + deviceId)
+                        .header("If-Modified-Since", "Fri, 31 Dec 2100 00:00:00 GMT")
+                        .header("Authorization","Bearer " + jwt))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/api/metrics/ram-usage/" + userId + "/" + deviceId)
+                        .header("If-None-Match", etag)
+                        .header("Authorization","Bearer " + jwt))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+
+        mockMvc.perform(get("/api/metrics/ram-usage/" + userId + "/" + deviceId)
+                        .header("If-None-Match", "W/\"stale\"")
+                        .header("Authorization","Bearer " + jwt))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.usedMemory").value(4.0));
+    }
+
+    @Test
+    void streamMetrics_opensEventStream() throws Exception {
+        mockMvc.perform(get("/api/metrics/stream/" + userId + "/" + deviceId)
+                        .accept(MediaType.TEXT_EVENT_STREAM)
+                        .header("Authorization","Bearer " + jwt))
+                .andExpect(status().isOk())
+                .andExpect(request().asyncStarted());
+
+        mockMvc.perform(get("/api/metrics/stream/" + userId + "/unknown-device")
+                        .accept(MediaType.TEXT_EVENT_STREAM)
+                        .header("Authorization","Bearer " + jwt))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void streamMetrics_deliversPublishedUpdates() throws Exception {
+        var stream = mockMvc.perform(get("/api/metrics/stream/" + userId + "/" + deviceId)
+                        .accept(MediaType.TEXT_EVENT_STREAM)
+                        .header("Authorization","Bearer " + jwt))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        streamHub.publish(userId, deviceId, "{\"cpuUsage\":{\"totalCpuLoad\":33.0}}");
+        streamHub.publish(userId + 1, deviceId, "{\"cpuUsage\":{\"totalCpuLoad\":99.0}}");
+
+        long deadline = System.currentTimeMillis() + 5000;
+        String body = "";
+        while (!body.contains("33.0") && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+            body = stream.getResponse().getContentAsString();
+        }
+        assertTrue(body.contains("event:metrics"), body);
+        assertTrue(body.contains("data:{\"cpuUsage\":{\"totalCpuLoad\":33.0}}"), body);
+        // another user's update for the same device id is not delivered
+        assertFalse(body.contains("99.0"), body);
+        stream.getRequest().getAsyncContext().complete();
+    }
+
+    @Test
+    void getRange_returnsRecordedHistory() throws Exception {
+        mockMvc.perform(post("/api/metrics/cpu-usage")
+                        .header("Authorization","Bearer " + jwt)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                  {
+                    "totalCpuLoad": 33.0,
+                    "user": {"id": %d},
+                    "device": {"deviceId": "%s"}
+                  }
+                  """.formatted(userId, deviceId)))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/api/metrics/cpu-usage/" + userId + "/" + deviceId + "/range")
+                        .param("maxPoints", "100")
+                        .header("Authorization","Bearer " + jwt))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.type").value("cpu-usage"))
+                .andExpect(jsonPath("$.series[0].metric").value("CPU_LOAD"))
+                .andExpect(jsonPath("$.series[0].values[0]").value(33.0));
+
+        mockMvc.perform(get("/api/metrics/bogus/" + userId + "/" + deviceId + "/range")
+                        .header("Authorization","Bearer " + jwt))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void getRange_isUnavailableWithoutHistoryOrSeriesStore() throws Exception {
+        ReflectionTestUtils.setField(metricHistoryService, "enabled", false);
+        ReflectionTestUtils.setField(seriesStore, "enabled", false);
+        try {
+            mockMvc.perform(get("/api/metrics/cpu-usage/" + userId + "/" + deviceId + "/range")
+                            .header("Authorization","Bearer " + jwt))
+                    .andExpect(status().isServiceUnavailable());
+        } finally {
+            ReflectionTestUtils.setField(metricHistoryService, "enabled", true);
+            ReflectionTestUtils.setField(seriesStore, "enabled", true);
+        }
+    }
+
+    @Test
+    void recordingAnInstantAgain_replacesItInTheRollups() {
+        Long deviceSpecId = deviceRepo.findByUserAndDeviceId(userRepo.findById(userId).orElseThrow(), deviceId)
+                .orElseThrow().getId();
+        LocalDateTime ts = LocalDateTime.of(2025, 4, 1, 12, 0, 30);
+        metricHistoryService.record(deviceSpecId, ts.minusSeconds(10), Map.of(SeriesMetric.CPU_LOAD, 10.0));
+        metricHistoryService.record(deviceSpecId, ts, Map.of(SeriesMetric.CPU_LOAD, 50.0));
+        metricHistoryService.record(deviceSpecId, ts, Map.of(SeriesMetric.CPU_LOAD, 20.0));
+
+        for (int resolution = 0; resolution < 2; resolution++) {
+            Map<String, Object> bucket = jdbc.queryForMap("SELECT minVal, maxVal, sumVal, sampleCount "
+                    + "FROM metric_rollups WHERE device_spec_id = ? AND resolution = ?", deviceSpecId, resolution);
+            assertEquals(10.0, ((Number) bucket.get("MINVAL")).doubleValue());
+            assertEquals(20.0, ((Number) bucket.get("MAXVAL")).doubleValue());
+            assertEquals(30.0, ((Number) bucket.get("SUMVAL")).doubleValue());
+            assertEquals(2L, ((Number) bucket.get("SAMPLECOUNT")).longValue());
+        }
+    }
 }
@@ -0,0 +1,186 @@
+// src/test/java/com/project/spar/ReactiveIngestTest.java
+package com.project.spar;
+
+import com.project.spar.model.User;
+import com.project.spar.reactive.ReactiveIngestServer;
+import com.project.spar.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * The reactive endpoint writes over R2DBC on its own connections, so this test
+ * is not transactional: the user and device must be committed for it to see
+ * them, and everything is removed again afterwards. The JDBC and R2DBC sides
+ * share the named in-memory H2 database.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@TestPropertySource(properties = {
+        "ingest.reactive.enabled=true",
+        "ingest.reactive.port=0",
+        "ingest.reactive.r2dbcUrl=r2dbc:h2:mem:///testdb?options=DB_CLOSE_DELAY=-1;MODE=MySQL"
+})
+class ReactiveIngestTest {
+
+    @Autowired MockMvc mockMvc;
+    @Autowired UserRepository userRepo;
+    @Autowired PasswordEncoder encoder;
+    @Autowired JdbcTemplate jdbc;
+    @Autowired ReactiveIngestServer server;
+
+    private WebTestClient client;
+    private Long userId;
+    private String jwt;
+    private String deviceId;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        client = WebTestClient.bindToServer().baseUrl("http://localhost:" + server.getPort()).build();
+
+        User user = new User();
+        user.setUsername("erin");
+        user.setPassword(encoder.encode("password"));
+        user.setEmail("erin@example.com");
+        userRepo.save(user);
+        userId = user.getId();
+
+        var signIn = mockMvc.perform(post("/api/auth/signin")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                  {
+                    "username":"erin",
+                    "password":"password"
+                  }
+                  """))
+                .andExpect(status().isOk())
+                .andReturn();
+        jwt = com.fasterxml.jackson.databind.json.JsonMapper
+                .builder().build()
+                .readTree(signIn.getResponse().getContentAsString())
+                .get("token").asText();
+
+        deviceId = UUID.randomUUID().toString();
+        mockMvc.perform(post("/api/users/" + userId + "/devices")
+                        .header("Authorization","Bearer " + jwt)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                  {
+                    "deviceId":"%s",
+                    "deviceName":"Reactive Device",
+                    "manufacturer":"Acme",
+                    "model":"X1000",
+                    "processor":"Acme CPU",
+                    "cpuPhysicalCores":2,
+                    "cpuLogicalCores":4,
+                    "installedRam":8.0,
+                    "graphics":"Integrated",
+                    "operatingSystem":"TestOS 1.0",
+                    "systemType":"x64",
+                    "user":{"id":%d}
+                  }
+                  """.formatted(deviceId, userId)))
+                .andExpect(status().isOk());
+    }
+
+    @AfterEach
+    void tearDown() {
+        for (String table : new String[]{"battery_info", "cpu_usage", "ram_usage", "disk_io", "disk_usage",
+                "process_status", "metric_samples", "metric_rollups", "device_specifications", "tokens"}) {
+            jdbc.update("DELETE FROM " + table);
+        }
+        userRepo.deleteAll();
+    }
+
+    @Test
+    void postBatch_isWrittenThroughR2dbc() throws Exception {
+        client.post().uri("/api/metrics/batch")
+                .header("Authorization", "Bearer " + jwt)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("""
+                  {
+                    "userId": %d,
+                    "deviceId": "%s",
+                    "cpuUsage": {"totalCpuLoad": 42.0, "perCoreUsage": [40.0, 44.0]},
+                    "diskUsage": [{"filesystem": "/", "sizeGB": 100.0, "usedGB": 40.0, "availableGB": 60.0}],
+                    "processStatuses": [{"pid": 1, "name": "init", "cpuUsage": 0.1, "memoryMB": 8.0}]
+                  }
+                  """.formatted(userId, deviceId))
+                .exchange()
+                .expectStatus().isAccepted();
+
+        assertEquals(42.0, jdbc.queryForObject("SELECT totalCpuLoad FROM cpu_usage", Double.class));
+        assertEquals(1, jdbc.queryForObject("SELECT COUNT(*) FROM process_status", Integer.class));
+
+        // the MVC read endpoints see what the reactive side committed
+        mockMvc.perform(get("/api/metrics/cpu-usage/" + userId + "/" + deviceId)
+                        .header("Authorization","Bearer " + jwt))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalCpuLoad").value(42.0));
+    }
+
+    @Test
+    void concurrentBatchesForOneDevice_doNotInterleave() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Callable<Integer>> posts = IntStream.range(0, 24).<Callable<Integer>>mapToObj(i -> () ->
+                    client.post().uri("/api/metrics/batch")
+                            .header("Authorization", "Bearer " + jwt)
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .bodyValue("""
+                              {
+                                "userId": %d,
+                                "deviceId": "%s",
+                                "diskUsage": [{"filesystem": "/", "sizeGB": 100.0, "usedGB": %d.0, "availableGB": 60.0}],
+                                "processStatuses": [{"pid": 1, "name": "init", "cpuUsage": 0.1, "memoryMB": 8.0},
+                                                    {"pid": 2, "name": "sh", "cpuUsage": 0.2, "memoryMB": 4.0}]
+                              }
+                              """.formatted(userId, deviceId, i))
+                            .exchange()
+                            .returnResult(String.class)
+                            .getStatus().value()).toList();
+            for (Future<Integer> status : pool.invokeAll(posts)) {
+                assertEquals(202, status.get());
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        // every batch replaced the lists as a whole, so exactly one snapshot is left
+        assertEquals(1, jdbc.queryForObject("SELECT COUNT(*) FROM disk_usage", Integer.class));
+        assertEquals(2, jdbc.queryForObject("SELECT COUNT(*) FROM process_status", Integer.class));
+    }
+
+    @Test
+    void postBatch_rejectsMissingToken() {
+        client.post().uri("/api/metrics/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"userId\": %d, \"deviceId\": \"%s\"}".formatted(userId, deviceId))
+                .exchange()
+                .expectStatus().isUnauthorized();
+    }
+}
@@ -0,0 +1,106 @@
+// src/test/java/com/project/spar/RetentionServiceTest.java
+package com.project.spar;
+
+import com.project.spar.cache.LatestMetricsCache;
+import com.project.spar.model.DeviceSpecification;
+import com.project.spar.model.SeriesMetric;
+import com.project.spar.model.Token;
+import com.project.spar.model.User;
+import com.project.spar.repository.DeviceSpecificationRepository;
+import com.project.spar.repository.TokenRepository;
+import com.project.spar.repository.UserRepository;
+import com.project.spar.service.RetentionService;
+import com.project.spar.timeseries.SeriesStore;
+import jakarta.transaction.Transactional;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional
+class RetentionServiceTest {
+
+    @Autowired RetentionService retentionService;
+    @Autowired TokenRepository tokenRepo;
+    @Autowired UserRepository userRepo;
+    @Autowired DeviceSpecificationRepository deviceRepo;
+    @Autowired JdbcTemplate jdbc;
+    @Autowired LatestMetricsCache latestMetricsCache;
+    @Autowired SeriesStore seriesStore;
+
+    @Test
+    void purge_removesOnlyLongExpiredTokens() {
+        Instant now = Instant.now();
+        tokenRepo.save(token("expired-jti", now.minus(Duration.ofDays(3)), now.minus(Duration.ofDays(2))));
+        tokenRepo.save(token("live-jti", now, now.plus(Duration.ofHours(1))));
+        tokenRepo.flush();
+
+        Map<String, Long> deleted = retentionService.purge();
+
+        assertEquals(1L, deleted.get("tokens"));
+        assertFalse(tokenRepo.existsByJti("expired-jti"));
+        assertTrue(tokenRepo.existsByJti("live-jti"));
+        assertNotNull(retentionService.getStats().getLastRunAt());
+        assertTrue(retentionService.getStats().getTotalDeleted().get("tokens") >= 1L);
+    }
+
+    @Test
+    void purge_reclaimsSilentDevicesAndEvictsThem() {
+        User user = new User();
+        user.setUsername("retention-user");
+        user.setPassword("x");
+        user.setEmail("retention@example.com");
+        userRepo.save(user);
+        DeviceSpecification silent = deviceRepo.save(device(user, "silent-device"));
+        DeviceSpecification active = deviceRepo.save(device(user, "active-device"));
+        deviceRepo.flush();
+
+        jdbc.update("INSERT INTO cpu_usage (totalCpuLoad, timestamp, device_spec_id) VALUES (?, ?, ?)",
+                10.0, LocalDateTime.now().minusDays(60), silent.getId());
+        jdbc.update("INSERT INTO cpu_usage (totalCpuLoad, timestamp, device_spec_id) VALUES (?, ?, ?)",
+                20.0, LocalDateTime.now(), active.getId());
+        for (DeviceSpecification d : new DeviceSpecification[]{silent, active}) {
+            latestMetricsCache.update(user.getId(), d.getDeviceId(), m -> m);
+            seriesStore.append(d.getId(), SeriesMetric.CPU_LOAD, System.currentTimeMillis(), 1.0);
+        }
+
+        Map<String, Long> deleted = retentionService.purge();
+
+        assertEquals(1L, deleted.get("cpu_usage"));
+        assertEquals(1, jdbc.queryForObject("SELECT COUNT(*) FROM cpu_usage", Integer.class));
+        assertTrue(latestMetricsCache.get(user.getId(), "silent-device").isEmpty());
+        assertTrue(latestMetricsCache.get(user.getId(), "active-device").isPresent());
+        assertTrue(seriesStore.earliest(silent.getId(), SeriesMetric.CPU_LOAD).isEmpty());
+        assertTrue(seriesStore.earliest(active.getId(), SeriesMetric.CPU_LOAD).isPresent());
+        latestMetricsCache.evict("active-device");
+        seriesStore.evictDevice(active.getId());
+    }
+
+    private static DeviceSpecification device(User user, String deviceId) {
+        DeviceSpecification d = new DeviceSpecification();
+        d.setDeviceId(deviceId);
+        d.setUser(user);
+        return d;
+    }
+
+    private static Token token(String jti, Instant issuedAt, Instant expiresAt) {
+        Token t = new Token();
+        t.setJti(jti);
+        t.setUsername("retention-test");
+        t.setIssuedAt(issuedAt);
+        t.setExpiresAt(expiresAt);
+        return t;
+    }
+}
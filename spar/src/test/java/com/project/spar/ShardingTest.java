@@ -0,0 +1,185 @@
+// src/test/java/com/project/spar/ShardingTest.java
+package com.project.spar;
+
+import com.project.spar.model.User;
+import com.project.spar.repository.DeviceSpecificationRepository;
+import com.project.spar.repository.UserRepository;
+import com.project.spar.shard.ShardRouter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Two in-memory H2 databases act as metric shards next to the primary test
+ * database. Like {@link ReactiveIngestTest} this test is not transactional:
+ * the shards are written on their own connections, so everything is
+ * committed and removed again afterwards.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@TestPropertySource(properties = {
+        "shard.enabled=true",
+        "shard.urls=" + ShardingTest.SHARD_0 + "," + ShardingTest.SHARD_1
+})
+class ShardingTest {
+
+    static final String SHARD_0 = "jdbc:h2:mem:shard0;DB_CLOSE_DELAY=-1;MODE=MySQL";
+    static final String SHARD_1 = "jdbc:h2:mem:shard1;DB_CLOSE_DELAY=-1;MODE=MySQL";
+
+    @Autowired MockMvc mockMvc;
+    @Autowired UserRepository userRepo;
+    @Autowired DeviceSpecificationRepository deviceRepo;
+    @Autowired PasswordEncoder encoder;
+    @Autowired JdbcTemplate jdbc;
+    @Autowired ShardRouter shardRouter;
+
+    private final JdbcTemplate shard0 = new JdbcTemplate(new DriverManagerDataSource(SHARD_0, "sa", ""));
+    private final JdbcTemplate shard1 = new JdbcTemplate(new DriverManagerDataSource(SHARD_1, "sa", ""));
+
+    private Long userId;
+    private String jwt;
+    private String deviceOnShard0;
+    private String deviceOnShard1;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        User user = new User();
+        user.setUsername("frank");
+        user.setPassword(encoder.encode("password"));
+        user.setEmail("frank@example.com");
+        userRepo.save(user);
+        userId = user.getId();
+
+        var signIn = mockMvc.perform(post("/api/auth/signin")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                  {
+                    "username":"frank",
+                    "password":"password"
+                  }
+                  """))
+                .andExpect(status().isOk())
+                .andReturn();
+        jwt = com.fasterxml.jackson.databind.json.JsonMapper
+                .builder().build()
+                .readTree(signIn.getResponse().getContentAsString())
+                .get("token").asText();
+
+        deviceOnShard0 = deviceIdOnShard(0);
+        deviceOnShard1 = deviceIdOnShard(1);
+        registerDevice(deviceOnShard0, "Shard Zero Device");
+        registerDevice(deviceOnShard1, "Shard One Device");
+    }
+
+    @AfterEach
+    void tearDown() {
+        for (JdbcTemplate shard : new JdbcTemplate[]{shard0, shard1}) {
+            for (String table : new String[]{"battery_info", "cpu_usage", "ram_usage", "disk_io", "disk_usage",
+                    "process_status", "device_samples", "metric_samples", "metric_rollups"}) {
+                shard.update("DELETE FROM " + table);
+            }
+        }
+        jdbc.update("DELETE FROM device_specifications");
+        jdbc.update("DELETE FROM tokens");
+        userRepo.deleteAll();
+    }
+
+    @Test
+    void batches_landOnTheDevicesShard() throws Exception {
+        postBatch(deviceOnShard0, 10.0);
+        postBatch(deviceOnShard1, 20.0);
+
+        assertEquals(specId(deviceOnShard0), shard0.queryForObject("SELECT device_spec_id FROM cpu_usage", Long.class));
+        assertEquals(specId(deviceOnShard1), shard1.queryForObject("SELECT device_spec_id FROM cpu_usage", Long.class));
+        assertEquals(1, shard0.queryForObject("SELECT COUNT(*) FROM process_status", Integer.class));
+        assertEquals(1, shard1.queryForObject("SELECT COUNT(*) FROM process_status", Integer.class));
+        // the primary keeps users and devices only
+        assertEquals(0, jdbc.queryForObject("SELECT COUNT(*) FROM cpu_usage", Integer.class));
+
+        mockMvc.perform(get("/api/metrics/cpu-usage/" + userId + "/" + deviceOnShard1)
+                        .header("Authorization","Bearer " + jwt))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalCpuLoad").value(20.0));
+    }
+
+    @Test
+    void userSnapshots_fanOutOverAllShards() throws Exception {
+        postBatch(deviceOnShard0, 10.0);
+        postBatch(deviceOnShard1, 20.0);
+
+        mockMvc.perform(get("/api/users/" + userId + "/snapshots")
+                        .param("fields", "cpuUsage")
+                        .header("Authorization","Bearer " + jwt))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[?(@.deviceId == '%s')].cpuUsage.totalCpuLoad", deviceOnShard0).value(10.0))
+                .andExpect(jsonPath("$[?(@.deviceId == '%s')].cpuUsage.totalCpuLoad", deviceOnShard1).value(20.0));
+    }
+
+    private String deviceIdOnShard(int shard) {
+        for (int i = 0; ; i++) {
+            String deviceId = "sharded-device-" + i;
+            if (shardRouter.shardOf(deviceId) == shard) {
+                return deviceId;
+            }
+        }
+    }
+
+    private Long specId(String deviceId) {
+        return jdbc.queryForObject("SELECT id FROM device_specifications WHERE deviceId = ?", Long.class, deviceId);
+    }
+
+    private void registerDevice(String deviceId, String deviceName) throws Exception {
+        mockMvc.perform(post("/api/users/" + userId + "/devices")
+                        .header("Authorization","Bearer " + jwt)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                  {
+                    "deviceId":"%s",
+                    "deviceName":"%s",
+                    "manufacturer":"Acme",
+                    "model":"X1000",
+                    "processor":"Acme CPU",
+                    "cpuPhysicalCores":2,
+                    "cpuLogicalCores":4,
+                    "installedRam":8.0,
+                    "graphics":"Integrated",
+                    "operatingSystem":"TestOS 1.0",
+                    "systemType":"x64",
+                    "user":{"id":%d}
+                  }
+                  """.formatted(deviceId, deviceName, userId)))
+                .andExpect(status().isOk());
+    }
+
+    private void postBatch(String deviceId, double cpuLoad) throws Exception {
+        mockMvc.perform(post("/api/metrics/batch")
+                        .header("Authorization","Bearer " + jwt)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                  {
+                    "userId": %d,
+                    "deviceId": "%s",
+                    "cpuUsage": {"totalCpuLoad": %s, "perCoreUsage": [%s]},
+                    "processStatuses": [{"pid": 1, "name": "init", "cpuUsage": 0.1, "memoryMB": 8.0}]
+                  }
+                  """.formatted(userId, deviceId, cpuLoad, cpuLoad)))
+                .andExpect(status().isAccepted());
+    }
+}
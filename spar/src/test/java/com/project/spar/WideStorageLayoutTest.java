@@ -0,0 +1,208 @@
+// src/test/java/com/project/spar/WideStorageLayoutTest.java
+package com.project.spar;
+
+import com.project.spar.model.DeviceSample;
+import com.project.spar.model.DeviceSpecification;
+import com.project.spar.model.User;
+import com.project.spar.repository.DeviceSpecificationRepository;
+import com.project.spar.repository.UserRepository;
+import com.project.spar.service.DeviceSampleService;
+import jakarta.transaction.Transactional;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase.Replace;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(properties = "storage.layout=wide")
+@Transactional
+class WideStorageLayoutTest {
+
+    @Autowired MockMvc mockMvc;
+    @Autowired UserRepository userRepo;
+    @Autowired DeviceSpecificationRepository deviceRepo;
+    @Autowired PasswordEncoder encoder;
+    @Autowired DeviceSampleService deviceSampleService;
+
+    private Long userId;
+    private String jwt;
+    private String deviceId;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        // clean out
+        deviceRepo.deleteAll();
+        userRepo.deleteAll();
+
+        // 1) create user
+        User user = new User();
+        user.setUsername("dana");
+        user.setPassword(encoder.encode("password"));
+        user.setEmail("dana@example.com");
+        userRepo.save(user);
+        userId = user.getId();
+
+        // 2) sign in -> JWT
+        var signIn = mockMvc.perform(post("/api/auth/signin")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                  {
+                    "username":"dana",
+                    "password":"password"
+                  }
+                  """))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.token").isString())
+                .andReturn();
+
+        jwt = com.fasterxml.jackson.databind.json.JsonMapper
+                .builder().build()
+                .readTree(signIn.getResponse().getContentAsString())
+                .get("token").asText();
+
+        // 3) register a device for metrics
+        deviceId = UUID.randomUUID().toString();
+        mockMvc.perform(post("/api/users/" + userId + "/devices")
+                        .header("Authorization","Bearer " + jwt)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                  {
+                    "deviceId":"%s",
+                    "deviceName":"Test Device",
+                    "manufacturer":"Acme",
+                    "model":"X1000",
+                    "processor":"Acme CPU",
+                    "cpuPhysicalCores":2,
+                    "cpuLogicalCores":4,
+                    "installedRam":8.0,
+                    "graphics":"Integrated",
+                    "operatingSystem":"TestOS 1.0",
+                    "systemType":"x64",
+                    "user":{"id":%d}
+                  }
+                  """.formatted(deviceId, userId)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].deviceId").value(deviceId));
+    }
+
+    @Test
+    void postBatch_isReadBackFromWideRow() throws Exception {
+        mockMvc.perform(post("/api/metrics/batch")
+                        .header("Authorization","Bearer " + jwt)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                  {
+                    "userId": %d,
+                    "deviceId": "%s",
+                    "batteryInfo": {"hasBattery": true, "batteryPercentage": 60, "isCharging": true, "powerConsumption": 4.2},
+                    "cpuUsage": {"totalCpuLoad": 12.5, "perCoreUsage": [10.0, 15.0]},
+                    "ramUsage": {"totalMemory": 16.0, "usedMemory": 4.0, "availableMemory": 12.0},
+                    "diskIO": {"readSpeedMBps": 1.5, "writeSpeedMBps": 0.5}
+                  }
+                  """.formatted(userId, deviceId)))
+                .andExpect(status().isAccepted());
+
+        mockMvc.perform(get("/api/metrics/cpu-usage/" + userId + "/" + deviceId)
+                        .header("Authorization","Bearer " + jwt))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalCpuLoad").value(12.5))
+                .andExpect(jsonPath("$.perCoreUsage.length()").value(2));
+
+        mockMvc.perform(get("/api/metrics/snapshot/" + userId + "/" + deviceId)
+                        .param("fields", "batteryInfo,ramUsage,diskIO")
+                        .header("Authorization","Bearer " + jwt))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.batteryInfo.batteryPercentage").value(60))
+                .andExpect(jsonPath("$.ramUsage.usedMemory").value(4.0))
+                .andExpect(jsonPath("$.diskIO.readSpeedMBps").value(1.5));
+    }
+
+    @Test
+    void singleTypePosts_eachReadTheirOwnColumns() throws Exception {
+        mockMvc.perform(post("/api/metrics/ram-usage")
+                        .header("Authorization","Bearer " + jwt)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                  {
+                    "totalMemory": 32.0,
+                    "usedMemory": 20.0,
+                    "availableMemory": 12.0,
+                    "user": {"id": %d},
+                    "device": {"deviceId": "%s"}
+                  }
+                  """.formatted(userId, deviceId)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.usedMemory").value(20.0));
+
+        mockMvc.perform(post("/api/metrics/battery-info")
+                        .header("Authorization","Bearer " + jwt)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                  {
+                    "hasBattery": true,
+                    "batteryPercentage": 75,
+                    "isCharging": false,
+                    "powerConsumption": 3.5,
+                    "user": {"id": %d},
+                    "device": {"deviceId": "%s"}
+                  }
+                  """.formatted(userId, deviceId)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.batteryPercentage").value(75));
+
+        mockMvc.perform(get("/api/metrics/ram-usage/" + userId + "/" + deviceId)
+                        .header("Authorization","Bearer " + jwt))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.usedMemory").value(20.0));
+    }
+
+    @Test
+    void latestOfAType_searchesOnlyTheNewestRows() {
+        DeviceSpecification device = deviceRepo.findByUserAndDeviceId(userRepo.findById(userId).orElseThrow(), deviceId)
+                .orElseThrow();
+        LocalDateTime t0 = LocalDateTime.now().minusMinutes(10);
+        DeviceSample ram = new DeviceSample(device.getId(), t0);
+        ram.setUsedMemory(6.0);
+        deviceSampleService.write(ram);
+        for (int i = 1; i <= 3; i++) {
+            DeviceSample cpu = new DeviceSample(device.getId(), t0.plusMinutes(i));
+            cpu.setTotalCpuLoad(10.0 * i);
+            deviceSampleService.write(cpu);
+        }
+
+        // the newest row answers its own type directly
+        assertEquals(30.0, deviceSampleService.latestCpuUsage(device).orElseThrow().getTotalCpuLoad());
+        // an older type is found within the lookback window ...
+        assertEquals(6.0, deviceSampleService.latestRamUsage(device).orElseThrow().getUsedMemory());
+        // ... and not past it
+        Object lookback = ReflectionTestUtils.getField(deviceSampleService, "lookbackRows");
+        ReflectionTestUtils.setField(deviceSampleService, "lookbackRows", 3);
+        try {
+            assertTrue(deviceSampleService.latestRamUsage(device).isEmpty());
+        } finally {
+            ReflectionTestUtils.setField(deviceSampleService, "lookbackRows", lookback);
+        }
+    }
+}
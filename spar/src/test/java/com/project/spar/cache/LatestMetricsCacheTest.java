@@ -0,0 +1,62 @@
+package com.project.spar.cache;
+
+import com.project.spar.dto.CpuUsageDTO;
+import com.project.spar.dto.RamUsageDTO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatestMetricsCacheTest {
+
+    private static final LocalDateTime T0 = LocalDateTime.of(2025, 4, 1, 12, 0);
+
+    private LatestMetricsCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new LatestMetricsCache();
+        ReflectionTestUtils.setField(cache, "enabled", true);
+        ReflectionTestUtils.setField(cache, "maxBytes", 1L << 20);
+    }
+
+    @Test
+    void fill_storesLoadedValuesOfAnUntouchedDevice() {
+        long readStarted = cache.readStarted();
+        cache.fill(1L, "dev", readStarted, DeviceMetrics.empty(1L, "dev").withCpuUsage(cpu(1L, 10.0, T0)));
+
+        assertEquals(10.0, cache.get(1L, "dev").orElseThrow().getCpuUsage().getTotalCpuLoad());
+    }
+
+    @Test
+    void fill_isDroppedWhenTheDeviceWasWrittenDuringTheRead() {
+        long readStarted = cache.readStarted();
+        // an ingest commits while the read runs; it carries a type the entry did not hold
+        cache.update(1L, "dev", m -> m.withRamUsage(new RamUsageDTO(2L, 8.0, 4.0, 4.0, 1L, "dev", T0.plusSeconds(5))));
+        cache.fill(1L, "dev", readStarted, DeviceMetrics.empty(1L, "dev").withCpuUsage(cpu(1L, 10.0, T0)));
+
+        DeviceMetrics cached = cache.get(1L, "dev").orElseThrow();
+        assertNull(cached.getCpuUsage());
+        assertEquals(4.0, cached.getRamUsage().getUsedMemory());
+    }
+
+    @Test
+    void fill_neverReplacesANewerValue() {
+        cache.update(1L, "dev", m -> m.withCpuUsage(cpu(1L, 50.0, T0.plusSeconds(5))));
+        long readStarted = cache.readStarted();
+        cache.fill(1L, "dev", readStarted, DeviceMetrics.empty(1L, "dev")
+                .withCpuUsage(cpu(1L, 10.0, T0))
+                .withRamUsage(new RamUsageDTO(2L, 8.0, 4.0, 4.0, 1L, "dev", T0)));
+
+        DeviceMetrics cached = cache.get(1L, "dev").orElseThrow();
+        assertEquals(50.0, cached.getCpuUsage().getTotalCpuLoad());
+        assertEquals(4.0, cached.getRamUsage().getUsedMemory());
+    }
+
+    private static CpuUsageDTO cpu(Long id, double load, LocalDateTime ts) {
+        return new CpuUsageDTO(id, load, new float[]{(float) load}, 1L, "dev", ts);
+    }
+}
@@ -0,0 +1,60 @@
+package com.project.spar.cluster;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConsistentHashRingTest {
+
+    private static final List<String> THREE = List.of("http://a:8080", "http://b:8080", "http://c:8080");
+
+    @Test
+    void ownerIsStableAndIndependentOfMemberOrder() {
+        ConsistentHashRing ring = new ConsistentHashRing(THREE, 128);
+        ConsistentHashRing reordered = new ConsistentHashRing(List.of(THREE.get(2), THREE.get(0), THREE.get(1)), 128);
+        for (int i = 0; i < 1000; i++) {
+            String deviceId = "device-" + i;
+            assertTrue(THREE.contains(ring.ownerOf(deviceId)));
+            assertEquals(ring.ownerOf(deviceId), ring.ownerOf(deviceId));
+            assertEquals(ring.ownerOf(deviceId), reordered.ownerOf(deviceId));
+        }
+        assertEquals(THREE, reordered.members());
+    }
+
+    @Test
+    void devicesSpreadOverAllMembers() {
+        ConsistentHashRing ring = new ConsistentHashRing(THREE, 128);
+        int[] owned = new int[THREE.size()];
+        for (int i = 0; i < 3000; i++) {
+            owned[THREE.indexOf(ring.ownerOf("device-" + i))]++;
+        }
+        for (int count : owned) {
+            assertTrue(count > 600 && count < 1400, "unbalanced ring: " + count);
+        }
+    }
+
+    @Test
+    void joiningNodeOnlyTakesDevicesOverFromOthers() {
+        ConsistentHashRing before = new ConsistentHashRing(THREE, 128);
+        String added = "http://d:8080";
+        ConsistentHashRing after = new ConsistentHashRing(
+                List.of(THREE.get(0), THREE.get(1), THREE.get(2), added), 128);
+        int moved = 0;
+        for (int i = 0; i < 4000; i++) {
+            String deviceId = "device-" + i;
+            if (!before.ownerOf(deviceId).equals(after.ownerOf(deviceId))) {
+                assertEquals(added, after.ownerOf(deviceId));
+                moved++;
+            }
+        }
+        // about a quarter of the devices move to the new node, none between the old ones
+        assertTrue(moved > 600 && moved < 1400, "moved " + moved);
+    }
+
+    @Test
+    void emptyRingIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new ConsistentHashRing(List.of(), 128));
+    }
+}
@@ -0,0 +1,146 @@
+package com.project.spar.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DeviceWriteLocksTest {
+
+    private DeviceWriteLocks locks;
+
+    @BeforeEach
+    void setUp() {
+        locks = new DeviceWriteLocks();
+        ReflectionTestUtils.setField(locks, "stripeCount", 16);
+        locks.init();
+    }
+
+    @Test
+    void stripesAreStableAndInRange() {
+        for (long id = 1; id <= 1000; id++) {
+            int stripe = locks.stripeOf(id);
+            assertTrue(stripe >= 0 && stripe < 16);
+            assertEquals(stripe, locks.stripeOf(id));
+        }
+    }
+
+    @Test
+    void serializesWritesForOneDevice() throws Exception {
+        AtomicInteger inside = new AtomicInteger();
+        AtomicInteger maxInside = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < 200; i++) {
+                        locks.withLock(42L, () -> {
+                            maxInside.accumulateAndGet(inside.incrementAndGet(), Math::max);
+                            inside.decrementAndGet();
+                            return null;
+                        });
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> f : futures) {
+                f.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        assertEquals(1, maxInside.get());
+    }
+
+    @Test
+    void withLocksReleasesEveryStripeIncludingShared() throws Exception {
+        // ids that share a stripe are locked once
+        List<Long> ids = List.of(1L, 2L, 3L, 1L, 17L, 33L);
+        assertEquals("done", locks.withLocks(ids, () -> "done"));
+
+        ExecutorService other = Executors.newSingleThreadExecutor();
+        try {
+            Future<Boolean> acquired = other.submit(() -> locks.withLocks(ids, () -> true));
+            assertTrue(acquired.get(5, TimeUnit.SECONDS));
+        } finally {
+            other.shutdownNow();
+        }
+    }
+
+    @Test
+    void reactiveAndBlockingWritersShareTheStripe() throws Exception {
+        Sinks.Empty<Void> reactiveDone = Sinks.empty();
+        AtomicInteger order = new AtomicInteger();
+        var reactiveWrite = locks.withLockReactive(42L, reactiveDone.asMono().then(Mono.fromCallable(order::incrementAndGet)))
+                .toFuture();
+
+        ExecutorService other = Executors.newSingleThreadExecutor();
+        try {
+            // the blocking writer queues behind the reactive one that holds the stripe
+            Future<Integer> blockingWrite = other.submit(() -> locks.withLock(42L, order::incrementAndGet));
+            Thread.sleep(100);
+            assertFalse(blockingWrite.isDone());
+
+            reactiveDone.tryEmitEmpty();
+            assertEquals(1, reactiveWrite.get(5, TimeUnit.SECONDS));
+            assertEquals(2, blockingWrite.get(5, TimeUnit.SECONDS));
+        } finally {
+            other.shutdownNow();
+        }
+
+        // and a reactive writer waits for a blocking holder
+        CountDownLatch holding = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        other = Executors.newSingleThreadExecutor();
+        try {
+            other.submit(() -> locks.withLock(42L, () -> {
+                holding.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return null;
+            }));
+            assertTrue(holding.await(5, TimeUnit.SECONDS));
+            var waiting = locks.withLockReactive(42L, Mono.just("written")).toFuture();
+            Thread.sleep(100);
+            assertFalse(waiting.isDone());
+            release.countDown();
+            assertEquals("written", waiting.get(5, TimeUnit.SECONDS));
+        } finally {
+            other.shutdownNow();
+        }
+    }
+
+    @Test
+    void cancelledReactiveWaiterPassesTheStripeOn() {
+        CountDownLatch never = new CountDownLatch(1);
+        Sinks.Empty<Void> holderDone = Sinks.empty();
+        var holder = locks.withLockReactive(42L, holderDone.asMono()).subscribe();
+        var cancelled = locks.withLockReactive(42L, Mono.fromRunnable(never::countDown)).subscribe();
+        cancelled.dispose();
+        holderDone.tryEmitEmpty();
+
+        assertEquals("next", locks.withLockReactive(42L, Mono.just("next")).block(Duration.ofSeconds(5)));
+        assertEquals(1, never.getCount());
+        holder.dispose();
+    }
+}
@@ -0,0 +1,35 @@
+package com.project.spar.timeseries;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DownsamplerTest {
+
+    @Test
+    void keepsEndpointsAndPeaks() {
+        List<SeriesPoint> points = new ArrayList<>();
+        for (int i = 0; i < 86_400; i++) {
+            points.add(new SeriesPoint(i * 1000L, i == 40_000 ? 100 : 10));
+        }
+
+        List<SeriesPoint> sampled = Downsampler.lttb(points, 500);
+
+        assertEquals(500, sampled.size());
+        assertEquals(points.get(0), sampled.get(0));
+        assertEquals(points.get(points.size() - 1), sampled.get(sampled.size() - 1));
+        assertTrue(sampled.contains(points.get(40_000)), "spike must survive downsampling");
+        for (int i = 1; i < sampled.size(); i++) {
+            assertTrue(sampled.get(i).timestamp() > sampled.get(i - 1).timestamp());
+        }
+    }
+
+    @Test
+    void returnsSmallInputUnchanged() {
+        List<SeriesPoint> points = List.of(new SeriesPoint(1, 1), new SeriesPoint(2, 2));
+        assertSame(points, Downsampler.lttb(points, 500));
+    }
+}
@@ -0,0 +1,70 @@
+package com.project.spar.timeseries;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GorillaChunkTest {
+
+    @Test
+    void roundTripsIrregularSamples() {
+        Random random = new Random(42);
+        GorillaChunk chunk = new GorillaChunk(1000);
+        List<SeriesPoint> written = new ArrayList<>();
+        long ts = 1_700_000_000_000L;
+        double value = 37.5;
+        for (int i = 0; i < 1000; i++) {
+            // mostly 1s cadence with jitter, plus the odd long gap
+            ts += i % 97 == 0 ? 3_600_000 : 1000 + random.nextInt(41) - 20;
+            value = i % 50 == 0 ? random.nextDouble() * 1e6 : value + random.nextGaussian();
+            assertTrue(chunk.append(ts, value));
+            written.add(new SeriesPoint(ts, value));
+        }
+
+        List<SeriesPoint> read = new ArrayList<>();
+        chunk.forEach(Long.MIN_VALUE, Long.MAX_VALUE, (t, v) -> read.add(new SeriesPoint(t, v)));
+        assertEquals(written, read);
+    }
+
+    @Test
+    void regularSamplesCompressToAFewBytes() {
+        GorillaChunk chunk = new GorillaChunk(256);
+        long ts = 1_700_000_000_000L;
+        for (int i = 0; i < 256; i++) {
+            chunk.append(ts + i * 1000L, 20.0 + (i % 4) * 0.25);
+        }
+        chunk.seal();
+        assertTrue(chunk.estimatedBytes() / 256.0 < 4, "bytes per sample: " + chunk.estimatedBytes() / 256.0);
+    }
+
+    @Test
+    void filtersByRangeAndRejectsOutOfOrder() {
+        GorillaChunk chunk = new GorillaChunk(16);
+        for (int i = 0; i < 10; i++) {
+            chunk.append(i * 1000L, i);
+        }
+        assertFalse(chunk.append(5000L, 99));
+
+        List<Double> values = new ArrayList<>();
+        chunk.forEach(3000L, 6000L, (t, v) -> values.add(v));
+        assertEquals(List.of(3.0, 4.0, 5.0, 6.0), values);
+    }
+
+    @Test
+    void handlesSpecialValues() {
+        GorillaChunk chunk = new GorillaChunk(8);
+        double[] values = {0.0, -0.0, Double.NaN, Double.MAX_VALUE, Double.MIN_VALUE, -1e-300, 42};
+        for (int i = 0; i < values.length; i++) {
+            chunk.append(i, values[i]);
+        }
+        List<Double> read = new ArrayList<>();
+        chunk.forEach(0, Long.MAX_VALUE, (t, v) -> read.add(v));
+        for (int i = 0; i < values.length; i++) {
+            assertEquals(Double.doubleToRawLongBits(values[i]), Double.doubleToRawLongBits(read.get(i)));
+        }
+    }
+}